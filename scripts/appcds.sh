@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the repackaged application jar.
+#
+# The fat jar is unpacked into a plain classpath layout (application.jar + lib/), because CDS
+# can only archive classes loaded from regular jar files. A training run then starts the
+# application context with the fast-startup profile, exits once the context is refreshed,
+# and dumps every loaded class into application.jsa.
+#
+# Usage: scripts/appcds.sh [path/to/LogSimulator.jar] [output-dir]
+# Run:   java -XX:SharedArchiveFile=<output-dir>/application.jsa -jar <output-dir>/application.jar
+set -euo pipefail
+
+JAR="${1:-$(ls target/LogSimulator-*.jar | grep -v '\.original$' | head -n 1)}"
+OUT="${2:-$(dirname "$JAR")/appcds}"
+
+echo "Building AppCDS archive for ${JAR} in ${OUT}"
+rm -rf "${OUT}"
+mkdir -p "${OUT}/lib" "${OUT}/exploded"
+
+unzip -q "${JAR}" -d "${OUT}/exploded"
+cp "${OUT}"/exploded/BOOT-INF/lib/*.jar "${OUT}/lib/"
+
+MAIN_CLASS=$(grep '^Start-Class:' "${OUT}/exploded/META-INF/MANIFEST.MF" | cut -d' ' -f2 | tr -d '\r')
+CLASS_PATH=$(cd "${OUT}" && ls lib/*.jar | tr '\n' ' ')
+
+# Manifest lines are limited to 72 bytes; continuation lines start with a single space.
+{
+  echo "Main-Class: ${MAIN_CLASS}"
+  echo "Class-Path: ${CLASS_PATH}" | fold -w 70 | sed '2,$s/^/ /'
+} > "${OUT}/MANIFEST.MF"
+
+jar --create --file "${OUT}/application.jar" --manifest "${OUT}/MANIFEST.MF" \
+    -C "${OUT}/exploded/BOOT-INF/classes" .
+rm -rf "${OUT}/exploded" "${OUT}/MANIFEST.MF"
+
+(
+  cd "${OUT}"
+  java -XX:ArchiveClassesAtExit=application.jsa \
+       -Dspring.context.exit=onRefresh \
+       -Dspring.profiles.active=fast-startup \
+       -Dspring.datasource.url=jdbc:sqlite:training.db \
+       -Dlogging.file.name=training.log \
+       -jar application.jar
+  rm -f training.db training.log
+)
+
+echo "AppCDS archive written to ${OUT}/application.jsa"
@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request: from JVM launch until GET /api/todos returns the seeded todos.
+# A liveness ping would not do: the fast-startup profile answers /health before its deferred schema
+# and seed work has finished, while the default configuration does that work before listening.
+#
+# Compares the default configuration against the fast-startup profile, with and without
+# the AppCDS archive produced by `mvn -Pappcds package`. Every run starts on a fresh
+# database in a scratch directory.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [port]
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${2:-18080}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$(ls "${ROOT}"/target/LogSimulator-*.jar | grep -v '\.original$' | head -n 1)"
+CDS_DIR="${ROOT}/target/appcds"
+WORK="$(mktemp -d)"
+trap 'rm -rf "${WORK}"' EXIT
+
+time_to_first_request() {
+  local start pid elapsed
+  rm -f "${WORK}/bench.db"
+  start=$(date +%s%N)
+  (cd "${WORK}" && exec java \
+      -Dserver.port="${PORT}" \
+      -Dspring.datasource.url=jdbc:sqlite:bench.db \
+      -Dlogging.file.name=bench.log \
+      "$@" > /dev/null 2>&1) &
+  pid=$!
+  until curl -sf "http://localhost:${PORT}/api/todos" 2> /dev/null | grep -q '"id"'; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "application exited before serving a request" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+  echo "${elapsed}"
+}
+
+benchmark() {
+  local label="$1"; shift
+  local results=()
+  for _ in $(seq "${RUNS}"); do
+    results+=("$(time_to_first_request "$@")")
+  done
+  local sorted median
+  sorted=$(printf '%s\n' "${results[@]}" | sort -n)
+  median=$(echo "${sorted}" | sed -n "$(( (RUNS + 1) / 2 ))p")
+  printf '%-28s median %6d ms   runs: %s\n' "${label}" "${median}" "$(echo ${sorted})"
+}
+
+echo "Time to first request over ${RUNS} runs"
+benchmark "default" -jar "${JAR}"
+benchmark "fast-startup" -Dspring.profiles.active=fast-startup -jar "${JAR}"
+if [[ -f "${CDS_DIR}/application.jsa" ]]; then
+  benchmark "fast-startup + AppCDS" -XX:SharedArchiveFile="${CDS_DIR}/application.jsa" \
+      -Dspring.profiles.active=fast-startup -jar "${CDS_DIR}/application.jar"
+else
+  echo "No AppCDS archive found; run 'mvn -Pappcds package' to include it"
+fi
@@ -0,0 +1,128 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.logging.AccessCapture;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records /api/** requests into an {@link AccessCapture} for replay. Runs ahead of the
+ * {@link ConcurrencyLimitFilter}, so requests that are shed are captured too. Warm-up requests are skipped.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@Slf4j
+public class AccessCaptureFilter extends OncePerRequestFilter {
+
+    private final AccessCaptureProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AccessCapture capture;
+
+    public AccessCaptureFilter(AccessCaptureProperties properties) throws IOException {
+        this.properties = properties;
+        this.capture = properties.isEnabled()
+                ? new AccessCapture(Path.of(properties.getDirectory()), properties.getQueueCapacity(),
+                        properties.getMaxBytes())
+                : null;
+        if (capture != null) {
+            log.info("Access capture enabled - writing {}, bodies: {}", capture.getFile(),
+                    properties.isCaptureBodies() ? "up to " + properties.getMaxBodyBytes() + " bytes" : "hashed");
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (capture == null || request.getHeader(StartupWarmup.WARMUP_HEADER) != null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        for (String excluded : properties.getExcludedPaths()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long arrivalMicros = System.currentTimeMillis() * 1000;
+        long startTime = System.nanoTime();
+        ContentCachingRequestWrapper wrapped = new ContentCachingRequestWrapper(request, properties.getMaxBodyBytes());
+        try {
+            chain.doFilter(wrapped, response);
+        } finally {
+            long durationMicros = (System.nanoTime() - startTime) / 1000;
+            // An async request is still running; its status is not known yet
+            int status = request.isAsyncStarted() ? 0 : response.getStatus();
+            capture.record(entry(wrapped, arrivalMicros, durationMicros, status));
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        if (capture == null) {
+            return Map.of("enabled", false);
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", true);
+        statistics.putAll(capture.getStatistics());
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        if (capture != null) {
+            try {
+                capture.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private AccessCapture.Entry entry(ContentCachingRequestWrapper request, long arrivalMicros, long durationMicros,
+                                      int status) {
+        Map<String, String> headers = Collections.emptyMap();
+        for (String name : AccessCapture.HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                if (headers.isEmpty()) {
+                    headers = new LinkedHashMap<>();
+                }
+                headers.put(name, value);
+            }
+        }
+
+        byte[] cached = request.getContentAsByteArray();
+        int length = Math.max(cached.length, (int) request.getContentLengthLong());
+        byte[] body = null;
+        long hash = 0;
+        // Bodies that were cut off at maxBodyBytes, or never read because the request was shed, are kept as
+        // length and hash of what was read
+        if (properties.isCaptureBodies() && cached.length > 0 && cached.length == length) {
+            body = cached;
+        } else if (length > 0) {
+            hash = AccessCapture.hash(cached, cached.length);
+        }
+        return new AccessCapture.Entry(arrivalMicros, durationMicros, status, request.getMethod(),
+                request.getRequestURI(), request.getQueryString(), headers, body, length, hash);
+    }
+}
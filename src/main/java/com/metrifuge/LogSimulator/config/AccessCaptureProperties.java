@@ -0,0 +1,35 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.logging.access-capture")
+public class AccessCaptureProperties {
+
+    private boolean enabled = false;
+
+    /** Paths under /api that are not captured; replaying them would reseed or restore the dataset. */
+    private List<String> excludedPaths = new ArrayList<>(
+            List.of("/api/todos/stream", "/api/todos/ready", "/api/admin/**"));
+
+    /** Each run writes a new access-<timestamp>.bin file here. */
+    private String directory = "logs/capture";
+
+    /** When false, only the length and a hash of each request body are kept. */
+    private boolean captureBodies = true;
+
+    /** Longer bodies are kept as length and a hash of their first maxBodyBytes, even with captureBodies set. */
+    private int maxBodyBytes = 16 * 1024;
+
+    /** Entries waiting for the writer thread; beyond this they are dropped. */
+    private int queueCapacity = 10_000;
+
+    /** Capture stops once the file reaches this size. */
+    private long maxBytes = 256L * 1024 * 1024;
+}
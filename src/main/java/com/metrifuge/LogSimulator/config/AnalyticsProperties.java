@@ -0,0 +1,19 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.analytics")
+public class AnalyticsProperties {
+
+    private boolean enabled = true;
+
+    /** Relative error of the completion latency quantiles; smaller values need more bins per sketch. */
+    private double relativeAccuracy = 0.02;
+
+    /** Rebuild the windows from todos created or completed in the last day when the dataset is loaded. */
+    private boolean seedFromDatabase = true;
+}
@@ -0,0 +1,32 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.archive")
+public class ArchiveProperties {
+
+    /** Run the archival job on its schedule; a run can still be triggered through the admin API when disabled. */
+    private boolean enabled = true;
+
+    /** Todos completed longer ago than this are moved to todos_archive. */
+    private int olderThanDays = 30;
+
+    /** Todos moved per transaction; keeps each hold on the write lock short. */
+    private int batchSize = 500;
+
+    /** Pause between batches so that request writers get the lock in between. */
+    private long pauseMs = 20;
+
+    /** Upper bound on batches per shard per run; the rest is picked up by the next run. */
+    private int maxBatchesPerRun = 2_000;
+
+    /** Free pages returned to the OS per incremental_vacuum step. */
+    private int vacuumPages = 1_000;
+
+    private long intervalMs = 3_600_000;
+    private long initialDelayMs = 60_000;
+}
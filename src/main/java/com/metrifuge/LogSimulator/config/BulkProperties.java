@@ -0,0 +1,24 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.bulk")
+public class BulkProperties {
+
+    /**
+     * Rows changed per statement. Each chunk is one {@code UPDATE}/{@code DELETE ... WHERE id IN (SELECT ...
+     * LIMIT n)} inside the shard's transaction, which bounds how long a statement runs and how many returned
+     * rows are read at a time.
+     */
+    private int chunkSize = 500;
+
+    /** Most IDs a bulk filter may list; larger requests are rejected with 400. */
+    private int maxIds = 1_000;
+
+    /** Operations changing more todos than this clear the whole JSON cache instead of evicting todo by todo. */
+    private int maxCacheEvictions = 1_000;
+}
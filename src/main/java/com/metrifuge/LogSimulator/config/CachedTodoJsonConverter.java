@@ -0,0 +1,88 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.dto.TodoResponse;
+import com.metrifuge.LogSimulator.service.TodoJsonCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes {@link TodoResponse} bodies, single or as a collection, from the {@link TodoJsonCache}.
+ * Lists are assembled by copying each todo's cached bytes into the response between brackets and commas,
+ * so unchanged todos are not run through Jackson again. Registered ahead of the Jackson converter;
+ * everything else, including reading request bodies, still goes through the regular Jackson converter, which
+ * this one extends only for its header and media type handling. Long lists stop being written when the request
+ * deadline passes.
+ */
+public class CachedTodoJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final TodoJsonCache cache;
+
+    public CachedTodoJsonConverter(TodoJsonCache cache, ObjectMapper objectMapper) {
+        super(objectMapper);
+        setSupportedMediaTypes(List.of(MediaType.APPLICATION_JSON));
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return isTodoType(clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isTodoType(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        if (body instanceof TodoResponse todo) {
+            out.write(cache.toJson(todo));
+            return;
+        }
+        RequestDeadline.check("writing the response");
+        out.write('[');
+        int written = 0;
+        for (Object element : (Collection<?>) body) {
+            if (written > 0) {
+                out.write(',');
+                if (written % DEADLINE_CHECK_INTERVAL == 0) {
+                    RequestDeadline.check("writing the rest of the response");
+                }
+            }
+            out.write(cache.toJson((TodoResponse) element));
+            written++;
+        }
+        out.write(']');
+    }
+
+    private static boolean isTodoType(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return TodoResponse.class.isAssignableFrom(clazz);
+        }
+        if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw
+                && Collection.class.isAssignableFrom(raw)) {
+            Type[] arguments = parameterized.getActualTypeArguments();
+            return arguments.length == 1 && arguments[0] instanceof Class<?> element
+                    && TodoResponse.class.isAssignableFrom(element);
+        }
+        return false;
+    }
+}
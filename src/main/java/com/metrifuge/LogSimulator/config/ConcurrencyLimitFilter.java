@@ -0,0 +1,109 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrifuge.LogSimulator.exception.GlobalExceptionHandler;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Admission control for /api/**. Read (GET/HEAD, and the batch lookup POST) and write requests each get their own
+ * {@link GradientConcurrencyLimit}; a request arriving while its class is at the limit is answered
+ * immediately with 503 and {@code Retry-After} instead of waiting in Tomcat's queue.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOOKUP_PATH = "/api/todos/lookup";
+
+    private final ConcurrencyLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final GradientConcurrencyLimit readLimit;
+    private final GradientConcurrencyLimit writeLimit;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.readLimit = new GradientConcurrencyLimit(properties.getRead(), properties);
+        this.writeLimit = new GradientConcurrencyLimit(properties.getWrite(), properties);
+        log.info("Concurrency limits {} - read: {}, write: {}", properties.isEnabled() ? "enabled" : "disabled",
+                properties.getRead(), properties.getWrite());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        for (String excluded : properties.getExcludedPaths()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                || request.getRequestURI().endsWith(LOOKUP_PATH);
+        GradientConcurrencyLimit limit = read ? readLimit : writeLimit;
+
+        int inFlight = limit.tryAcquire();
+        if (inFlight < 0) {
+            log.debug("Shedding {} {} - {} concurrency limit reached", request.getMethod(), request.getRequestURI(),
+                    read ? "read" : "write");
+            reject(response);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release(System.nanoTime() - startTime, inFlight,
+                    response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("read", readLimit.getStatistics());
+        statistics.put("write", writeLimit.getStatistics());
+        return statistics;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(properties.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new GlobalExceptionHandler.ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Server is at capacity, retry later",
+                LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Paths under /api that are never shed, e.g. long-lived streams and operational endpoints. */
+    private List<String> excludedPaths = new ArrayList<>(
+            List.of("/api/todos/stream", "/api/todos/health", "/api/todos/ready", "/api/admin/**"));
+
+    private int retryAfterSeconds = 1;
+
+    /** Limits for GET and HEAD requests. */
+    private LimitSettings read = new LimitSettings(32, 4, 256);
+
+    /** Limits for all other methods; SQLite serializes writers, so these stay small. */
+    private LimitSettings write = new LimitSettings(8, 1, 64);
+
+    /** How much the recent latency may exceed the long-term latency before the limit is reduced. */
+    private double rttTolerance = 1.5;
+
+    /** Weight of each new limit estimate. */
+    private double smoothing = 0.2;
+
+    /** Minimum duration and sample count of a latency window; the limit is re-estimated once per window. */
+    private long windowMs = 100;
+    private int minWindowSamples = 10;
+
+    /** Number of windows the long-term latency average spans. */
+    private int longWindow = 600;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LimitSettings {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+    }
+}
@@ -2,9 +2,13 @@ package com.metrifuge.LogSimulator.config;
 
 import com.metrifuge.LogSimulator.model.Todo;
 import com.metrifuge.LogSimulator.repository.TodoRepository;
+import com.metrifuge.LogSimulator.service.DataSeeder;
+import com.metrifuge.LogSimulator.service.DatasetChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -17,9 +21,23 @@ import java.util.List;
 public class DataInitializer implements CommandLineRunner {
 
     private final TodoRepository todoRepository;
+    private final DataSeeder dataSeeder;
+    private final SeederProperties seederProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${todo.startup.defer-initialization:false}")
+    private boolean deferInitialization;
 
     @Override
     public void run(String... args) {
+        if (deferInitialization) {
+            log.info("Deferring data initialization until the application is ready");
+            return;
+        }
+        initialize();
+    }
+
+    public void initialize() {
         log.info("========================================");
         log.info("Starting Data Initialization");
         log.info("========================================");
@@ -27,11 +45,16 @@ public class DataInitializer implements CommandLineRunner {
         long count = todoRepository.count();
         log.info("Current number of todos in database: {}", count);
 
-        if (count == 0) {
+        if (count == 0 && seederProperties.isRunOnStartup()) {
+            log.info("Database is empty. Seeding synthetic dataset of {} todos...", seederProperties.getRows());
+            dataSeeder.seed();
+        } else if (count == 0) {
             log.info("Database is empty. Initializing with sample data...");
             initializeSampleData();
+            eventPublisher.publishEvent(new DatasetChangedEvent("startup"));
         } else {
             log.info("Database already contains {} todos. Skipping initialization.", count);
+            eventPublisher.publishEvent(new DatasetChangedEvent("startup"));
         }
 
         log.info("========================================");
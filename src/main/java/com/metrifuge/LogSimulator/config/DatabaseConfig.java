@@ -1,35 +1,67 @@
 package com.metrifuge.LogSimulator.config;
 
+import com.metrifuge.LogSimulator.repository.TodoShards;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 
-import javax.sql.DataSource;
 import jakarta.annotation.PostConstruct;
+import java.util.List;
 
 @Configuration
 @RequiredArgsConstructor
 @Slf4j
 public class DatabaseConfig {
 
-    private final DataSource dataSource;
-    private final JdbcTemplate jdbcTemplate;
+    private final TodoShards shards;
+
+    @Value("${todo.startup.defer-initialization:false}")
+    private boolean deferInitialization;
 
     @PostConstruct
+    public void onStartup() {
+        if (deferInitialization) {
+            log.info("Deferring database schema initialization until the application is ready");
+            return;
+        }
+        initializeSchema();
+    }
+
     public void initializeSchema() {
         log.info("Initializing database schema...");
         try {
             ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
             populator.addScript(new ClassPathResource("schema.sql"));
             populator.setContinueOnError(false);
-            populator.execute(dataSource);
-            log.info("Database schema initialized successfully");
+            ResourceDatabasePopulator archivePopulator = new ResourceDatabasePopulator();
+            archivePopulator.addScript(new ClassPathResource("schema-archive.sql"));
+            archivePopulator.setContinueOnError(false);
+            for (TodoShards.Shard shard : shards.all()) {
+                populator.execute(shard.dataSource());
+                archivePopulator.execute(shard.archiveDataSource());
+                addVersionColumn(shard.jdbcTemplate(), "shard " + shard.index());
+                addVersionColumn(shard.archiveJdbcTemplate(), "archive " + shard.index());
+            }
+            log.info("Database schema initialized successfully on {} shard(s)", shards.count());
         } catch (Exception e) {
             log.error("Error initializing database schema", e);
             throw new RuntimeException("Failed to initialize database schema", e);
         }
     }
+
+    /**
+     * Databases created before optimistic locking have no version column; CREATE TABLE IF NOT EXISTS leaves
+     * them as they are, so the column is added here. Existing rows start at version 0.
+     */
+    private void addVersionColumn(JdbcTemplate jdbcTemplate, String name) {
+        List<String> columns = jdbcTemplate.query("PRAGMA table_info(todos)", (rs, rowNum) -> rs.getString("name"));
+        if (!columns.contains("version")) {
+            log.info("Adding version column to todos on {}", name);
+            jdbcTemplate.execute("ALTER TABLE todos ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    /** Remaining budget in milliseconds, relative to when the request is received. */
+    private String timeoutHeader = "X-Request-Timeout";
+
+    /** Absolute deadline in epoch milliseconds. */
+    private String deadlineHeader = "X-Request-Deadline";
+
+    /** Applied to requests that match no endpoint entry and send no header; 0 means no deadline. */
+    private long defaultTimeoutMs = 0;
+
+    /** Per-endpoint defaults; the first match wins, 0 exempts it. A header can only shorten them. */
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    /** Paths under /api that never get a deadline, e.g. long-lived streams and operational endpoints. */
+    private List<String> excludedPaths = new ArrayList<>(
+            List.of("/api/todos/stream", "/api/todos/ready", "/api/admin/**"));
+
+    /** SQLite virtual machine instructions between deadline checks of a running statement. */
+    private int progressInterval = 10_000;
+
+    @Data
+    public static class Endpoint {
+        /** HTTP method, or empty for any. */
+        private String method;
+        private String path;
+        private long timeoutMs;
+    }
+}
@@ -0,0 +1,40 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs schema and data initialization on a background thread once the application is ready,
+ * so neither sits on the startup critical path. Enabled by {@code todo.startup.defer-initialization}.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.startup.defer-initialization", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class DeferredStartupInitializer {
+
+    private final DatabaseConfig databaseConfig;
+    private final DataInitializer dataInitializer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(this::initialize, "deferred-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void initialize() {
+        long startTime = System.currentTimeMillis();
+        try {
+            databaseConfig.initializeSchema();
+            dataInitializer.initialize();
+            log.info("Deferred startup initialization completed in {}ms", System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Deferred startup initialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.metrifuge.LogSimulator.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that follows the latency gradient, in the style of Netflix's Gradient2 limiter.
+ *
+ * Each window compares the mean latency of the window (short RTT) with an exponential average over many
+ * windows (long RTT). While short RTT stays within {@code tolerance} of long RTT the limit grows by roughly
+ * its square root per window; once requests start queueing and short RTT rises, the gradient
+ * {@code tolerance * long / short} drops below one and the limit shrinks proportionally, down to half per
+ * window. A request that failed with 503 because the database was busy counts as a drop and shrinks the
+ * limit immediately. The limit does not grow while less than half of it is in use.
+ */
+public class GradientConcurrencyLimit {
+
+    private static final double DROP_DECREASE = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final double longWindowWeight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientConcurrencyLimit(ConcurrencyLimitProperties.LimitSettings settings,
+                                    ConcurrencyLimitProperties properties) {
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, settings.getInitialLimit()));
+        this.tolerance = properties.getRttTolerance();
+        this.smoothing = properties.getSmoothing();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs());
+        this.minWindowSamples = properties.getMinWindowSamples();
+        this.longWindowWeight = 1.0 / properties.getLongWindow();
+    }
+
+    /**
+     * Returns the number of requests in flight including this one, or -1 if the limit is reached.
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return current + 1;
+            }
+        }
+    }
+
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            if (dropped) {
+                drops.increment();
+                limit = Math.max(minLimit, limit * DROP_DECREASE);
+                return;
+            }
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+
+            long now = System.nanoTime();
+            if (windowSamples < minWindowSamples || now - windowStart < windowNanos) {
+                return;
+            }
+            shortRtt = (double) windowRttSum / windowSamples;
+            boolean appLimited = windowMaxInFlight < limit / 2;
+            windowStart = now;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+
+            longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - longWindowWeight) + shortRtt * longWindowWeight;
+            if (longRtt / shortRtt > 2) {
+                // Latency has dropped well below the long-term average; let the average catch up faster
+                longRtt *= 0.95;
+            }
+            if (appLimited) {
+                return;
+            }
+
+            double current = limit;
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double estimate = current * gradient + Math.sqrt(current);
+            double next = current * (1 - smoothing) + estimate * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("limit", (int) limit);
+        statistics.put("inFlight", inFlight.get());
+        statistics.put("accepted", accepted.sum());
+        statistics.put("rejected", rejected.sum());
+        statistics.put("drops", drops.sum());
+        synchronized (this) {
+            statistics.put("shortRttMillis", shortRtt / 1_000_000);
+            statistics.put("longRttMillis", longRtt / 1_000_000);
+        }
+        return statistics;
+    }
+}
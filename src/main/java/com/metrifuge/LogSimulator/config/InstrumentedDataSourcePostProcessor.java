@@ -0,0 +1,31 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.repository.JdbcInstrumentation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps DataSource beans with {@link JdbcInstrumentation}. Pools that TodoShards creates itself are not
+ * beans and are wrapped there. The instrumentation is looked up lazily so that this post-processor does not
+ * pull it, and its properties, into early initialization.
+ */
+@Component
+public class InstrumentedDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<JdbcInstrumentation> instrumentation;
+
+    public InstrumentedDataSourcePostProcessor(ObjectProvider<JdbcInstrumentation> instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return instrumentation.getObject().wrap(dataSource, beanName);
+        }
+        return bean;
+    }
+}
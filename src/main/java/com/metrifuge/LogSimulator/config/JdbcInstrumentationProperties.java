@@ -0,0 +1,25 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.jdbc")
+public class JdbcInstrumentationProperties {
+
+    /** Wrap every todo DataSource to record per-statement timings; read once at startup. */
+    private boolean enabled = true;
+
+    /** Statements taking longer than this, execution plus fetching rows, are logged with their query plan. */
+    private long slowQueryMs = 200;
+
+    /** A query plan is captured at most once per statement shape within this interval. */
+    private long planCaptureIntervalMs = 60_000;
+
+    /** Distinct statement shapes tracked; statements beyond this are counted under one "other" entry. */
+    private int maxStatements = 500;
+
+    private double relativeAccuracy = 0.02;
+}
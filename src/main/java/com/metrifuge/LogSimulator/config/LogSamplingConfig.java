@@ -0,0 +1,27 @@
+package com.metrifuge.LogSimulator.config;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.metrifuge.LogSimulator.logging.AdaptiveSamplingFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class LogSamplingConfig {
+
+    @Bean(destroyMethod = "stop")
+    public AdaptiveSamplingFilter adaptiveSamplingFilter(LogSamplingProperties properties) {
+        AdaptiveSamplingFilter filter = new AdaptiveSamplingFilter(properties);
+        if (properties.isEnabled()) {
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            filter.setContext(context);
+            filter.start();
+            context.addTurboFilter(filter);
+            log.info("Adaptive log sampling enabled - budget: {} lines/sec, initial rate: {}, loggers: {}",
+                    properties.getBudgetLinesPerSecond(), properties.getInitialRate(), properties.getLoggers());
+        }
+        return filter;
+    }
+}
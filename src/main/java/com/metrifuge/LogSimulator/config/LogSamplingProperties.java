@@ -0,0 +1,39 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.logging.sampling")
+public class LogSamplingProperties {
+
+    private boolean enabled = false;
+
+    /** Target rate of below-INFO lines written by sampled requests; the sample rate adapts to stay under it. */
+    private long budgetLinesPerSecond = 2_000;
+
+    private double initialRate = 1.0;
+    private double minRate = 0.001;
+    private double maxRate = 1.0;
+    private long adjustIntervalMs = 1_000;
+
+    /** Logger name prefixes whose below-INFO output is sampled; other loggers keep their configured levels. */
+    private List<String> loggers = new ArrayList<>(List.of("com.metrifuge.LogSimulator"));
+
+    /** A request that logs at this level or above is force-sampled from that point on. */
+    private String forceLevel = "WARN";
+
+    /** Requests slower than this are force-sampled when they complete. */
+    private long slowRequestMs = 1_000;
+
+    /**
+     * Suppressed events kept per unsampled request and replayed if it is force-sampled. Off by default: with
+     * replay on, guarded debug statements run and are held instead of being skipped.
+     */
+    private int replayBufferSize = 0;
+}
@@ -0,0 +1,80 @@
+package com.metrifuge.LogSimulator.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.metrifuge.LogSimulator.logging.LogShippingAppender;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@Slf4j
+public class LogShippingConfig {
+
+    private static final String DEFAULT_PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    private LogShippingAppender<ILoggingEvent> installed;
+
+    @Bean
+    public LogShippingAppender<ILoggingEvent> logShippingAppender(LogShippingProperties properties,
+                                                                 Environment environment) {
+        LogShippingAppender<ILoggingEvent> appender = new LogShippingAppender<>();
+        if (!properties.isEnabled()) {
+            return appender;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(properties.getPattern() != null ? properties.getPattern()
+                : environment.getProperty("logging.pattern.file", DEFAULT_PATTERN));
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        appender.setContext(context);
+        appender.setName("SHIPPING");
+        appender.setEncoder(encoder);
+        appender.setUrl(properties.getUrl());
+        appender.setSource(properties.getSource());
+        appender.setQueueCapacity(properties.getQueueCapacity());
+        appender.setOverflow(properties.getOverflow().name());
+        appender.setMaxBlockMs(properties.getMaxBlockMs());
+        appender.setBatchEvents(properties.getBatchEvents());
+        appender.setBatchBytes(properties.getBatchBytes());
+        appender.setLingerMs(properties.getLingerMs());
+        appender.setCompress(properties.isCompress());
+        appender.setMaxAttempts(properties.getMaxAttempts());
+        appender.setInitialBackoffMs(properties.getInitialBackoffMs());
+        appender.setMaxBackoffMs(properties.getMaxBackoffMs());
+        appender.setRequestTimeoutMs(properties.getRequestTimeoutMs());
+        appender.setShutdownTimeoutMs(properties.getShutdownTimeoutMs());
+        appender.start();
+        if (!appender.isStarted()) {
+            log.warn("Log shipping to {} could not be started, see the logback status messages", properties.getUrl());
+            return appender;
+        }
+
+        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+        installed = appender;
+        log.info("Log shipping enabled - sending to {} in batches of up to {} events, {} on overflow",
+                properties.getUrl(), properties.getBatchEvents(), properties.getOverflow());
+        return appender;
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        if (installed != null) {
+            LoggerContext context = (LoggerContext) installed.getContext();
+            context.getLogger(Logger.ROOT_LOGGER_NAME).detachAppender(installed);
+            installed.stop();
+            installed = null;
+        }
+    }
+}
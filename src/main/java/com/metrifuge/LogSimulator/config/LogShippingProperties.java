@@ -0,0 +1,55 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.logging.shipping")
+public class LogShippingProperties {
+
+    private boolean enabled = false;
+
+    /** Collector endpoint: http(s)://host:port/path for HTTP POSTs, tcp://host:port for framed TCP. */
+    private String url = "http://localhost:9880/logs";
+
+    /** Identifies this instance to the collector, which tracks event sequences per source; defaults to host-pid. */
+    private String source;
+
+    /** Layout of each shipped event; defaults to the file pattern. */
+    private String pattern;
+
+    /** Encoded events waiting to be shipped; what happens beyond this is decided by {@code overflow}. */
+    private int queueCapacity = 10_000;
+
+    /** DROP discards events while the queue is full; BLOCK makes the logging thread wait up to maxBlockMs. */
+    private Overflow overflow = Overflow.DROP;
+
+    private long maxBlockMs = 100;
+
+    private int batchEvents = 1_000;
+
+    /** A batch is sent once it holds this many uncompressed bytes, even below batchEvents. */
+    private int batchBytes = 1024 * 1024;
+
+    /** Longest time the first event of a batch waits for more events to join it. */
+    private long lingerMs = 200;
+
+    private boolean compress = true;
+
+    /** Attempts per batch before it is given up and counted as lost; 0 retries forever. */
+    private int maxAttempts = 10;
+
+    /** Retries back off exponentially from initialBackoffMs up to maxBackoffMs, with jitter. */
+    private long initialBackoffMs = 100;
+
+    private long maxBackoffMs = 10_000;
+
+    private long requestTimeoutMs = 10_000;
+
+    /** On shutdown, queued events are flushed for up to this long. */
+    private long shutdownTimeoutMs = 5_000;
+
+    public enum Overflow { DROP, BLOCK }
+}
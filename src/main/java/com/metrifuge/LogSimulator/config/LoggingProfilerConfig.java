@@ -0,0 +1,27 @@
+package com.metrifuge.LogSimulator.config;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.metrifuge.LogSimulator.logging.LoggingProfiler;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class LoggingProfilerConfig {
+
+    @Bean(destroyMethod = "uninstall")
+    public LoggingProfiler loggingProfiler(@Value("${todo.logging.profiler.enabled:false}") boolean enabled,
+                                           @Value("${todo.logging.profiler.max-call-sites:2000}") int maxCallSites,
+                                           @Value("${todo.logging.profiler.max-endpoints:200}") int maxEndpoints) {
+        LoggingProfiler profiler = new LoggingProfiler(maxCallSites, maxEndpoints);
+        if (enabled) {
+            profiler.install((LoggerContext) LoggerFactory.getILoggerFactory());
+            log.info("Logging profiler installed - tracking up to {} call sites and {} endpoints",
+                    maxCallSites, maxEndpoints);
+        }
+        return profiler;
+    }
+}
@@ -0,0 +1,23 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.lookup")
+public class LookupProperties {
+
+    /** Most IDs a single batch lookup may ask for; larger requests are rejected with 400. */
+    private int maxIds = 1_000;
+
+    /**
+     * IDs bound per {@code WHERE id IN (...)} execution. The statement always has this many placeholders,
+     * unused ones bound to NULL, so one prepared statement serves every chunk of a shard.
+     */
+    private int chunkSize = 100;
+
+    /** Largest page {@code GET /api/todos?limit=} returns when paging through todos in ID order. */
+    private int maxPageSize = 1_000;
+}
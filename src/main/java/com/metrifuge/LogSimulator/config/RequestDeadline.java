@@ -0,0 +1,88 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.exception.DeadlineExceededException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The deadline of the request the current thread is working on, set by {@link RequestDeadlineFilter}.
+ *
+ * Deadlines are {@link System#nanoTime()} values, so they are immune to wall clock changes. Work handed to
+ * another thread only sees the deadline when wrapped with {@link #wrap(Runnable)}, as shard queries are.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private static final LongAdder skipped = new LongAdder();
+    private static final LongAdder cancelled = new LongAdder();
+
+    private RequestDeadline() {
+    }
+
+    public static void set(long deadlineNanos) {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    /** Milliseconds left, or {@link Long#MAX_VALUE} without a deadline; zero or less once it has passed. */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : (deadline - System.nanoTime()) / 1_000_000;
+    }
+
+    public static boolean expired() {
+        Long deadline = DEADLINE.get();
+        return deadline != null && deadline - System.nanoTime() <= 0;
+    }
+
+    /** Throws instead of starting {@code work} once the deadline has passed. */
+    public static void check(String work) {
+        if (expired()) {
+            skipped.increment();
+            throw new DeadlineExceededException("Request deadline passed before " + work);
+        }
+    }
+
+    /** Records a statement that was interrupted because the deadline passed while it ran. */
+    public static DeadlineExceededException cancelled(Throwable cause) {
+        cancelled.increment();
+        return new DeadlineExceededException("Request deadline passed while a query was running", cause);
+    }
+
+    public static Runnable wrap(Runnable runnable) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return runnable;
+        }
+        return () -> {
+            Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                runnable.run();
+            } finally {
+                if (previous != null) {
+                    DEADLINE.set(previous);
+                } else {
+                    DEADLINE.remove();
+                }
+            }
+        };
+    }
+
+    static Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("skippedWork", skipped.sum());
+        statistics.put("cancelledStatements", cancelled.sum());
+        return statistics;
+    }
+}
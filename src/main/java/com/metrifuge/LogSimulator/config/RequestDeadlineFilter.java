@@ -0,0 +1,161 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrifuge.LogSimulator.exception.GlobalExceptionHandler;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives /api/** requests a deadline, from the timeout or deadline header or the configured default for the
+ * endpoint, whichever is sooner, and makes it the current {@link RequestDeadline} while the request runs.
+ *
+ * Statements check it before they start and are interrupted when it passes while they run, so a request
+ * nobody is waiting for any more stops holding a connection. Such requests end with 504. Runs ahead of the
+ * {@link ConcurrencyLimitFilter}, so a request that arrives already expired does not take a slot.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 8)
+@Slf4j
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final DeadlineProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final LongAdder withDeadline = new LongAdder();
+    private final LongAdder fromHeader = new LongAdder();
+    private final LongAdder expiredOnArrival = new LongAdder();
+    private final LongAdder exceeded = new LongAdder();
+
+    public RequestDeadlineFilter(DeadlineProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String path = path(request);
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        for (String excluded : properties.getExcludedPaths()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.nanoTime();
+        Long timeoutMs;
+        try {
+            timeoutMs = timeoutMs(request);
+        } catch (NumberFormatException e) {
+            reject(response, HttpStatus.BAD_REQUEST, "Invalid deadline header: " + e.getMessage());
+            return;
+        }
+        if (timeoutMs == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        withDeadline.increment();
+        if (timeoutMs <= 0) {
+            expiredOnArrival.increment();
+            exceeded.increment();
+            log.debug("Rejecting {} {} - deadline passed before it arrived", request.getMethod(), request.getRequestURI());
+            reject(response, HttpStatus.GATEWAY_TIMEOUT, "Request deadline passed before processing started");
+            return;
+        }
+
+        RequestDeadline.set(now + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // Also counts responses aborted part way through, which leave the status at 200
+            if (RequestDeadline.expired() || response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value()) {
+                exceeded.increment();
+            }
+            RequestDeadline.clear();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("requestsWithDeadline", withDeadline.sum());
+        statistics.put("fromHeader", fromHeader.sum());
+        statistics.put("expiredOnArrival", expiredOnArrival.sum());
+        statistics.putAll(RequestDeadline.getStatistics());
+        statistics.put("exceeded", exceeded.sum());
+        return statistics;
+    }
+
+    /** The budget in milliseconds, or null when the request has no deadline. */
+    private Long timeoutMs(HttpServletRequest request) {
+        Long timeoutMs = endpointTimeoutMs(request);
+
+        Long fromRequest = null;
+        String timeout = request.getHeader(properties.getTimeoutHeader());
+        if (timeout != null && !timeout.isBlank()) {
+            fromRequest = Long.parseLong(timeout.trim());
+        }
+        String deadline = request.getHeader(properties.getDeadlineHeader());
+        if (deadline != null && !deadline.isBlank()) {
+            long remaining = Long.parseLong(deadline.trim()) - System.currentTimeMillis();
+            fromRequest = fromRequest != null ? Math.min(fromRequest, remaining) : remaining;
+        }
+
+        if (fromRequest != null) {
+            fromHeader.increment();
+            return timeoutMs != null ? Math.min(timeoutMs, fromRequest) : fromRequest;
+        }
+        return timeoutMs;
+    }
+
+    private Long endpointTimeoutMs(HttpServletRequest request) {
+        String path = path(request);
+        for (DeadlineProperties.Endpoint endpoint : properties.getEndpoints()) {
+            boolean methodMatches = endpoint.getMethod() == null || endpoint.getMethod().isEmpty()
+                    || endpoint.getMethod().equalsIgnoreCase(request.getMethod());
+            if (methodMatches && pathMatcher.match(endpoint.getPath(), path)) {
+                return endpoint.getTimeoutMs() > 0 ? endpoint.getTimeoutMs() : null;
+            }
+        }
+        return properties.getDefaultTimeoutMs() > 0 ? properties.getDefaultTimeoutMs() : null;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new GlobalExceptionHandler.ErrorResponse(
+                status.value(), message, LocalDateTime.now()));
+    }
+}
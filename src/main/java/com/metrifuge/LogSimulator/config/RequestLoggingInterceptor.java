@@ -1,30 +1,41 @@
 package com.metrifuge.LogSimulator.config;
 
+import com.metrifuge.LogSimulator.logging.AdaptiveSamplingFilter;
+import com.metrifuge.LogSimulator.logging.LoggingProfiler;
+import com.metrifuge.LogSimulator.logging.RequestIds;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.util.Enumeration;
-import java.util.UUID;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
-public class RequestLoggingInterceptor implements HandlerInterceptor {
+public class RequestLoggingInterceptor implements AsyncHandlerInterceptor {
 
     private static final String REQUEST_ID_HEADER = "X-Request-ID";
     private static final String REQUEST_ID_ATTR = "requestId";
 
+    private final AdaptiveSamplingFilter samplingFilter;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         String requestId = request.getHeader(REQUEST_ID_HEADER);
         if (requestId == null || requestId.isEmpty()) {
-            requestId = UUID.randomUUID().toString();
+            requestId = RequestIds.next();
         }
 
         request.setAttribute(REQUEST_ID_ATTR, requestId);
         response.setHeader(REQUEST_ID_HEADER, requestId);
+        MDC.put(RequestIds.MDC_KEY, requestId);
+        MDC.put(LoggingProfiler.ENDPOINT_MDC_KEY, endpoint(request));
+        samplingFilter.begin(requestId);
 
         long startTime = System.currentTimeMillis();
         request.setAttribute("startTime", startTime);
@@ -56,6 +67,7 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
         Long startTime = (Long) request.getAttribute("startTime");
 
         long duration = System.currentTimeMillis() - startTime;
+        samplingFilter.complete(duration, response.getStatus(), ex);
 
         if (ex != null) {
             log.error("<== Request [{}] - Completed with ERROR in {}ms - Status: {} - Exception: {}",
@@ -75,5 +87,22 @@ public class RequestLoggingInterceptor implements HandlerInterceptor {
         if (duration > 1000) {
             log.warn("SLOW REQUEST DETECTED [{}] - Took {}ms", requestId, duration);
         }
+        clearContext();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        clearContext();
+    }
+
+    private void clearContext() {
+        samplingFilter.end();
+        MDC.remove(LoggingProfiler.ENDPOINT_MDC_KEY);
+        MDC.remove(RequestIds.MDC_KEY);
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
     }
 }
@@ -0,0 +1,63 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.model.Todo;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.seeder")
+public class SeederProperties {
+
+    /** Seed the synthetic dataset instead of the sample todos when the database is empty at startup. */
+    private boolean runOnStartup = false;
+
+    private long rows = 1_000_000;
+    private long randomSeed = 42L;
+
+    /** Rows per JDBC batch. */
+    private int batchSize = 1_000;
+
+    /** Rows per transaction; large transactions are what make SQLite bulk loads fast. */
+    private int commitInterval = 100_000;
+
+    /** Drop secondary indexes on todos before the load and recreate them afterwards. */
+    private boolean deferIndexes = true;
+
+    private double completedRatio = 0.3;
+    private double dueDateRatio = 0.8;
+    private int dueDateHorizonDays = 90;
+    private int createdAtSpreadDays = 365;
+    private int maxEstimatedHours = 40;
+    private int maxTagsPerTodo = 3;
+
+    private Map<Todo.Priority, Integer> priorityWeights = new EnumMap<>(Map.of(
+            Todo.Priority.LOW, 25,
+            Todo.Priority.MEDIUM, 40,
+            Todo.Priority.HIGH, 25,
+            Todo.Priority.URGENT, 10));
+
+    private Map<Todo.Category, Integer> categoryWeights = new EnumMap<>(Map.of(
+            Todo.Category.GENERAL, 10,
+            Todo.Category.WORK, 40,
+            Todo.Category.PERSONAL, 15,
+            Todo.Category.SHOPPING, 8,
+            Todo.Category.HEALTH, 7,
+            Todo.Category.EDUCATION, 8,
+            Todo.Category.FINANCE, 7,
+            Todo.Category.OTHER, 5));
+
+    private List<String> assignees = new ArrayList<>(List.of(
+            "alice@example.com", "bob@example.com", "charlie@example.com",
+            "diana@example.com", "eve@example.com"));
+
+    private List<String> tags = new ArrayList<>(List.of(
+            "backend", "frontend", "devops", "testing", "documentation",
+            "bug", "feature", "enhancement", "security", "performance"));
+}
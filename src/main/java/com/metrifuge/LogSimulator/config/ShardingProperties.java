@@ -0,0 +1,25 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.sharding")
+public class ShardingProperties {
+
+    /** Number of SQLite files todos are spread across; 1 keeps everything in the spring.datasource database. */
+    private int shards = 1;
+
+    /** Directory holding todos-0.db ... todos-(N-1).db when shards is greater than 1. */
+    private String directory = "shards";
+
+    /** Connections per shard pool. SQLite still allows only one writer per file at a time. */
+    private int poolSize = 4;
+
+    private int busyTimeoutMs = 5_000;
+
+    /** Threads running fan-out queries; 0 means one per shard. */
+    private int queryThreads = 0;
+}
@@ -0,0 +1,205 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import com.metrifuge.LogSimulator.service.DatasetChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gates readiness on a JIT warm-up. Once the application is up and its dataset is loaded, an optional
+ * read-only workload is sent to the application's own port - lookups by ID, keyword searches, statistics
+ * and, every few rounds, the full list - so that the full request path down to JSON serialization is compiled before Kubernetes routes
+ * traffic to the pod. Warm-up runs in rounds and stops when the mean lookup latency of the last
+ * {@code stable-rounds} rounds has settled, or after {@code max-duration-ms}.
+ */
+@Component
+@Slf4j
+public class StartupWarmup {
+
+    public enum State { STARTING, WARMING_UP, READY }
+
+    /** Set on every warm-up request so it can be told apart from real traffic, e.g. by access capture. */
+    public static final String WARMUP_HEADER = "X-Warmup";
+
+    private static final int KEPT_ROUNDS = 20;
+
+    private final WarmupProperties properties;
+    private final TodoRepository todoRepository;
+    private final Environment environment;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean applicationReady;
+    private volatile boolean datasetLoaded;
+    private volatile boolean warmedUp;
+    private volatile Map<String, Object> result = Map.of();
+    private final Deque<Long> roundMeans = new ArrayDeque<>();
+
+    public StartupWarmup(WarmupProperties properties, TodoRepository todoRepository, Environment environment) {
+        this.properties = properties;
+        this.todoRepository = todoRepository;
+        this.environment = environment;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        applicationReady = true;
+        startIfLoaded();
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        datasetLoaded = true;
+        startIfLoaded();
+    }
+
+    public State getState() {
+        if (!applicationReady || !datasetLoaded) {
+            return State.STARTING;
+        }
+        return warmedUp ? State.READY : State.WARMING_UP;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", getState().name());
+        status.put("warmupEnabled", properties.isEnabled());
+        synchronized (roundMeans) {
+            status.put("roundMeanMicros", new ArrayList<>(roundMeans));
+        }
+        status.putAll(result);
+        return status;
+    }
+
+    private void startIfLoaded() {
+        if (!applicationReady || !datasetLoaded || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (!properties.isEnabled() || port == null) {
+            warmedUp = true;
+            return;
+        }
+        Thread thread = new Thread(() -> warmUp(port), "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp(int port) {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + properties.getMaxDurationMs();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        String base = "http://localhost:" + port + "/api/todos";
+        SplittableRandom random = new SplittableRandom(42);
+        int rounds = 0;
+        long requests = 0;
+        long errors = 0;
+        boolean steady = false;
+
+        try {
+            List<Long> ids = todoRepository.findPageAfterId(0, properties.getSampleIds()).stream()
+                    .map(Todo::getId)
+                    .toList();
+            log.info("Warming up against {} with {} sampled todos (round size: {}, limit: {}ms)",
+                    base, ids.size(), properties.getRoundSize(), properties.getMaxDurationMs());
+
+            while (System.currentTimeMillis() < deadline && !steady) {
+                long lookupNanos = 0;
+                int lookups = 0;
+                for (int i = 0; i < properties.getRoundSize() && !ids.isEmpty(); i++) {
+                    long start = System.nanoTime();
+                    errors += send(client, base + "/" + ids.get(random.nextInt(ids.size())));
+                    lookupNanos += System.nanoTime() - start;
+                    lookups++;
+                }
+                String term = properties.getSearchTerms().isEmpty() ? "todo"
+                        : properties.getSearchTerms().get(rounds % properties.getSearchTerms().size());
+                errors += send(client, base + "?search=" + term);
+                errors += send(client, base + "/statistics");
+                requests += lookups + 2;
+                if (rounds % properties.getListEveryRounds() == 0) {
+                    errors += send(client, base);
+                    requests++;
+                }
+                rounds++;
+
+                long mean = lookups > 0 ? lookupNanos / lookups / 1_000 : 0;
+                synchronized (roundMeans) {
+                    roundMeans.addLast(mean);
+                    if (roundMeans.size() > KEPT_ROUNDS) {
+                        roundMeans.removeFirst();
+                    }
+                    steady = rounds >= properties.getMinRounds() && isSteady();
+                }
+                log.debug("Warm-up round {} - mean lookup {}us", rounds, mean);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Warm-up interrupted, reporting ready");
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed, reporting ready: {}", e.getMessage());
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rounds", rounds);
+        summary.put("requests", requests);
+        summary.put("errors", errors);
+        summary.put("steadyState", steady);
+        summary.put("durationMs", duration);
+        result = Collections.unmodifiableMap(summary);
+        warmedUp = true;
+        if (steady) {
+            log.info("Warm-up reached steady state after {} rounds, {} requests in {}ms", rounds, requests, duration);
+        } else {
+            log.warn("Warm-up stopped after {} rounds, {} requests in {}ms without reaching steady state",
+                    rounds, requests, duration);
+        }
+    }
+
+    private boolean isSteady() {
+        if (roundMeans.size() < properties.getStableRounds()) {
+            return false;
+        }
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        var recent = roundMeans.descendingIterator();
+        for (int i = 0; i < properties.getStableRounds(); i++) {
+            long mean = recent.next();
+            min = Math.min(min, mean);
+            max = Math.max(max, mean);
+        }
+        return max <= Math.max(1, min) * properties.getTolerance();
+    }
+
+    /** Sends a GET and reads the whole body; returns 1 for a failed request, 0 otherwise. */
+    private int send(HttpClient client, String uri) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).header(WARMUP_HEADER, "true").GET().build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return response.statusCode() == 200 ? 0 : 1;
+        } catch (IOException e) {
+            log.debug("Warm-up request to {} failed: {}", uri, e.getMessage());
+            return 1;
+        }
+    }
+}
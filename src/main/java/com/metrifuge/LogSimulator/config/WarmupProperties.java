@@ -0,0 +1,39 @@
+package com.metrifuge.LogSimulator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "todo.warmup")
+public class WarmupProperties {
+
+    /** Run the warm-up workload before reporting ready; when disabled the pod is ready once data is loaded. */
+    private boolean enabled = false;
+
+    /** Lookups by ID per round; each round also runs one keyword search and fetches statistics once. */
+    private int roundSize = 200;
+
+    /** The full list is fetched every this many rounds, as its cost grows with the dataset. */
+    private int listEveryRounds = 5;
+
+    private int minRounds = 5;
+
+    /** Warm-up ends once this many consecutive rounds have mean lookup latencies within {@code tolerance}. */
+    private int stableRounds = 3;
+
+    /** Largest allowed ratio between the slowest and fastest round mean of the stable rounds. */
+    private double tolerance = 1.25;
+
+    /** Hard limit; the pod reports ready when it is reached even if latency has not settled. */
+    private long maxDurationMs = 60_000;
+
+    /** IDs sampled from the dataset for lookups. */
+    private int sampleIds = 1_000;
+
+    /** Keywords for the search requests, cycled through in order. */
+    private List<String> searchTerms = List.of("bug", "review", "report", "deploy");
+}
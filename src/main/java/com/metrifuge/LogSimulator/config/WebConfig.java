@@ -1,19 +1,42 @@
 package com.metrifuge.LogSimulator.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metrifuge.LogSimulator.logging.MdcTaskDecorator;
+import com.metrifuge.LogSimulator.service.TodoJsonCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 @RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
     private final RequestLoggingInterceptor requestLoggingInterceptor;
+    private final TodoJsonCache todoJsonCache;
+    private final ObjectMapper objectMapper;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(requestLoggingInterceptor)
                 .addPathPatterns("/api/**");
     }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        if (todoJsonCache.isEnabled()) {
+            converters.add(0, new CachedTodoJsonConverter(todoJsonCache, objectMapper));
+        }
+    }
+
+    /** Picked up by the auto-configured task executor, which also runs async MVC handlers. */
+    @Bean
+    public TaskDecorator mdcTaskDecorator() {
+        return new MdcTaskDecorator();
+    }
 }
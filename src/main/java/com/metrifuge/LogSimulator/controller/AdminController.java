@@ -0,0 +1,394 @@
+package com.metrifuge.LogSimulator.controller;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.metrifuge.LogSimulator.config.AccessCaptureFilter;
+import com.metrifuge.LogSimulator.config.ConcurrencyLimitFilter;
+import com.metrifuge.LogSimulator.config.RequestDeadlineFilter;
+import com.metrifuge.LogSimulator.config.SeederProperties;
+import com.metrifuge.LogSimulator.dto.ArchiveResult;
+import com.metrifuge.LogSimulator.dto.LoggingProfile;
+import com.metrifuge.LogSimulator.dto.SeedResult;
+import com.metrifuge.LogSimulator.dto.SnapshotResult;
+import com.metrifuge.LogSimulator.exception.SeedInProgressException;
+import com.metrifuge.LogSimulator.logging.AdaptiveSamplingFilter;
+import com.metrifuge.LogSimulator.logging.LogShippingAppender;
+import com.metrifuge.LogSimulator.logging.LoggingProfiler;
+import com.metrifuge.LogSimulator.repository.JdbcInstrumentation;
+import com.metrifuge.LogSimulator.repository.TodoIdIndex;
+import com.metrifuge.LogSimulator.service.ArchiveService;
+import com.metrifuge.LogSimulator.service.DataSeeder;
+import com.metrifuge.LogSimulator.service.ReadCoalescer;
+import com.metrifuge.LogSimulator.service.SnapshotService;
+import com.metrifuge.LogSimulator.service.TodoJsonCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Administration", description = "Operational endpoints for managing the simulation dataset")
+public class AdminController {
+
+    private final DataSeeder dataSeeder;
+    private final SeederProperties seederProperties;
+    private final SnapshotService snapshotService;
+    private final AdaptiveSamplingFilter samplingFilter;
+    private final LoggingProfiler loggingProfiler;
+    private final LogShippingAppender<ILoggingEvent> logShippingAppender;
+    private final TodoJsonCache todoJsonCache;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final ArchiveService archiveService;
+    private final JdbcInstrumentation jdbcInstrumentation;
+    private final TodoIdIndex todoIdIndex;
+    private final AccessCaptureFilter accessCaptureFilter;
+    private final RequestDeadlineFilter requestDeadlineFilter;
+    private final ReadCoalescer readCoalescer;
+
+    @Operation(
+        summary = "Seed a synthetic dataset",
+        description = "Bulk loads generated todos using batched inserts in large transactions. " +
+                     "Row count and random seed default to the todo.seeder configuration."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Dataset seeded",
+            content = @Content(schema = @Schema(implementation = SeedResult.class))),
+        @ApiResponse(responseCode = "400", description = "Negative row count"),
+        @ApiResponse(responseCode = "409", description = "A seed is already running"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/seed")
+    public ResponseEntity<SeedResult> seed(
+            @Parameter(description = "Number of rows to generate", example = "1000000")
+            @RequestParam(required = false) Long rows,
+            @Parameter(description = "Random seed for reproducible data", example = "42")
+            @RequestParam(required = false) Long seed,
+            @Parameter(description = "Delete all existing todos before loading", example = "false")
+            @RequestParam(defaultValue = "false") boolean truncate) {
+        long rowCount = rows != null ? rows : seederProperties.getRows();
+        long randomSeed = seed != null ? seed : seederProperties.getRandomSeed();
+        log.info("POST /api/admin/seed - Seeding {} rows (seed: {}, truncate: {})", rowCount, randomSeed, truncate);
+
+        if (dataSeeder.isRunning()) {
+            log.warn("POST /api/admin/seed - Rejected, a seed is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        SeedResult result;
+        try {
+            result = dataSeeder.seed(rowCount, randomSeed, truncate);
+        } catch (SeedInProgressException e) {
+            // Another seed started between the check above and this one
+            log.warn("POST /api/admin/seed - Rejected, a seed is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("POST /api/admin/seed - Seeded {} rows in {}ms", result.getRows(), result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Snapshot the dataset",
+        description = "Writes all todos to a column-oriented binary file in the snapshot directory. " +
+                     "The table is read in short keyset-paginated chunks, so writers are not blocked for the whole snapshot."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Snapshot written",
+            content = @Content(schema = @Schema(implementation = SnapshotResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid snapshot name"),
+        @ApiResponse(responseCode = "409", description = "A snapshot or restore is already running"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/snapshot")
+    public ResponseEntity<SnapshotResult> snapshot(
+            @Parameter(description = "File name inside the snapshot directory; defaults to a timestamped name",
+                    example = "baseline.mfs")
+            @RequestParam(required = false) String name) {
+        log.info("POST /api/admin/snapshot - Writing snapshot '{}'", name);
+
+        if (snapshotService.isBusy()) {
+            log.warn("POST /api/admin/snapshot - Rejected, a snapshot or restore is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        SnapshotResult result = snapshotService.snapshot(name);
+        log.info("POST /api/admin/snapshot - Wrote {} rows to {} in {}ms",
+                result.getRows(), result.getFile(), result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Restore the dataset from a snapshot",
+        description = "Replaces all todos with the contents of a snapshot file, streaming the memory-mapped " +
+                     "blocks straight into batched inserts."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Snapshot restored",
+            content = @Content(schema = @Schema(implementation = SnapshotResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid snapshot name or file"),
+        @ApiResponse(responseCode = "409", description = "A snapshot or restore is already running"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/restore")
+    public ResponseEntity<SnapshotResult> restore(
+            @Parameter(description = "File name inside the snapshot directory", required = true, example = "baseline.mfs")
+            @RequestParam String name) {
+        log.info("POST /api/admin/restore - Restoring snapshot '{}'", name);
+
+        if (snapshotService.isBusy()) {
+            log.warn("POST /api/admin/restore - Rejected, a snapshot or restore is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        SnapshotResult result = snapshotService.restore(name);
+        log.info("POST /api/admin/restore - Restored {} rows from {} in {}ms",
+                result.getRows(), result.getFile(), result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Get log sampling state",
+        description = "Returns the current adaptive sample rate, the measured verbose line rate against its budget, " +
+                     "and counts of sampled, unsampled and force-sampled requests."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Sampling state retrieved")
+    })
+    @GetMapping("/logging/sampling")
+    public ResponseEntity<Map<String, Object>> getLogSampling() {
+        log.info("GET /api/admin/logging/sampling - Fetching log sampling state");
+        return ResponseEntity.ok(samplingFilter.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get log shipping state",
+        description = "Returns the collector, queued events and the age of the oldest, events accepted, dropped " +
+                     "on overflow and shipped, batches, raw and compressed bytes, retries, batches given up, and " +
+                     "the lag from queueing an event to the collector acknowledging it."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Shipping state retrieved")
+    })
+    @GetMapping("/logging/shipping")
+    public ResponseEntity<Map<String, Object>> getLogShipping() {
+        log.info("GET /api/admin/logging/shipping - Fetching log shipping state");
+        return ResponseEntity.ok(logShippingAppender.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get the logging cost profile",
+        description = "Returns logging calls, emitted and suppressed events, bytes, and formatting and append time " +
+                     "per endpoint and per call site (logger + format string). Suppressed calls with arguments " +
+                     "show where arguments are evaluated although nothing is logged."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Profile retrieved",
+            content = @Content(schema = @Schema(implementation = LoggingProfile.class))),
+        @ApiResponse(responseCode = "400", description = "Unknown sort key")
+    })
+    @GetMapping("/logging/profile")
+    public ResponseEntity<LoggingProfile> getLoggingProfile(
+            @Parameter(description = "Sort key: cost, calls, emitted, suppressed, wasted or bytes", example = "cost")
+            @RequestParam(defaultValue = "cost") String sortBy,
+            @Parameter(description = "Maximum number of call sites to return", example = "50")
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("GET /api/admin/logging/profile - Fetching logging profile (sortBy: {}, limit: {})", sortBy, limit);
+        return ResponseEntity.ok(loggingProfiler.snapshot(sortBy, limit));
+    }
+
+    @Operation(
+        summary = "Reset the logging cost profile",
+        description = "Clears all logging profile counters and starts a new profiling window."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Profile reset")
+    })
+    @DeleteMapping("/logging/profile")
+    public ResponseEntity<Void> resetLoggingProfile() {
+        log.info("DELETE /api/admin/logging/profile - Resetting logging profile");
+        loggingProfiler.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+        summary = "Get JSON cache statistics",
+        description = "Returns hit/miss counts for the cache of serialized todo JSON, the time spent serializing " +
+                     "on misses, and the serialization time saved by hits, estimated from the mean miss cost."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved")
+    })
+    @GetMapping("/json-cache")
+    public ResponseEntity<Map<String, Object>> getJsonCacheStatistics() {
+        log.info("GET /api/admin/json-cache - Fetching JSON cache statistics");
+        return ResponseEntity.ok(todoJsonCache.getStatistics());
+    }
+
+    @Operation(
+        summary = "Clear the JSON cache",
+        description = "Drops all cached todo JSON; statistics are kept."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Cache cleared")
+    })
+    @DeleteMapping("/json-cache")
+    public ResponseEntity<Void> clearJsonCache() {
+        log.info("DELETE /api/admin/json-cache - Clearing JSON cache");
+        todoJsonCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+        summary = "Get JDBC statement statistics",
+        description = "Returns per-statement counts, errors, database time and rows, ordered by total time, " +
+                     "connection wait per pool, and the query plan captured for statements slower than " +
+                     "todo.jdbc.slow-query-ms, flagged when it scans a whole table."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved")
+    })
+    @GetMapping("/jdbc")
+    public ResponseEntity<Map<String, Object>> getJdbcStatistics() {
+        log.info("GET /api/admin/jdbc - Fetching JDBC statement statistics");
+        return ResponseEntity.ok(jdbcInstrumentation.getStatistics());
+    }
+
+    @Operation(
+        summary = "Reset JDBC statement statistics",
+        description = "Drops all recorded statement and connection statistics, including captured plans."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Statistics reset")
+    })
+    @DeleteMapping("/jdbc")
+    public ResponseEntity<Void> resetJdbcStatistics() {
+        log.info("DELETE /api/admin/jdbc - Resetting JDBC statement statistics");
+        jdbcInstrumentation.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+        summary = "Get todo ID index statistics",
+        description = "Returns the state of the in-memory set of existing todo IDs, its size, and how many " +
+                     "lookups it answered as missing without querying the database."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved")
+    })
+    @GetMapping("/id-index")
+    public ResponseEntity<Map<String, Object>> getIdIndexStatistics() {
+        log.info("GET /api/admin/id-index - Fetching todo ID index statistics");
+        return ResponseEntity.ok(todoIdIndex.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get access capture state",
+        description = "Returns the capture file and how many requests were recorded, dropped because the writer " +
+                     "fell behind or the file reached todo.logging.access-capture.max-bytes, and bytes written."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "State retrieved")
+    })
+    @GetMapping("/access-capture")
+    public ResponseEntity<Map<String, Object>> getAccessCaptureStatistics() {
+        log.info("GET /api/admin/access-capture - Fetching access capture state");
+        return ResponseEntity.ok(accessCaptureFilter.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get request deadline counters",
+        description = "Returns how many requests had a deadline and how many of those sent it in a header, " +
+                     "arrived already expired, skipped work or had a running statement interrupted because the " +
+                     "deadline passed, and how many ended with 504."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Counters retrieved")
+    })
+    @GetMapping("/deadlines")
+    public ResponseEntity<Map<String, Object>> getDeadlineStatistics() {
+        log.info("GET /api/admin/deadlines - Fetching request deadline counters");
+        return ResponseEntity.ok(requestDeadlineFilter.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get read coalescing statistics",
+        description = "Returns how many list and statistics reads joined an identical query already running or " +
+                     "were served within todo.single-flight.ttl-ms, and how many database executions that saved."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Statistics retrieved")
+    })
+    @GetMapping("/single-flight")
+    public ResponseEntity<Map<String, Object>> getSingleFlightStatistics() {
+        log.info("GET /api/admin/single-flight - Fetching read coalescing statistics");
+        return ResponseEntity.ok(readCoalescer.getStatistics());
+    }
+
+    @Operation(
+        summary = "Get concurrency limiter state",
+        description = "Returns the adaptive concurrency limit, requests in flight, accepted and rejected counts, " +
+                     "database-busy drops, and the short- and long-term latency driving the limit, for reads and writes."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Limiter state retrieved")
+    })
+    @GetMapping("/concurrency")
+    public ResponseEntity<Map<String, Object>> getConcurrencyLimits() {
+        log.info("GET /api/admin/concurrency - Fetching concurrency limiter state");
+        return ResponseEntity.ok(concurrencyLimitFilter.getStatistics());
+    }
+
+    @Operation(
+        summary = "Archive old completed todos",
+        description = "Runs the archival job now: moves todos completed more than todo.archive.older-than-days ago " +
+                     "to the archive table in small batches, then returns freed pages to the file system."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Archival run finished",
+            content = @Content(schema = @Schema(implementation = ArchiveResult.class))),
+        @ApiResponse(responseCode = "409", description = "An archival run is already in progress"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/archive")
+    public ResponseEntity<ArchiveResult> archive() {
+        log.info("POST /api/admin/archive - Running archival");
+
+        if (archiveService.isRunning()) {
+            log.warn("POST /api/admin/archive - Rejected, an archival run is already in progress");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        ArchiveResult result = archiveService.archive();
+        log.info("POST /api/admin/archive - Archived {} todos in {}ms", result.getArchived(), result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Get archival state",
+        description = "Returns the size of the hot set and the archive, totals over all archival runs, the last run, " +
+                     "and the auto-vacuum mode and free space of each database file."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Archival state retrieved")
+    })
+    @GetMapping("/archive")
+    public ResponseEntity<Map<String, Object>> getArchiveStatistics() {
+        log.info("GET /api/admin/archive - Fetching archival state");
+        return ResponseEntity.ok(archiveService.getStatistics());
+    }
+}
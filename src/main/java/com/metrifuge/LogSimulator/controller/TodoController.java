@@ -1,8 +1,17 @@
 package com.metrifuge.LogSimulator.controller;
 
+import com.metrifuge.LogSimulator.config.LookupProperties;
+import com.metrifuge.LogSimulator.config.StartupWarmup;
+import com.metrifuge.LogSimulator.dto.BulkResult;
+import com.metrifuge.LogSimulator.dto.BulkUpdateRequest;
+import com.metrifuge.LogSimulator.dto.TodoFilter;
+import com.metrifuge.LogSimulator.dto.TodoLookupRequest;
+import com.metrifuge.LogSimulator.dto.TodoLookupResult;
 import com.metrifuge.LogSimulator.dto.TodoRequest;
 import com.metrifuge.LogSimulator.dto.TodoResponse;
 import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.service.TodoAnalytics;
+import com.metrifuge.LogSimulator.service.TodoChangeFeed;
 import com.metrifuge.LogSimulator.service.TodoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,12 +23,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/todos")
@@ -28,7 +41,18 @@ import java.util.Map;
 @Tag(name = "Todo Management", description = "APIs for managing todo items with comprehensive CRUD operations, filtering, and statistics")
 public class TodoController {
 
+    private static final String MISSING_IDS_HEADER = "X-Missing-Ids";
+    private static final String MISSING_COUNT_HEADER = "X-Missing-Count";
+    private static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
+    // Keeps the header well under Tomcat's 8KB response header limit; POST /lookup returns every missing ID
+    private static final int MAX_MISSING_IDS_IN_HEADER = 100;
+
     private final TodoService todoService;
+    private final TodoChangeFeed changeFeed;
+    private final TodoAnalytics analytics;
+    private final StartupWarmup startupWarmup;
+    private final LookupProperties lookupProperties;
 
     @Operation(
         summary = "Create a new todo",
@@ -53,7 +77,7 @@ public class TodoController {
 
         log.info("POST /api/todos - Todo created successfully with ID: {} in {}ms", response.getId(), duration);
 
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(response)).body(response);
     }
 
     @Operation(
@@ -69,25 +93,30 @@ public class TodoController {
     @GetMapping("/{id}")
     public ResponseEntity<TodoResponse> getTodoById(
             @Parameter(description = "ID of the todo to retrieve", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @Parameter(description = "Also look in the archive of old completed todos", example = "false")
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
         log.info("GET /api/todos/{} - Fetching todo", id);
 
         long startTime = System.currentTimeMillis();
-        TodoResponse response = todoService.getTodoById(id);
+        TodoResponse response = todoService.getTodoById(id, includeArchived);
         long duration = System.currentTimeMillis() - startTime;
 
         log.info("GET /api/todos/{} - Todo fetched successfully in {}ms", id, duration);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag(response)).body(response);
     }
 
     @Operation(
         summary = "Get all todos with optional filtering",
         description = "Retrieves all todos with optional filters for completion status, priority, category, or keyword search. " +
-                     "If no filters are provided, returns all todos. Only one filter can be applied at a time."
+                     "If no filters are provided, returns all todos. Only one filter can be applied at a time. " +
+                     "With afterId or limit, returns one page of todos in ID order instead, merged across shards; " +
+                     "X-Next-After-Id is set while there may be more."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Todos retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Page limit out of range, or too many IDs"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
@@ -99,29 +128,77 @@ public class TodoController {
             @Parameter(description = "Filter by category", example = "WORK")
             @RequestParam(required = false) Todo.Category category,
             @Parameter(description = "Search by keyword in title or description", example = "bug")
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @Parameter(description = "Include archived todos (completed more than todo.archive.older-than-days ago)",
+                    example = "false")
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @Parameter(description = "Fetch only these IDs, comma-separated, in this order; overrides the other " +
+                    "filters. The number of IDs without a todo is in X-Missing-Count and the first 100 of them in " +
+                    "X-Missing-Ids; POST /api/todos/lookup returns all of them", example = "1,2,3")
+            @RequestParam(required = false) List<Long> ids,
+            @Parameter(description = "Page through all todos in ID order, starting after this ID; overrides the " +
+                    "filters other than ids. Pass the X-Next-After-Id of the previous page to get the next one",
+                    example = "0")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Page size when paging, up to todo.lookup.max-page-size (the default)",
+                    example = "100")
+            @RequestParam(required = false) Integer limit) {
+
+        if (ids != null && !ids.isEmpty()) {
+            log.info("GET /api/todos - Fetching {} todos by ID (includeArchived: {})", ids.size(), includeArchived);
+
+            long startTime = System.currentTimeMillis();
+            TodoLookupResult result = todoService.lookupTodos(ids, includeArchived);
+            long duration = System.currentTimeMillis() - startTime;
+
+            log.info("GET /api/todos - Returned {} todos by ID, {} missing, in {}ms",
+                    result.getTodos().size(), result.getMissingIds().size(), duration);
+
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (!result.getMissingIds().isEmpty()) {
+                builder.header(MISSING_COUNT_HEADER, String.valueOf(result.getMissingIds().size()));
+                builder.header(MISSING_IDS_HEADER, result.getMissingIds().stream()
+                        .limit(MAX_MISSING_IDS_IN_HEADER)
+                        .map(String::valueOf).collect(Collectors.joining(",")));
+            }
+            return builder.body(result.getTodos());
+        }
 
-        log.info("GET /api/todos - Fetching todos with filters - completed: {}, priority: {}, category: {}, search: '{}'",
-                completed, priority, category, search);
+        if (afterId != null || limit != null) {
+            long startTime = System.currentTimeMillis();
+            int pageSize = limit != null ? limit : lookupProperties.getMaxPageSize();
+            List<TodoResponse> page = todoService.getTodoPage(afterId != null ? afterId : 0, pageSize, includeArchived);
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("GET /api/todos - Returned a page of {} todos after ID {} in {}ms", page.size(), afterId, duration);
+
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (page.size() == pageSize) {
+                builder.header(NEXT_AFTER_ID_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+            }
+            return builder.body(page);
+        }
+
+        log.info("GET /api/todos - Fetching todos with filters - completed: {}, priority: {}, category: {}, search: '{}', " +
+                "includeArchived: {}", completed, priority, category, search, includeArchived);
 
         long startTime = System.currentTimeMillis();
         List<TodoResponse> response;
 
         if (search != null && !search.isEmpty()) {
             log.debug("Performing search with keyword: '{}'", search);
-            response = todoService.searchTodos(search);
+            response = todoService.searchTodos(search, includeArchived);
         } else if (completed != null) {
             log.debug("Filtering by completed status: {}", completed);
-            response = todoService.getTodosByCompleted(completed);
+            response = todoService.getTodosByCompleted(completed, includeArchived);
         } else if (priority != null) {
             log.debug("Filtering by priority: {}", priority);
-            response = todoService.getTodosByPriority(priority);
+            response = todoService.getTodosByPriority(priority, includeArchived);
         } else if (category != null) {
             log.debug("Filtering by category: {}", category);
-            response = todoService.getTodosByCategory(category);
+            response = todoService.getTodosByCategory(category, includeArchived);
         } else {
             log.debug("Fetching all todos without filters");
-            response = todoService.getAllTodos();
+            response = todoService.getAllTodos(includeArchived);
         }
 
         long duration = System.currentTimeMillis() - startTime;
@@ -130,15 +207,121 @@ public class TodoController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "Fetch todos by ID",
+        description = "Fetches up to todo.lookup.max-ids todos in one call, in the order their IDs are given. " +
+                     "IDs without a todo are returned in missingIds instead of failing the call."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lookup completed",
+            content = @Content(schema = @Schema(implementation = TodoLookupResult.class))),
+        @ApiResponse(responseCode = "400", description = "No IDs, or more than todo.lookup.max-ids"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/lookup")
+    public ResponseEntity<TodoLookupResult> lookupTodos(
+            @Parameter(description = "IDs to fetch", required = true)
+            @Valid @RequestBody TodoLookupRequest request) {
+        log.info("POST /api/todos/lookup - Fetching {} todos by ID", request.getIds().size());
+
+        long startTime = System.currentTimeMillis();
+        TodoLookupResult result = todoService.lookupTodos(request.getIds(),
+                Boolean.TRUE.equals(request.getIncludeArchived()));
+        long duration = System.currentTimeMillis() - startTime;
+
+        log.info("POST /api/todos/lookup - Returned {} todos, {} missing, in {}ms",
+                result.getTodos().size(), result.getMissingIds().size(), duration);
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Complete all matching todos",
+        description = "Marks every open todo matching the filter as complete in chunked set-based statements, " +
+                     "one transaction per shard, and returns how many were completed. Archived todos are not touched."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Matching todos completed",
+            content = @Content(schema = @Schema(implementation = BulkResult.class))),
+        @ApiResponse(responseCode = "400", description = "Empty filter, completed=true, or more than todo.bulk.max-ids IDs"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/bulk-complete")
+    public ResponseEntity<BulkResult> bulkComplete(
+            @Parameter(description = "Todos to complete", required = true)
+            @RequestBody TodoFilter filter) {
+        log.info("POST /api/todos/bulk-complete - Completing todos matching {}", filter);
+
+        BulkResult result = todoService.bulkComplete(filter);
+
+        log.info("POST /api/todos/bulk-complete - Completed {} todos in {}ms", result.getAffected(),
+                result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Update all matching todos",
+        description = "Sets the given fields on every todo matching the filter in chunked set-based statements, " +
+                     "one transaction per shard, and returns how many were changed. Fields left out keep their value."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Matching todos updated",
+            content = @Content(schema = @Schema(implementation = BulkResult.class))),
+        @ApiResponse(responseCode = "400", description = "Empty filter, no fields to change, or more than todo.bulk.max-ids IDs"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/bulk-update")
+    public ResponseEntity<BulkResult> bulkUpdate(
+            @Parameter(description = "Filter and fields to set", required = true)
+            @Valid @RequestBody BulkUpdateRequest request) {
+        log.info("POST /api/todos/bulk-update - Updating todos matching {}", request.getFilter());
+
+        BulkResult result = todoService.bulkUpdate(request);
+
+        log.info("POST /api/todos/bulk-update - Updated {} todos in {}ms", result.getAffected(),
+                result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+        summary = "Delete all matching todos",
+        description = "Deletes every todo matching the filter in chunked set-based statements, one transaction " +
+                     "per shard, and returns how many were deleted. Archived todos are not touched."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Matching todos deleted",
+            content = @Content(schema = @Schema(implementation = BulkResult.class))),
+        @ApiResponse(responseCode = "400", description = "Empty filter, or more than todo.bulk.max-ids IDs"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkResult> bulkDelete(
+            @Parameter(description = "Todos to delete", required = true)
+            @RequestBody TodoFilter filter) {
+        log.info("POST /api/todos/bulk-delete - Deleting todos matching {}", filter);
+
+        BulkResult result = todoService.bulkDelete(filter);
+
+        log.info("POST /api/todos/bulk-delete - Deleted {} todos in {}ms", result.getAffected(),
+                result.getDurationMs());
+
+        return ResponseEntity.ok(result);
+    }
+
     @Operation(
         summary = "Update a todo",
-        description = "Updates an existing todo with the provided details. All fields are updated, including completion status."
+        description = "Updates an existing todo with the provided details. All fields are updated, including completion status. " +
+                     "Send the ETag of the version being edited as If-Match to reject the update with 412 " +
+                     "if the todo was modified in the meantime."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Todo updated successfully",
             content = @Content(schema = @Schema(implementation = TodoResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
         @ApiResponse(responseCode = "404", description = "Todo not found"),
+        @ApiResponse(responseCode = "412", description = "Todo is no longer at the version given in If-Match"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PutMapping("/{id}")
@@ -146,18 +329,20 @@ public class TodoController {
             @Parameter(description = "ID of the todo to update", required = true, example = "1")
             @PathVariable Long id,
             @Parameter(description = "Updated todo details", required = true)
-            @Valid @RequestBody TodoRequest request) {
+            @Valid @RequestBody TodoRequest request,
+            @Parameter(description = "ETag of the version being updated, or * for any version", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        log.info("PUT /api/todos/{} - Updating todo", id);
+        log.info("PUT /api/todos/{} - Updating todo{}", id, ifMatch != null ? " (If-Match: " + ifMatch + ")" : "");
         log.debug("Update request body: {}", request);
 
         long startTime = System.currentTimeMillis();
-        TodoResponse response = todoService.updateTodo(id, request);
+        TodoResponse response = todoService.updateTodo(id, request, expectedVersion(ifMatch));
         long duration = System.currentTimeMillis() - startTime;
 
         log.info("PUT /api/todos/{} - Todo updated successfully in {}ms", id, duration);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag(response)).body(response);
     }
 
     @Operation(
@@ -206,42 +391,77 @@ public class TodoController {
         return ResponseEntity.ok(stats);
     }
 
+    @Operation(
+        summary = "Get todo throughput analytics",
+        description = "Created, completed and deleted todos over the last minute (per second), hour (per minute) " +
+                     "and day (per hour), by priority and category, with completion latency quantiles. Served from " +
+                     "in-memory rolling windows, so the cost does not depend on the number of todos."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Analytics retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/analytics")
+    public ResponseEntity<Map<String, Object>> getAnalytics() {
+        log.info("GET /api/todos/analytics - Fetching analytics");
+
+        long startTime = System.currentTimeMillis();
+        Map<String, Object> analyticsResult = analytics.getAnalytics();
+        long duration = System.currentTimeMillis() - startTime;
+
+        log.info("GET /api/todos/analytics - Analytics calculated in {}ms", duration);
+
+        return ResponseEntity.ok(analyticsResult);
+    }
+
     @Operation(
         summary = "Mark todo as complete",
-        description = "Marks a todo item as completed and sets the completion timestamp"
+        description = "Marks a todo item as completed and sets the completion timestamp, leaving its other fields " +
+                     "as they are. Send the ETag of the version being completed as If-Match to reject the change " +
+                     "with 412 if the todo was modified in the meantime."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Todo marked as complete",
             content = @Content(schema = @Schema(implementation = TodoResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Malformed or weak If-Match header"),
         @ApiResponse(responseCode = "404", description = "Todo not found"),
+        @ApiResponse(responseCode = "412", description = "Todo is no longer at the version given in If-Match"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PatchMapping("/{id}/complete")
     public ResponseEntity<TodoResponse> completeTodo(
             @Parameter(description = "ID of the todo to mark as complete", required = true, example = "1")
-            @PathVariable Long id) {
-        log.info("PATCH /api/todos/{}/complete - Marking todo as complete", id);
+            @PathVariable Long id,
+            @Parameter(description = "ETag of the version being completed, or * for any version", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("PATCH /api/todos/{}/complete - Marking todo as complete{}", id,
+                ifMatch != null ? " (If-Match: " + ifMatch + ")" : "");
 
         long startTime = System.currentTimeMillis();
-        TodoResponse todo = todoService.getTodoById(id);
-
-        TodoRequest updateRequest = new TodoRequest();
-        updateRequest.setTitle(todo.getTitle());
-        updateRequest.setDescription(todo.getDescription());
-        updateRequest.setCompleted(true);
-        updateRequest.setPriority(todo.getPriority());
-        updateRequest.setCategory(todo.getCategory());
-        updateRequest.setDueDate(todo.getDueDate());
-        updateRequest.setAssignedTo(todo.getAssignedTo());
-        updateRequest.setTags(todo.getTags());
-        updateRequest.setEstimatedHours(todo.getEstimatedHours());
-
-        TodoResponse response = todoService.updateTodo(id, updateRequest);
+        TodoResponse response = todoService.completeTodo(id, expectedVersion(ifMatch));
         long duration = System.currentTimeMillis() - startTime;
 
         log.info("PATCH /api/todos/{}/complete - Todo marked as complete in {}ms", id, duration);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag(response)).body(response);
+    }
+
+    @Operation(
+        summary = "Stream todo changes",
+        description = "Server-Sent Events feed of create, update, complete and delete events, and one bulk_* event " +
+                     "per bulk operation. " +
+                     "Send Last-Event-ID to resume after a reconnect; a 'resync' event means the requested " +
+                     "position is not buffered or the dataset was replaced, and the client should reload the list."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Sequence number of the last event received", example = "1024")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("GET /api/todos/stream - Opening change feed (Last-Event-ID: {})", lastEventId);
+        return changeFeed.subscribe(lastEventId);
     }
 
     @Operation(
@@ -263,4 +483,50 @@ public class TodoController {
 
         return ResponseEntity.ok(health);
     }
+
+    @Operation(
+        summary = "Readiness check",
+        description = "Returns 200 once the dataset is loaded and, when todo.warmup.enabled is set, the JIT " +
+                     "warm-up has reached steady-state latency; 503 until then. Intended as the readiness probe."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ready for traffic"),
+        @ApiResponse(responseCode = "503", description = "Still starting or warming up")
+    })
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        log.debug("GET /api/todos/ready - Readiness check");
+
+        Map<String, Object> status = startupWarmup.getStatus();
+        HttpStatus httpStatus = startupWarmup.getState() == StartupWarmup.State.READY
+                ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(httpStatus).body(status);
+    }
+
+    private static String etag(TodoResponse todo) {
+        return Long.toString(todo.getVersion());
+    }
+
+    /**
+     * The version named by an If-Match header, or null when the header is absent or {@code *}, in which case
+     * the update is unconditional. Only a single entity tag is supported, and it must be strong: If-Match uses
+     * strong comparison, which a weak tag never passes.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new IllegalArgumentException("If-Match needs a strong ETag, weak tags never match: " + ifMatch);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a single todo ETag or *: " + ifMatch);
+        }
+    }
 }
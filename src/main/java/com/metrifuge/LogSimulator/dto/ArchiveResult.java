@@ -0,0 +1,39 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of an archival run")
+public class ArchiveResult {
+
+    @Schema(description = "Todos completed before this time were archived", example = "2024-01-01T10:00:00")
+    private LocalDateTime cutoff;
+
+    @Schema(description = "Todos moved from the hot table to the archive", example = "25000")
+    private long archived;
+
+    @Schema(description = "Transactions used to move them", example = "50")
+    private int batches;
+
+    @Schema(description = "True if the per-run batch limit was hit and archivable todos remain", example = "false")
+    private boolean truncated;
+
+    @Schema(description = "Bytes returned to the file system by incremental vacuum", example = "4096000")
+    private long reclaimedBytes;
+
+    @Schema(description = "Todos left in the hot table", example = "975000")
+    private long hotRows;
+
+    @Schema(description = "Todos in the archive", example = "25000")
+    private long archivedRows;
+
+    @Schema(description = "Wall-clock duration in milliseconds", example = "1800")
+    private long durationMs;
+}
@@ -0,0 +1,28 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a bulk complete, update or delete")
+public class BulkResult {
+
+    @Schema(description = "Operation that ran", example = "complete")
+    private String operation;
+
+    @Schema(description = "Todos changed or deleted", example = "1250")
+    private int affected;
+
+    @Schema(description = "Todos completed by this operation that were open before", example = "1250")
+    private int completed;
+
+    @Schema(description = "Chunked statements executed across all shards", example = "3")
+    private int statements;
+
+    @Schema(description = "Time taken in milliseconds", example = "42")
+    private long durationMs;
+}
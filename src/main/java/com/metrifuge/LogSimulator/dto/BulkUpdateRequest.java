@@ -0,0 +1,47 @@
+package com.metrifuge.LogSimulator.dto;
+
+import com.metrifuge.LogSimulator.model.Todo;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Fields to set on every todo matching the filter. Fields left out keep their value; " +
+        "at least one is required")
+public class BulkUpdateRequest {
+
+    @NotNull(message = "Filter is required")
+    @Schema(description = "Todos to update", required = true)
+    private TodoFilter filter;
+
+    @Schema(description = "Completion status. Completing sets completedAt on todos that were open, reopening clears it",
+            example = "true")
+    private Boolean completed;
+
+    @Schema(description = "Priority level", example = "HIGH", allowableValues = {"LOW", "MEDIUM", "HIGH", "URGENT"})
+    private Todo.Priority priority;
+
+    @Schema(description = "Category", example = "WORK", allowableValues = {"GENERAL", "WORK", "PERSONAL", "SHOPPING", "HEALTH", "EDUCATION", "FINANCE", "OTHER"})
+    private Todo.Category category;
+
+    @Schema(description = "Due date and time", example = "2025-12-31T23:59:59")
+    private LocalDateTime dueDate;
+
+    @Size(max = 100, message = "AssignedTo must be less than 100 characters")
+    @Schema(description = "Email of the person assigned to these todos", example = "alice@example.com")
+    private String assignedTo;
+
+    @Size(max = 50, message = "Tags must be less than 50 characters")
+    @Schema(description = "Comma-separated tags", example = "sprint-12")
+    private String tags;
+
+    @Schema(description = "Estimated hours to complete", example = "2", minimum = "0")
+    private Integer estimatedHours;
+}
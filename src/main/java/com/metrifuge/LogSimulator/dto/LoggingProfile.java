@@ -0,0 +1,24 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Schema(description = "Logging volume and overhead since the profiler was last reset")
+public class LoggingProfile {
+
+    @Schema(description = "Start of the profiling window", example = "2025-12-07T15:45:00")
+    private LocalDateTime since;
+
+    @Schema(description = "Totals across all call sites")
+    private LoggingProfileEntry total;
+
+    @Schema(description = "Per-endpoint totals, most expensive first")
+    private List<LoggingProfileEntry> endpoints;
+
+    @Schema(description = "Per-call-site totals, most expensive first")
+    private List<LoggingProfileEntry> callSites;
+}
@@ -0,0 +1,49 @@
+package com.metrifuge.LogSimulator.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Logging cost attributed to one call site or endpoint")
+public class LoggingProfileEntry {
+
+    @Schema(description = "Logger name; absent for endpoint entries", example = "com.metrifuge.LogSimulator.service.TodoService")
+    private String logger;
+
+    @Schema(description = "Message format string identifying the call site; absent for endpoint entries",
+            example = "Todo IDs: {}")
+    private String format;
+
+    @Schema(description = "Handler pattern of the request that logged; '-' outside requests",
+            example = "GET /api/todos")
+    private String endpoint;
+
+    @Schema(description = "Logging calls made, whether written or not", example = "1200")
+    private long calls;
+
+    @Schema(description = "Events that reached the appenders", example = "300")
+    private long emitted;
+
+    @Schema(description = "Calls dropped by level checks or sampling", example = "900")
+    private long suppressed;
+
+    @Schema(description = "Suppressed calls that still passed arguments, which were evaluated for nothing",
+            example = "900")
+    private long suppressedWithArguments;
+
+    @Schema(description = "Argument types seen at the call site", example = "[\"ArrayList\"]")
+    private List<String> argumentTypes;
+
+    @Schema(description = "Encoded bytes written across all appenders", example = "48000")
+    private long bytes;
+
+    @Schema(description = "Time spent formatting events into bytes, in microseconds", example = "350")
+    private long formatMicros;
+
+    @Schema(description = "Time spent in appenders excluding formatting, in microseconds", example = "1200")
+    private long appendMicros;
+}
@@ -0,0 +1,25 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a synthetic dataset load")
+public class SeedResult {
+
+    @Schema(description = "Number of rows inserted", example = "1000000")
+    private long rows;
+
+    @Schema(description = "Random seed used to generate the rows", example = "42")
+    private long randomSeed;
+
+    @Schema(description = "Wall-clock duration of the load in milliseconds", example = "48000")
+    private long durationMs;
+
+    @Schema(description = "Sustained insert rate", example = "20833.3")
+    private double rowsPerSecond;
+}
@@ -0,0 +1,31 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a dataset snapshot or restore")
+public class SnapshotResult {
+
+    @Schema(description = "Snapshot file", example = "snapshots/todos-20251207-153000.mfs")
+    private String file;
+
+    @Schema(description = "Number of todos written or restored", example = "1000000")
+    private long rows;
+
+    @Schema(description = "Number of column blocks in the file", example = "16")
+    private int blocks;
+
+    @Schema(description = "Size of the snapshot file in bytes", example = "123456789")
+    private long bytes;
+
+    @Schema(description = "Wall-clock duration in milliseconds", example = "2500")
+    private long durationMs;
+
+    @Schema(description = "Sustained rate", example = "400000.0")
+    private double rowsPerSecond;
+}
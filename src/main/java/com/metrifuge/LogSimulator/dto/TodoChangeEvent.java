@@ -0,0 +1,39 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Change to a todo item published on the change feed")
+public class TodoChangeEvent {
+
+    @Schema(description = "Monotonic sequence number, also used as the SSE event id", example = "1024")
+    private long sequence;
+
+    @Schema(description = "Kind of change", example = "CREATED")
+    private Type type;
+
+    @Schema(description = "ID of the changed todo; absent for bulk operations", example = "1")
+    private Long todoId;
+
+    @Schema(description = "Time the change was published", example = "2025-12-07T15:45:00")
+    private LocalDateTime timestamp;
+
+    @Schema(description = "State of the todo after the change; absent for deletions")
+    private TodoResponse todo;
+
+    @Schema(description = "Number of todos a bulk operation changed; absent for single changes", example = "500")
+    private Integer affected;
+
+    public enum Type {
+        CREATED, UPDATED, COMPLETED, DELETED, BULK_UPDATED, BULK_COMPLETED, BULK_DELETED,
+        /** The events do not describe the current dataset; the subscriber should reload the list. */
+        RESYNC
+    }
+}
@@ -0,0 +1,44 @@
+package com.metrifuge.LogSimulator.dto;
+
+import com.metrifuge.LogSimulator.model.Todo;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Selects the todos a bulk operation applies to. Criteria that are set must all match; " +
+        "at least one is required")
+public class TodoFilter {
+
+    @Schema(description = "Completion status", example = "false")
+    private Boolean completed;
+
+    @Schema(description = "Priority level", example = "LOW", allowableValues = {"LOW", "MEDIUM", "HIGH", "URGENT"})
+    private Todo.Priority priority;
+
+    @Schema(description = "Category", example = "WORK", allowableValues = {"GENERAL", "WORK", "PERSONAL", "SHOPPING", "HEALTH", "EDUCATION", "FINANCE", "OTHER"})
+    private Todo.Category category;
+
+    @Schema(description = "Email of the person the todos are assigned to", example = "alice@example.com")
+    private String assignedTo;
+
+    @Schema(description = "Due on or after this time", example = "2025-01-01T00:00:00")
+    private LocalDateTime dueFrom;
+
+    @Schema(description = "Due before this time", example = "2025-02-01T00:00:00")
+    private LocalDateTime dueBefore;
+
+    @Schema(description = "Only these IDs, up to todo.bulk.max-ids", example = "[1, 2, 3]")
+    private List<Long> ids;
+
+    public boolean isEmpty() {
+        return completed == null && priority == null && category == null && assignedTo == null
+                && dueFrom == null && dueBefore == null && ids == null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "IDs of the todos to fetch in one call")
+public class TodoLookupRequest {
+
+    @NotEmpty(message = "At least one ID is required")
+    @Schema(description = "Todo IDs, up to todo.lookup.max-ids", example = "[1, 2, 3]", required = true)
+    private List<Long> ids;
+
+    @Schema(description = "Also look in the archive of old completed todos", example = "false", defaultValue = "false")
+    private Boolean includeArchived;
+}
@@ -0,0 +1,21 @@
+package com.metrifuge.LogSimulator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a batch lookup by ID")
+public class TodoLookupResult {
+
+    @Schema(description = "Todos found, in the order their IDs were requested; repeated IDs appear once")
+    private List<TodoResponse> todos;
+
+    @Schema(description = "Requested IDs with no todo, in request order", example = "[3]")
+    private List<Long> missingIds;
+}
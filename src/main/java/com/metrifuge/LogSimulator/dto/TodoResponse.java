@@ -52,6 +52,9 @@ public class TodoResponse {
     @Schema(description = "Estimated hours to complete", example = "8")
     private Integer estimatedHours;
 
+    @Schema(description = "Version of the todo, incremented on every update and returned as the ETag", example = "3")
+    private Long version;
+
     public static TodoResponse fromEntity(Todo todo) {
         TodoResponse response = new TodoResponse();
         response.setId(todo.getId());
@@ -67,6 +70,7 @@ public class TodoResponse {
         response.setAssignedTo(todo.getAssignedTo());
         response.setTags(todo.getTags());
         response.setEstimatedHours(todo.getEstimatedHours());
+        response.setVersion(todo.getVersion());
         return response;
     }
 }
@@ -0,0 +1,23 @@
+package com.metrifuge.LogSimulator.exception;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * The request's deadline passed, either before a statement was started or while one was running. Thrown
+ * in bulk when the application is overloaded, so it skips the stack trace.
+ */
+public class DeadlineExceededException extends QueryTimeoutException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
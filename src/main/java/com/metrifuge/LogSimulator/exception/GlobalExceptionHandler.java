@@ -1,6 +1,11 @@
 package com.metrifuge.LogSimulator.exception;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -8,6 +13,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,10 +22,18 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final int retryAfterSeconds;
+
+    public GlobalExceptionHandler(@Value("${todo.concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
     @ExceptionHandler(TodoNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleTodoNotFoundException(TodoNotFoundException ex) {
-        log.error("TodoNotFoundException occurred: {}", ex.getMessage());
-        log.debug("Stack trace: ", ex);
+        log.debug("Todo not found: {}", ex.getMessage());
 
         ErrorResponse error = new ErrorResponse(
             HttpStatus.NOT_FOUND.value(),
@@ -30,6 +44,41 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        log.warn("Precondition failed: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.PRECONDITION_FAILED.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+
+        // The current ETag lets the client re-read and retry without a separate GET for the version
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(Long.toString(ex.getCurrentVersion()))
+                .body(error);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceededException(DeadlineExceededException ex,
+                                                                         HttpServletResponse response) {
+        log.info("Deadline exceeded: {}", ex.getMessage());
+        if (response.isCommitted()) {
+            // Part of a 200 body is already out; failing the request makes the container abort the connection,
+            // so the client sees an error instead of a truncated response
+            throw ex;
+        }
+
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.GATEWAY_TIMEOUT.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         log.error("Validation error occurred: {}", ex.getMessage());
@@ -50,6 +99,38 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
+        log.warn("Invalid request: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(DataAccessException.class)
+    public ResponseEntity<ErrorResponse> handleDataAccessException(DataAccessException ex) {
+        if (!isLockContention(ex)) {
+            return handleGlobalException(ex);
+        }
+        // Expected under write saturation; the stack trace adds nothing but log volume
+        log.warn("Database busy, shedding request: {}", ex.getMostSpecificCause().getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Database is busy, retry later",
+            LocalDateTime.now()
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds))
+                .body(error);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex) {
         log.error("Unexpected error occurred: {}", ex.getMessage(), ex);
@@ -63,5 +144,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    private static boolean isLockContention(DataAccessException ex) {
+        if (ex instanceof PessimisticLockingFailureException) {
+            return true;
+        }
+        if (ex.getMostSpecificCause() instanceof SQLException sql) {
+            int primaryCode = sql.getErrorCode() & 0xFF;
+            return primaryCode == SQLITE_BUSY || primaryCode == SQLITE_LOCKED;
+        }
+        return false;
+    }
+
     public record ErrorResponse(int status, String message, LocalDateTime timestamp) {}
 }
@@ -0,0 +1,14 @@
+package com.metrifuge.LogSimulator.exception;
+
+import lombok.Getter;
+
+@Getter
+public class PreconditionFailedException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public PreconditionFailedException(Long id, long expectedVersion, long currentVersion) {
+        super("Todo " + id + " is at version " + currentVersion + ", not the expected version " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+}
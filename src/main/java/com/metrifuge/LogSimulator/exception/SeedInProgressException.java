@@ -0,0 +1,10 @@
+package com.metrifuge.LogSimulator.exception;
+
+/**
+ * Thrown when a dataset seed is requested while another one is still running.
+ */
+public class SeedInProgressException extends IllegalStateException {
+    public SeedInProgressException() {
+        super("A dataset seed is already running");
+    }
+}
@@ -1,7 +1,10 @@
 package com.metrifuge.LogSimulator.exception;
 
+/**
+ * Thrown for every lookup of a missing ID, which is routine under load, so it skips the stack trace.
+ */
 public class TodoNotFoundException extends RuntimeException {
     public TodoNotFoundException(Long id) {
-        super("Todo not found with id: " + id);
+        super("Todo not found with id: " + id, null, false, false);
     }
 }
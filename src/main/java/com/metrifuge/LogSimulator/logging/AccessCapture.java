@@ -0,0 +1,299 @@
+package com.metrifuge.LogSimulator.logging;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compact binary capture of incoming requests, written for replay by {@code TrafficReplayer}.
+ *
+ * Request threads hand {@link Entry entries} to a bounded queue and never block; a single writer thread
+ * encodes them into {@code access-<timestamp>.bin} under the capture directory. When the queue is full or the
+ * file has reached {@code maxBytes} (at most 2GB), entries are dropped and counted.
+ *
+ * A file starts with the magic {@code TCAP}, a format version and the capture start in epoch millis. Each
+ * entry is written as varints and length-prefixed UTF-8: arrival in micros relative to the previous entry
+ * (zigzag, since entries are written in completion order), duration in micros, status, method, path, query,
+ * the replay-relevant headers, then either the body, a 64-bit hash and length of the body, or nothing.
+ * A truncated last entry, left by a crash, is ignored on read.
+ */
+@Slf4j
+public class AccessCapture {
+
+    public static final String[] HEADERS = {"Content-Type", "If-Match", "If-None-Match"};
+
+    private static final int MAGIC = 0x54434150;
+    private static final int FORMAT_VERSION = 1;
+    private static final String[] METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS"};
+    private static final int BODY_NONE = 0;
+    private static final int BODY_BYTES = 1;
+    private static final int BODY_HASH = 2;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * One captured request. Arrival is in epoch micros. With a hashed body, {@code body} is null and
+     * {@code bodyLength}/{@code bodyHash} describe what was sent.
+     */
+    public record Entry(long arrivalMicros, long durationMicros, int status, String method, String path,
+                        String query, Map<String, String> headers, byte[] body, int bodyLength, long bodyHash) {
+    }
+
+    private final Path file;
+    private final long maxBytes;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long bytesWritten;
+    private volatile boolean full;
+    private volatile boolean running = true;
+
+    public AccessCapture(Path directory, int queueCapacity, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve("access-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".bin");
+        this.maxBytes = maxBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        this.writer = new Thread(() -> drain(out), "access-capture");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public void record(Entry entry) {
+        if (full || !queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    /** Writes what is queued and closes the file. */
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("file", file.toString());
+        statistics.put("recorded", recorded.sum());
+        statistics.put("dropped", dropped.sum());
+        statistics.put("queued", queue.size());
+        statistics.put("bytesWritten", bytesWritten);
+        statistics.put("full", full);
+        return statistics;
+    }
+
+    public static long hash(byte[] bytes, int length) {
+        // FNV-1a; enough to tell bodies apart, not meant to resist collisions
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void drain(OutputStream stream) {
+        long previousArrival = System.currentTimeMillis() * 1000;
+        try (DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(previousArrival / 1000);
+            while (running || !queue.isEmpty()) {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry == null) {
+                    out.flush();
+                    bytesWritten = out.size();
+                    continue;
+                }
+                write(out, entry, previousArrival);
+                previousArrival = entry.arrivalMicros();
+                recorded.increment();
+                bytesWritten = out.size();
+                if (bytesWritten >= maxBytes) {
+                    full = true;
+                }
+            }
+        } catch (IOException e) {
+            full = true;
+            log.warn("Access capture stopped writing {}: {}", file, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void write(DataOutputStream out, Entry entry, long previousArrival) throws IOException {
+        writeVarLong(out, zigzag(entry.arrivalMicros() - previousArrival));
+        writeVarLong(out, entry.durationMicros());
+        writeVarLong(out, entry.status());
+
+        int method = List.of(METHODS).indexOf(entry.method());
+        out.writeByte(method + 1);
+        if (method < 0) {
+            writeString(out, entry.method());
+        }
+        writeString(out, entry.path());
+        writeString(out, entry.query());
+
+        Map<String, String> headers = entry.headers();
+        writeVarLong(out, headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
+        }
+
+        if (entry.body() != null) {
+            out.writeByte(BODY_BYTES);
+            writeVarLong(out, entry.body().length);
+            out.write(entry.body());
+        } else if (entry.bodyLength() > 0) {
+            out.writeByte(BODY_HASH);
+            writeVarLong(out, entry.bodyLength());
+            out.writeLong(entry.bodyHash());
+        } else {
+            out.writeByte(BODY_NONE);
+        }
+    }
+
+    /** Reads every complete entry of a capture file, ordered by arrival. */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an access capture");
+            }
+            int version = in.readShort();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported access capture version " + version + " in " + file);
+            }
+            long arrival = in.readLong() * 1000;
+            while (true) {
+                try {
+                    Entry entry = readEntry(in, arrival);
+                    arrival = entry.arrivalMicros();
+                    entries.add(entry);
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry::arrivalMicros));
+        return entries;
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMicros) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMicros / 1000), ZoneId.systemDefault());
+    }
+
+    private static Entry readEntry(DataInputStream in, long previousArrival) throws IOException {
+        long arrival = previousArrival + unzigzag(readVarLong(in));
+        long duration = readVarLong(in);
+        int status = (int) readVarLong(in);
+
+        int method = in.readUnsignedByte() - 1;
+        String methodName = method >= 0 ? METHODS[method] : readString(in);
+        String path = readString(in);
+        String query = readString(in);
+
+        int headerCount = (int) readVarLong(in);
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(in), readString(in));
+        }
+
+        byte[] body = null;
+        int bodyLength = 0;
+        long bodyHash = 0;
+        switch (in.readUnsignedByte()) {
+            case BODY_BYTES -> {
+                body = new byte[(int) readVarLong(in)];
+                in.readFully(body);
+                bodyLength = body.length;
+            }
+            case BODY_HASH -> {
+                bodyLength = (int) readVarLong(in);
+                bodyHash = in.readLong();
+            }
+            case BODY_NONE -> {
+            }
+            default -> throw new IOException("Corrupt access capture entry");
+        }
+        return new Entry(arrival, duration, status, methodName, path, query, headers, body, bodyLength, bodyHash);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint in access capture");
+    }
+
+    // Length + 1 so that 0 can stand for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,247 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.metrifuge.LogSimulator.config.LogSamplingProperties;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Head-based log sampling keyed on the request ID.
+ *
+ * Inside a request, below-INFO events from the configured loggers are written only if the request was
+ * sampled; sampled requests log at the configured logger levels, unsampled ones at INFO. The sample rate
+ * is re-evaluated every {@code adjustIntervalMs} so that sampled requests stay within the lines/sec budget.
+ * A request that logs at {@code forceLevel}, fails or turns out slow is force-sampled from that point on.
+ * With {@code replayBufferSize} above 0, unsampled requests also keep the format and arguments of their
+ * suppressed events and replay them when forced, so the full story of the request is still on disk.
+ * The decision is exposed as the {@code sample} MDC key, which {@link MdcTaskDecorator} carries to the
+ * threads a request hands work to; those follow it but do not buffer.
+ */
+public class AdaptiveSamplingFilter extends TurboFilter {
+
+    public static final String MDC_KEY = "sample";
+
+    private static final String FQCN = Logger.class.getName();
+    private static final double SMOOTHING = 0.5;
+
+    private final ThreadLocal<RequestSampling> current = new ThreadLocal<>();
+
+    private final String[] loggers;
+    private final Level forceLevel;
+    private final long budgetLinesPerSecond;
+    private final double minRate;
+    private final double maxRate;
+    private final long adjustIntervalNanos;
+    private final long slowRequestMs;
+    private final int replayBufferSize;
+
+    private volatile double rate;
+    private volatile double lastLinesPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder verboseLines = new LongAdder();
+    private final LongAdder sampledRequests = new LongAdder();
+    private final LongAdder unsampledRequests = new LongAdder();
+    private final LongAdder forcedRequests = new LongAdder();
+    private final LongAdder replayedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    public AdaptiveSamplingFilter(LogSamplingProperties properties) {
+        this.loggers = properties.getLoggers().toArray(new String[0]);
+        this.forceLevel = Level.toLevel(properties.getForceLevel(), Level.WARN);
+        this.budgetLinesPerSecond = properties.getBudgetLinesPerSecond();
+        this.minRate = properties.getMinRate();
+        this.maxRate = properties.getMaxRate();
+        this.adjustIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAdjustIntervalMs());
+        this.slowRequestMs = properties.getSlowRequestMs();
+        this.replayBufferSize = properties.getReplayBufferSize();
+        this.rate = Math.max(minRate, Math.min(maxRate, properties.getInitialRate()));
+        setName("adaptive-sampling");
+    }
+
+    public void begin(String requestId) {
+        if (!isStarted()) {
+            return;
+        }
+        maybeAdjust();
+        boolean sampled = isSampled(requestId);
+        current.set(new RequestSampling(sampled));
+        (sampled ? sampledRequests : unsampledRequests).increment();
+        MDC.put(MDC_KEY, sampled ? "sampled" : "unsampled");
+    }
+
+    /**
+     * Applies the completion-time force rules; call before the request's final log line so that
+     * replayed events precede it.
+     */
+    public void complete(long durationMs, int status, Exception ex) {
+        RequestSampling sampling = current.get();
+        if (sampling != null && !sampling.sampled
+                && (ex != null || status >= 500 || durationMs >= slowRequestMs)) {
+            force(sampling);
+        }
+    }
+
+    public void end() {
+        current.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        RequestSampling sampling = current.get();
+        if (sampling == null) {
+            return decideForWorker(logger, level, format);
+        }
+        if (level.isGreaterOrEqual(forceLevel)) {
+            if (format != null && !sampling.sampled) {
+                force(sampling);
+            }
+            return FilterReply.NEUTRAL;
+        }
+        if (!isVerbose(logger, level)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (sampling.sampled) {
+            if (format != null) {
+                verboseLines.increment();
+            }
+            return FilterReply.NEUTRAL;
+        }
+        if (replayBufferSize > 0) {
+            if (format == null) {
+                // isDebugEnabled() and friends: let guarded statements run so they reach the buffer
+                return FilterReply.NEUTRAL;
+            }
+            sampling.hold(new HeldEvent(logger, level, format, params, t, System.currentTimeMillis()));
+        }
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Threads running work for a request, such as shard queries, only see the decision through the MDC.
+     * Threads outside any request have no decision and log at their configured levels.
+     */
+    private FilterReply decideForWorker(Logger logger, Level level, String format) {
+        if (!isVerbose(logger, level)) {
+            return FilterReply.NEUTRAL;
+        }
+        String decision = MDC.get(MDC_KEY);
+        if (decision == null) {
+            return FilterReply.NEUTRAL;
+        }
+        if (decision.equals("unsampled")) {
+            return FilterReply.DENY;
+        }
+        if (format != null) {
+            verboseLines.increment();
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isStarted());
+        statistics.put("sampleRate", rate);
+        statistics.put("budgetLinesPerSecond", budgetLinesPerSecond);
+        statistics.put("lastLinesPerSecond", lastLinesPerSecond);
+        statistics.put("sampledRequests", sampledRequests.sum());
+        statistics.put("unsampledRequests", unsampledRequests.sum());
+        statistics.put("forcedRequests", forcedRequests.sum());
+        statistics.put("replayedEvents", replayedEvents.sum());
+        statistics.put("droppedEvents", droppedEvents.sum());
+        return statistics;
+    }
+
+    private boolean isSampled(String requestId) {
+        double threshold = rate;
+        if (threshold >= 1.0) {
+            return true;
+        }
+        long hash = requestId.hashCode() * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53 < threshold;
+    }
+
+    private void maybeAdjust() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        long elapsed = now - start;
+        if (elapsed < adjustIntervalNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        double linesPerSecond = verboseLines.sumThenReset() * 1e9 / elapsed;
+        double previous = rate;
+        double target = linesPerSecond > 0 ? previous * budgetLinesPerSecond / linesPerSecond : previous * 2;
+        rate = Math.max(minRate, Math.min(maxRate, previous + (target - previous) * SMOOTHING));
+        lastLinesPerSecond = linesPerSecond;
+    }
+
+    private void force(RequestSampling sampling) {
+        sampling.sampled = true;
+        forcedRequests.increment();
+        MDC.put(MDC_KEY, "forced");
+        if (sampling.held != null) {
+            for (HeldEvent held : sampling.held) {
+                LoggingEvent event = new LoggingEvent(FQCN, held.logger, held.level, held.format, held.throwable,
+                        held.params);
+                event.setTimeStamp(held.timestamp);
+                held.logger.callAppenders(event);
+            }
+            verboseLines.add(sampling.held.size());
+            replayedEvents.add(sampling.held.size());
+            sampling.held = null;
+        }
+    }
+
+    private boolean isVerbose(Logger logger, Level level) {
+        return !level.isGreaterOrEqual(Level.INFO) && level.isGreaterOrEqual(logger.getEffectiveLevel())
+                && inScope(logger);
+    }
+
+    private boolean inScope(Logger logger) {
+        String name = logger.getName();
+        for (String prefix : loggers) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record HeldEvent(Logger logger, Level level, String format, Object[] params, Throwable throwable,
+                             long timestamp) {}
+
+    private class RequestSampling {
+        private boolean sampled;
+        private List<HeldEvent> held;
+
+        RequestSampling(boolean sampled) {
+            this.sampled = sampled;
+        }
+
+        void hold(HeldEvent event) {
+            if (held == null) {
+                held = new ArrayList<>();
+            }
+            if (held.size() < replayBufferSize) {
+                held.add(event);
+            } else {
+                droppedEvents.increment();
+            }
+        }
+    }
+}
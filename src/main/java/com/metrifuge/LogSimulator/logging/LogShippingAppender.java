@@ -0,0 +1,555 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appender that ships encoded events to a log collector in compressed batches, over HTTP or framed TCP.
+ *
+ * Logging threads only encode the event and queue it. A sender thread groups queued events into batches of up
+ * to {@code batchEvents} events or {@code batchBytes} bytes, waiting at most {@code lingerMs} after the first
+ * event of a batch was queued, gzips the batch and sends it. Failed sends are retried with exponential backoff
+ * and jitter; a batch that still fails after {@code maxAttempts} is given up and its events counted as lost.
+ * While the sender is behind, the queue of {@code queueCapacity} events fills up and further events are
+ * dropped, or with {@code overflow} BLOCK hold the logging thread for up to {@code maxBlockMs} first.
+ *
+ * Events are numbered in the order they are sent. Each batch carries the source, its batch number, the number
+ * of its first event, its event count and the running totals of dropped and lost events, so a collector can
+ * discard retransmissions and check that every gap in the numbering is a batch the shipper gave up on.
+ *
+ * Over HTTP a batch is one POST with these values in {@code X-Log-*} headers and any 2xx acknowledging it.
+ * Over TCP a batch is one frame: magic, version, source, batch, first event, events, raw bytes, dropped, lost,
+ * flags, payload length and payload, acknowledged by the collector writing back the batch number.
+ */
+public class LogShippingAppender<E> extends UnsynchronizedAppenderBase<E> {
+
+    public static final String HEADER_SOURCE = "X-Log-Source";
+    public static final String HEADER_BATCH = "X-Log-Batch";
+    public static final String HEADER_FIRST_EVENT = "X-Log-First-Event";
+    public static final String HEADER_EVENTS = "X-Log-Events";
+    public static final String HEADER_RAW_BYTES = "X-Log-Raw-Bytes";
+    public static final String HEADER_DROPPED = "X-Log-Dropped";
+    public static final String HEADER_LOST = "X-Log-Lost";
+
+    public static final int TCP_MAGIC = 0x4C534850; // "LSHP"
+    public static final int TCP_VERSION = 1;
+    public static final int TCP_FLAG_GZIP = 1;
+
+    private Encoder<E> encoder;
+    private String url;
+    private String source;
+    private int queueCapacity = 10_000;
+    private boolean block = false;
+    private long maxBlockMs = 100;
+    private int batchEvents = 1_000;
+    private int batchBytes = 1024 * 1024;
+    private long lingerMs = 200;
+    private boolean compress = true;
+    private int maxAttempts = 10;
+    private long initialBackoffMs = 100;
+    private long maxBackoffMs = 10_000;
+    private long requestTimeoutMs = 10_000;
+    private long shutdownTimeoutMs = 5_000;
+
+    private BlockingQueue<Pending> queue;
+    private Transport transport;
+    private Thread sender;
+    private volatile boolean stopping;
+    private long startedNanos;
+
+    // Only touched by the sender thread
+    private long nextEvent;
+    private long nextBatch;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder fromSender = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder shippedEvents = new LongAdder();
+    private final LongAdder shippedBatches = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder lostBatches = new LongAdder();
+    private final AtomicLong lostEvents = new AtomicLong();
+    private final LongAdder lagNanos = new LongAdder();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private volatile long lastLagNanos;
+    private volatile long lastSuccessMillis;
+    private volatile String lastError;
+
+    public Encoder<E> getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(Encoder<E> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /** DROP or BLOCK. */
+    public void setOverflow(String overflow) {
+        this.block = "BLOCK".equalsIgnoreCase(overflow);
+    }
+
+    public void setMaxBlockMs(long maxBlockMs) {
+        this.maxBlockMs = maxBlockMs;
+    }
+
+    public void setBatchEvents(int batchEvents) {
+        this.batchEvents = batchEvents;
+    }
+
+    public void setBatchBytes(int batchBytes) {
+        this.batchBytes = batchBytes;
+    }
+
+    public void setLingerMs(long lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setInitialBackoffMs(long initialBackoffMs) {
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public void setRequestTimeoutMs(long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @Override
+    public void start() {
+        if (encoder == null || url == null) {
+            addError("Encoder and url must be set for appender [" + name + "]");
+            return;
+        }
+        URI uri = URI.create(url);
+        if ("tcp".equalsIgnoreCase(uri.getScheme())) {
+            transport = new TcpTransport(uri.getHost(), uri.getPort(), (int) requestTimeoutMs);
+        } else if ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme())) {
+            transport = new HttpTransport(uri, (int) requestTimeoutMs);
+        } else {
+            addError("Unsupported collector url " + url + " for appender [" + name + "], expected http(s):// or tcp://");
+            return;
+        }
+        if (source == null || source.isBlank()) {
+            source = defaultSource();
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        stopping = false;
+        startedNanos = System.nanoTime();
+        sender = new Thread(this::run, "log-shipper-" + name);
+        sender.setDaemon(true);
+        sender.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        stopping = true;
+        try {
+            sender.join(shutdownTimeoutMs);
+            if (sender.isAlive()) {
+                sender.interrupt();
+                sender.join(requestTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int unsent = queue.size();
+        if (unsent > 0) {
+            lostEvents.addAndGet(unsent);
+            queue.clear();
+            addWarn(unsent + " log events were still queued when appender [" + name + "] stopped");
+        }
+        try {
+            transport.close();
+        } catch (IOException e) {
+            addWarn("Failed to close log collector connection", e);
+        }
+    }
+
+    @Override
+    protected void append(E event) {
+        // Events logged while sending, e.g. by the HTTP stack, would otherwise feed back into the queue
+        if (Thread.currentThread() == sender) {
+            fromSender.increment();
+            return;
+        }
+        Pending pending = new Pending(encoder.encode(event), System.nanoTime());
+        if (queue.offer(pending)) {
+            accepted.increment();
+            return;
+        }
+        if (block) {
+            long start = System.nanoTime();
+            try {
+                boolean queued = queue.offer(pending, maxBlockMs, TimeUnit.MILLISECONDS);
+                blocked.increment();
+                blockedNanos.add(System.nanoTime() - start);
+                if (queued) {
+                    accepted.increment();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.increment();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long shipped = shippedEvents.sum();
+        long raw = rawBytes.sum();
+        long sent = sentBytes.sum();
+        long batches = shippedBatches.sum();
+        Pending oldest = queue != null ? queue.peek() : null;
+        double uptimeSeconds = startedNanos > 0 ? (System.nanoTime() - startedNanos) / 1e9 : 0;
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isStarted());
+        statistics.put("url", url);
+        statistics.put("source", source);
+        statistics.put("queued", queue != null ? queue.size() : 0);
+        statistics.put("queueCapacity", queueCapacity);
+        statistics.put("oldestQueuedMs", oldest != null ? (System.nanoTime() - oldest.enqueuedNanos) / 1_000_000 : 0);
+        statistics.put("accepted", accepted.sum());
+        statistics.put("droppedOnOverflow", dropped.sum());
+        statistics.put("blockedAppends", blocked.sum());
+        statistics.put("blockedMillis", TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()));
+        statistics.put("ignoredFromSender", fromSender.sum());
+        statistics.put("shippedEvents", shipped);
+        statistics.put("shippedBatches", batches);
+        statistics.put("eventsPerSecond", uptimeSeconds > 0 ? shipped / uptimeSeconds : 0);
+        statistics.put("rawBytes", raw);
+        statistics.put("sentBytes", sent);
+        statistics.put("compressionRatio", sent > 0 ? (double) raw / sent : 0);
+        statistics.put("retries", retries.sum());
+        statistics.put("failedAttempts", failedAttempts.sum());
+        statistics.put("lostBatches", lostBatches.sum());
+        statistics.put("lostEvents", lostEvents.get());
+        statistics.put("lastLagMs", lastLagNanos / 1e6);
+        statistics.put("meanLagMs", batches > 0 ? lagNanos.sum() / 1e6 / batches : 0);
+        statistics.put("maxLagMs", maxLagNanos.get() / 1e6);
+        statistics.put("lastSuccess", lastSuccessMillis > 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(lastSuccessMillis), ZoneId.systemDefault()) : null);
+        statistics.put("lastError", lastError);
+        return statistics;
+    }
+
+    private void run() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        List<Pending> batch = new ArrayList<>(batchEvents);
+        try {
+            while (!stopping || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int bytes = first.bytes.length;
+                // Linger is counted from when the first event was queued, so a backlog goes out without waiting
+                long sendBy = first.enqueuedNanos + lingerNanos;
+                while (batch.size() < batchEvents && bytes < batchBytes) {
+                    Pending next = queue.poll();
+                    if (next == null) {
+                        long wait = sendBy - System.nanoTime();
+                        if (wait <= 0 || stopping || (next = queue.poll(wait, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    batch.add(next);
+                    bytes += next.bytes.length;
+                }
+                ship(batch, bytes);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by stop() after shutdownTimeoutMs; the batch in hand is lost, stop() counts the rest
+            lostEvents.addAndGet(batch.size());
+        }
+    }
+
+    private void ship(List<Pending> events, int bytes) throws InterruptedException {
+        Batch batch = new Batch(source, nextBatch++, nextEvent, events.size(), bytes, dropped.sum(), lostEvents.get(),
+                compress, payload(events, bytes));
+        nextEvent += events.size();
+
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transport.send(batch);
+                acknowledged(events, batch);
+                return;
+            } catch (IOException e) {
+                failedAttempts.increment();
+                lastError = LocalDateTime.now() + " " + e;
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                boolean permanent = e instanceof RejectedBatchException;
+                if (permanent || (maxAttempts > 0 && attempt >= maxAttempts)) {
+                    lostBatches.increment();
+                    lostEvents.addAndGet(events.size());
+                    addWarn("Gave up on log batch " + batch.number() + " (" + events.size() + " events) after "
+                            + attempt + " attempts: " + e.getMessage());
+                    return;
+                }
+                retries.increment();
+                long half = backoff / 2;
+                Thread.sleep(half + ThreadLocalRandom.current().nextLong(half + 1));
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void acknowledged(List<Pending> events, Batch batch) {
+        long lag = System.nanoTime() - events.get(0).enqueuedNanos;
+        shippedEvents.add(events.size());
+        shippedBatches.increment();
+        rawBytes.add(batch.rawBytes());
+        sentBytes.add(batch.payload().length);
+        lagNanos.add(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+        lastLagNanos = lag;
+        lastSuccessMillis = System.currentTimeMillis();
+    }
+
+    private byte[] payload(List<Pending> events, int bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(compress ? Math.max(64, bytes / 4) : bytes);
+        try (OutputStream out = compress ? new FastGzipOutputStream(buffer) : buffer) {
+            for (Pending event : events) {
+                out.write(event.bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write to an in-memory buffer", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String defaultSource() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    private record Pending(byte[] bytes, long enqueuedNanos) {}
+
+    private record Batch(String source, long number, long firstEvent, int events, int rawBytes, long dropped,
+                         long lost, boolean gzip, byte[] payload) {}
+
+    private interface Transport extends Closeable {
+        void send(Batch batch) throws IOException;
+    }
+
+    /** A send the collector refused for good, which retrying cannot fix. */
+    private static class RejectedBatchException extends IOException {
+        RejectedBatchException(String message) {
+            super(message);
+        }
+    }
+
+    // Logs compress well even at the fastest level, which keeps the sender thread's CPU time down
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    private static class HttpTransport implements Transport {
+
+        private final URL url;
+        private final int timeoutMs;
+
+        HttpTransport(URI uri, int timeoutMs) {
+            try {
+                this.url = uri.toURL();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid collector url " + uri, e);
+            }
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public void send(Batch batch) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(batch.payload().length);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=UTF-8");
+            if (batch.gzip()) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            connection.setRequestProperty(HEADER_SOURCE, batch.source());
+            connection.setRequestProperty(HEADER_BATCH, Long.toString(batch.number()));
+            connection.setRequestProperty(HEADER_FIRST_EVENT, Long.toString(batch.firstEvent()));
+            connection.setRequestProperty(HEADER_EVENTS, Integer.toString(batch.events()));
+            connection.setRequestProperty(HEADER_RAW_BYTES, Integer.toString(batch.rawBytes()));
+            connection.setRequestProperty(HEADER_DROPPED, Long.toString(batch.dropped()));
+            connection.setRequestProperty(HEADER_LOST, Long.toString(batch.lost()));
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(batch.payload());
+            }
+
+            int status = connection.getResponseCode();
+            // Reading the body to the end lets the connection be reused for the next batch
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            if (status / 100 == 2) {
+                return;
+            }
+            String message = "Collector answered HTTP " + status;
+            if (status == 408 || status == 429 || status >= 500) {
+                throw new IOException(message);
+            }
+            throw new RejectedBatchException(message);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class TcpTransport implements Transport {
+
+        private final String host;
+        private final int port;
+        private final int timeoutMs;
+        private Socket socket;
+        private DataOutputStream out;
+        private DataInputStream in;
+
+        TcpTransport(String host, int port, int timeoutMs) {
+            this.host = host;
+            this.port = port;
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public void send(Batch batch) throws IOException {
+            try {
+                if (socket == null) {
+                    connect();
+                }
+                out.writeInt(TCP_MAGIC);
+                out.writeShort(TCP_VERSION);
+                out.writeUTF(batch.source());
+                out.writeLong(batch.number());
+                out.writeLong(batch.firstEvent());
+                out.writeInt(batch.events());
+                out.writeInt(batch.rawBytes());
+                out.writeLong(batch.dropped());
+                out.writeLong(batch.lost());
+                out.writeByte(batch.gzip() ? TCP_FLAG_GZIP : 0);
+                out.writeInt(batch.payload().length);
+                out.write(batch.payload());
+                out.flush();
+                long acknowledged = in.readLong();
+                if (acknowledged != batch.number()) {
+                    throw new IOException("Collector acknowledged batch " + acknowledged + " instead of " + batch.number());
+                }
+            } catch (IOException e) {
+                // The stream may be mid-frame; the next attempt starts on a fresh connection
+                close();
+                throw e;
+            }
+        }
+
+        private void connect() throws IOException {
+            Socket connecting = new Socket();
+            try {
+                connecting.connect(new InetSocketAddress(host, port), timeoutMs);
+                connecting.setSoTimeout(timeoutMs);
+                connecting.setTcpNoDelay(true);
+                out = new DataOutputStream(new BufferedOutputStream(connecting.getOutputStream(), 64 * 1024));
+                in = new DataInputStream(new BufferedInputStream(connecting.getInputStream()));
+            } catch (IOException e) {
+                connecting.close();
+                throw e;
+            }
+            socket = connecting;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket != null) {
+                Socket closing = socket;
+                socket = null;
+                closing.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.spi.FilterReply;
+import com.metrifuge.LogSimulator.dto.LoggingProfile;
+import com.metrifuge.LogSimulator.dto.LoggingProfileEntry;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Attributes logging volume and overhead to call sites and endpoints.
+ *
+ * Installed as the first turbo filter, it sees every logging call before any level check and counts it
+ * against its call site (logger name + format string) and the current {@code endpoint} MDC value. The root
+ * appenders are moved behind a {@link ProfilingAppender} and their encoders wrapped in a {@link ProfilingEncoder},
+ * so that events which actually reach an appender are counted with their encoded size, formatting time and
+ * total append time. Calls minus emitted events are the suppressed calls; suppressed calls that passed
+ * arguments point at arguments evaluated for nothing.
+ */
+public class LoggingProfiler extends TurboFilter {
+
+    public static final String ENDPOINT_MDC_KEY = "endpoint";
+
+    private static final String NO_ENDPOINT = "-";
+    private static final String OVERFLOW = "(other)";
+    private static final int MAX_ARGUMENT_TYPES = 8;
+
+    private final int maxCallSites;
+    private final int maxEndpoints;
+    private final Map<String, Map<String, CallSite>> callSites = new ConcurrentHashMap<>();
+    private final Map<String, Counters> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder callSiteCount = new LongAdder();
+    private final CallSite overflow = new CallSite(OVERFLOW, OVERFLOW);
+    private final Counters endpointOverflow = new Counters();
+    private final Counters total = new Counters();
+    private volatile LocalDateTime since = LocalDateTime.now();
+
+    private ProfilingAppender profilingAppender;
+    private final List<Appender<ILoggingEvent>> wrapped = new ArrayList<>();
+
+    public LoggingProfiler(int maxCallSites, int maxEndpoints) {
+        this.maxCallSites = maxCallSites;
+        this.maxEndpoints = maxEndpoints;
+        setName("logging-profiler");
+    }
+
+    public void install(LoggerContext context) {
+        setContext(context);
+        start();
+        context.getTurboFilterList().add(0, this);
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        profilingAppender = new ProfilingAppender(this);
+        profilingAppender.setContext(context);
+        profilingAppender.setName("PROFILING");
+        for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+            Appender<ILoggingEvent> appender = it.next();
+            setEncoder(appender, wrap(encoderOf(appender)));
+            profilingAppender.addAppender(appender);
+            wrapped.add(appender);
+        }
+        profilingAppender.start();
+        root.addAppender(profilingAppender);
+        wrapped.forEach(root::detachAppender);
+    }
+
+    public void uninstall() {
+        if (profilingAppender == null) {
+            return;
+        }
+        LoggerContext context = (LoggerContext) getContext();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        for (Appender<ILoggingEvent> appender : wrapped) {
+            if (encoderOf(appender) instanceof ProfilingEncoder profiling) {
+                setEncoder(appender, profiling.getDelegate());
+            }
+            root.addAppender(appender);
+        }
+        root.detachAppender(profilingAppender);
+        profilingAppender.detachAllAppenders();
+        profilingAppender.stop();
+        context.getTurboFilterList().remove(this);
+        wrapped.clear();
+        profilingAppender = null;
+        stop();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        boolean hasArguments = params != null && params.length > 0;
+        CallSite site = callSite(logger.getName(), format);
+        Counters endpoint = endpoint(MDC.get(ENDPOINT_MDC_KEY));
+        site.recordCall(hasArguments);
+        endpoint.recordCall(hasArguments);
+        total.recordCall(hasArguments);
+        if (hasArguments && site.argumentTypes.size() < MAX_ARGUMENT_TYPES) {
+            for (Object param : params) {
+                site.argumentTypes.add(param == null ? "null" : param.getClass().getSimpleName());
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    void recordEmitted(ILoggingEvent event, long formatNanos, long appendNanos, long bytes) {
+        Object[] arguments = event.getArgumentArray();
+        boolean hasArguments = arguments != null && arguments.length > 0;
+        String format = event.getMessage() != null ? event.getMessage() : "null";
+        callSite(event.getLoggerName(), format).recordEmitted(hasArguments, formatNanos, appendNanos, bytes);
+        endpoint(event.getMDCPropertyMap().get(ENDPOINT_MDC_KEY)).recordEmitted(hasArguments, formatNanos, appendNanos, bytes);
+        total.recordEmitted(hasArguments, formatNanos, appendNanos, bytes);
+    }
+
+    public LoggingProfile snapshot(String sortBy, int limit) {
+        Comparator<LoggingProfileEntry> order = Comparator.comparingLong(sortKey(sortBy)).reversed();
+
+        List<LoggingProfileEntry> endpointEntries = new ArrayList<>();
+        endpoints.forEach((endpoint, counters) -> {
+            LoggingProfileEntry entry = counters.toEntry();
+            entry.setEndpoint(endpoint);
+            endpointEntries.add(entry);
+        });
+        if (endpointOverflow.calls.sum() > 0 || endpointOverflow.emitted.sum() > 0) {
+            LoggingProfileEntry entry = endpointOverflow.toEntry();
+            entry.setEndpoint(OVERFLOW);
+            endpointEntries.add(entry);
+        }
+        endpointEntries.sort(order);
+
+        List<LoggingProfileEntry> siteEntries = new ArrayList<>();
+        callSites.values().forEach(formats -> formats.values().forEach(site -> siteEntries.add(site.toEntry())));
+        if (overflow.calls.sum() > 0) {
+            siteEntries.add(overflow.toEntry());
+        }
+        siteEntries.sort(order);
+
+        LoggingProfile profile = new LoggingProfile();
+        profile.setSince(since);
+        profile.setTotal(total.toEntry());
+        profile.setEndpoints(endpointEntries);
+        profile.setCallSites(siteEntries.subList(0, Math.max(0, Math.min(limit, siteEntries.size()))));
+        return profile;
+    }
+
+    public void reset() {
+        callSites.clear();
+        endpoints.clear();
+        callSiteCount.reset();
+        overflow.reset();
+        endpointOverflow.reset();
+        total.reset();
+        since = LocalDateTime.now();
+    }
+
+    private CallSite callSite(String loggerName, String format) {
+        Map<String, CallSite> formats = callSites.computeIfAbsent(loggerName, name -> new ConcurrentHashMap<>());
+        CallSite site = formats.get(format);
+        if (site != null) {
+            return site;
+        }
+        if (callSiteCount.sum() >= maxCallSites) {
+            return overflow;
+        }
+        return formats.computeIfAbsent(format, key -> {
+            callSiteCount.increment();
+            return new CallSite(loggerName, key);
+        });
+    }
+
+    // Unmatched requests fall back to the raw URI, so the endpoint count is capped like the call sites
+    private Counters endpoint(String endpoint) {
+        String key = endpoint != null ? endpoint : NO_ENDPOINT;
+        Counters counters = endpoints.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        if (endpoints.size() >= maxEndpoints) {
+            return endpointOverflow;
+        }
+        return endpoints.computeIfAbsent(key, k -> new Counters());
+    }
+
+    private static ToLongFunction<LoggingProfileEntry> sortKey(String sortBy) {
+        return switch (sortBy == null ? "cost" : sortBy) {
+            case "calls" -> LoggingProfileEntry::getCalls;
+            case "emitted" -> LoggingProfileEntry::getEmitted;
+            case "suppressed" -> LoggingProfileEntry::getSuppressed;
+            case "wasted" -> LoggingProfileEntry::getSuppressedWithArguments;
+            case "bytes" -> LoggingProfileEntry::getBytes;
+            case "cost" -> entry -> entry.getFormatMicros() + entry.getAppendMicros();
+            default -> throw new IllegalArgumentException("Unknown sort key: " + sortBy
+                    + " (expected cost, calls, emitted, suppressed, wasted or bytes)");
+        };
+    }
+
+    private static Encoder<ILoggingEvent> wrap(Encoder<ILoggingEvent> encoder) {
+        if (encoder == null || encoder instanceof ProfilingEncoder) {
+            return encoder;
+        }
+        return new ProfilingEncoder(encoder);
+    }
+
+    private static Encoder<ILoggingEvent> encoderOf(Appender<ILoggingEvent> appender) {
+        if (appender instanceof OutputStreamAppender<ILoggingEvent> stream) {
+            return stream.getEncoder();
+        }
+        if (appender instanceof MappedSegmentAppender<ILoggingEvent> mapped) {
+            return mapped.getEncoder();
+        }
+        return null;
+    }
+
+    private static void setEncoder(Appender<ILoggingEvent> appender, Encoder<ILoggingEvent> encoder) {
+        if (encoder == null) {
+            return;
+        }
+        if (appender instanceof OutputStreamAppender<ILoggingEvent> stream) {
+            stream.setEncoder(encoder);
+        } else if (appender instanceof MappedSegmentAppender<ILoggingEvent> mapped) {
+            mapped.setEncoder(encoder);
+        }
+    }
+
+    private static class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder callsWithArguments = new LongAdder();
+        final LongAdder emitted = new LongAdder();
+        final LongAdder emittedWithArguments = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder formatNanos = new LongAdder();
+        final LongAdder appendNanos = new LongAdder();
+
+        void recordCall(boolean hasArguments) {
+            calls.increment();
+            if (hasArguments) {
+                callsWithArguments.increment();
+            }
+        }
+
+        void recordEmitted(boolean hasArguments, long format, long append, long size) {
+            emitted.increment();
+            if (hasArguments) {
+                emittedWithArguments.increment();
+            }
+            formatNanos.add(format);
+            appendNanos.add(append);
+            bytes.add(size);
+        }
+
+        void reset() {
+            calls.reset();
+            callsWithArguments.reset();
+            emitted.reset();
+            emittedWithArguments.reset();
+            bytes.reset();
+            formatNanos.reset();
+            appendNanos.reset();
+        }
+
+        LoggingProfileEntry toEntry() {
+            LoggingProfileEntry entry = new LoggingProfileEntry();
+            long emittedCount = emitted.sum();
+            // Replayed and programmatically appended events reach the appenders without a counted call
+            long callCount = Math.max(calls.sum(), emittedCount);
+            entry.setCalls(callCount);
+            entry.setEmitted(emittedCount);
+            entry.setSuppressed(callCount - emittedCount);
+            entry.setSuppressedWithArguments(Math.max(0, callsWithArguments.sum() - emittedWithArguments.sum()));
+            entry.setBytes(bytes.sum());
+            entry.setFormatMicros(TimeUnit.NANOSECONDS.toMicros(formatNanos.sum()));
+            entry.setAppendMicros(TimeUnit.NANOSECONDS.toMicros(appendNanos.sum()));
+            return entry;
+        }
+    }
+
+    private static class CallSite extends Counters {
+        final String logger;
+        final String format;
+        final Set<String> argumentTypes = ConcurrentHashMap.newKeySet();
+
+        CallSite(String logger, String format) {
+            this.logger = logger;
+            this.format = format;
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            argumentTypes.clear();
+        }
+
+        @Override
+        LoggingProfileEntry toEntry() {
+            LoggingProfileEntry entry = super.toEntry();
+            entry.setLogger(logger);
+            entry.setFormat(format);
+            entry.setArgumentTypes(argumentTypes.stream().sorted().toList());
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appender that copies encoded events into a pre-allocated memory-mapped segment instead of issuing
+ * a write syscall per event.
+ *
+ * When a segment fills, the appender switches to the next segment, which a background thread has already
+ * created and mapped. The same thread then trims the full segment to its written length and gzips it.
+ * Segments are named {@code <base>-<timestamp>-<seq>.log} next to {@code file}, and {@code file} itself is
+ * kept as a symlink to the active segment.
+ *
+ * Mapping sizes the active segment to {@code segmentSize} up front, so its length never grows and the
+ * unwritten rest reads as NUL bytes. Readers that follow a file by its size, such as {@code tail -f} and
+ * tailing log shippers, therefore see no new lines until the segment is closed; use the regular file
+ * appender for them. The active segment is trimmed on {@link #stop()}, and segments left untrimmed by a
+ * crash are trimmed (and compressed) in the background on the next start.
+ */
+public class MappedSegmentAppender<E> extends UnsynchronizedAppenderBase<E> {
+
+    private static final DateTimeFormatter SEGMENT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private Encoder<E> encoder;
+    private String file;
+    private FileSize segmentSize = FileSize.valueOf("64MB");
+    private int maxHistory = 20;
+    private boolean compress = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Path directory;
+    private String baseName;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Deque<Path> retained = new ArrayDeque<>();
+    private Segment active;
+    private Future<Segment> next;
+    private ExecutorService background;
+
+    public Encoder<E> getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(Encoder<E> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public void setSegmentSize(FileSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public void start() {
+        if (encoder == null || file == null) {
+            addError("Encoder and file must be set for appender [" + name + "]");
+            return;
+        }
+        Path path = Paths.get(file).toAbsolutePath();
+        directory = path.getParent();
+        String fileName = path.getFileName().toString();
+        baseName = fileName.endsWith(".log") ? fileName.substring(0, fileName.length() - 4) : fileName;
+
+        background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-segment-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+            List<Path> unfinished = scanRetained();
+            active = createSegment();
+            next = background.submit(this::createSegment);
+            background.execute(() -> link(active.path));
+            background.execute(() -> recover(unfinished));
+        } catch (IOException e) {
+            addError("Failed to create log segment for appender [" + name + "]", e);
+            background.shutdownNow();
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        lock.lock();
+        try {
+            super.stop();
+            finish(active);
+            active = null;
+        } finally {
+            lock.unlock();
+        }
+        background.execute(() -> {
+            try {
+                Segment unused = next.get();
+                unused.channel.close();
+                Files.deleteIfExists(unused.path);
+            } catch (Exception e) {
+                addWarn("Failed to discard pre-allocated log segment", e);
+            }
+        });
+        background.shutdown();
+        try {
+            background.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void append(E event) {
+        byte[] bytes = encoder.encode(event);
+        lock.lock();
+        try {
+            if (active == null) {
+                return;
+            }
+            int offset = 0;
+            while (offset < bytes.length) {
+                int length = Math.min(bytes.length - offset, active.buffer.remaining());
+                active.buffer.put(bytes, offset, length);
+                offset += length;
+                if (!active.buffer.hasRemaining()) {
+                    roll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() {
+        Segment full = active;
+        try {
+            active = next.get();
+        } catch (Exception e) {
+            addWarn("Pre-allocated log segment unavailable, creating one inline", e);
+            try {
+                active = createSegment();
+            } catch (IOException io) {
+                addError("Failed to roll log segment for appender [" + name + "]", io);
+                active = null;
+                super.stop();
+                return;
+            }
+        }
+        next = background.submit(this::createSegment);
+        Path activePath = active.path;
+        background.execute(() -> {
+            link(activePath);
+            finish(full);
+            retain(compress ? compress(full.path) : full.path);
+        });
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s-%s-%05d.log",
+                baseName, LocalDateTime.now().format(SEGMENT_TIMESTAMP), sequence.incrementAndGet()));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize.getSize());
+        return new Segment(path, channel, buffer);
+    }
+
+    private void finish(Segment segment) {
+        try {
+            segment.channel.truncate(segment.buffer.position());
+            segment.channel.close();
+        } catch (IOException e) {
+            addWarn("Failed to trim log segment " + segment.path, e);
+        }
+    }
+
+    private void link(Path target) {
+        Path link = directory.resolve(baseName + ".log");
+        try {
+            if (Files.exists(link) && !Files.isSymbolicLink(link)) {
+                addWarn(link + " is a regular file, not linking it to the active log segment");
+                return;
+            }
+            Path temp = directory.resolve(baseName + ".log.link");
+            Files.deleteIfExists(temp);
+            Files.createSymbolicLink(temp, target.getFileName());
+            Files.move(temp, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            addWarn("Failed to link " + link + " to the active log segment", e);
+        }
+    }
+
+    private Path compress(Path segment) {
+        Path target = segment.resolveSibling(segment.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            addWarn("Failed to compress log segment " + segment, e);
+            return segment;
+        }
+        try {
+            Files.delete(segment);
+        } catch (IOException e) {
+            addWarn("Failed to delete compressed log segment " + segment, e);
+        }
+        return target;
+    }
+
+    private void retain(Path segment) {
+        retained.addLast(segment);
+        while (retained.size() > maxHistory) {
+            Path oldest = retained.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException e) {
+                addWarn("Failed to delete old log segment " + oldest, e);
+            }
+        }
+    }
+
+    /** Trims and compresses segments that were still active when a previous run ended without stopping. */
+    private void recover(List<Path> segments) {
+        for (Path segment : segments) {
+            if (!retained.contains(segment)) {
+                continue;
+            }
+            try {
+                long length = writtenLength(segment);
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(length);
+                }
+                addInfo("Recovered " + length + " bytes of unfinished log segment " + segment);
+            } catch (IOException e) {
+                addWarn("Failed to trim unfinished log segment " + segment, e);
+                continue;
+            }
+            if (compress) {
+                // Runs on the background thread like retain(), so the history is not modified concurrently
+                List<Path> history = new ArrayList<>(retained);
+                history.set(history.indexOf(segment), compress(segment));
+                retained.clear();
+                retained.addAll(history);
+            }
+        }
+    }
+
+    /** Length up to the last non-NUL byte; the encoder never writes NUL, the untouched mapping is all NUL. */
+    private static long writtenLength(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            long end = channel.size();
+            while (end > 0) {
+                long start = Math.max(0, end - chunk.capacity());
+                chunk.clear().limit((int) (end - start));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, start + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) != 0) {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+
+    /** Returns the uncompressed segments, which were left behind untrimmed by a run that did not stop. */
+    private List<Path> scanRetained() throws IOException {
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, baseName + "-*.log*")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(".log") || fileName.endsWith(".log.gz")) {
+                    existing.add(path);
+                }
+            }
+        }
+        existing.sort(null);
+        existing.forEach(retained::addLast);
+        return existing.stream()
+                .filter(path -> path.getFileName().toString().endsWith(".log"))
+                .toList();
+    }
+
+    private record Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {}
+}
@@ -0,0 +1,53 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fans each event out to the wrapped root appenders and reports the total append time, together with
+ * the encoding time and bytes collected by their {@link ProfilingEncoder}s, to the {@link LoggingProfiler}.
+ */
+class ProfilingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final ThreadLocal<long[]> ENCODED = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final LoggingProfiler profiler;
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    ProfilingAppender(LoggingProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    static void recordEncode(long nanos, int bytes) {
+        long[] encoded = ENCODED.get();
+        encoded[0] += nanos;
+        encoded[1] += bytes;
+    }
+
+    void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    /** Detaches the wrapped appenders without stopping them, so they can go back on the root logger. */
+    void detachAllAppenders() {
+        List<Appender<ILoggingEvent>> attached = new ArrayList<>();
+        appenders.iteratorForAppenders().forEachRemaining(attached::add);
+        attached.forEach(appenders::detachAppender);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        long[] encoded = ENCODED.get();
+        encoded[0] = 0;
+        encoded[1] = 0;
+        long start = System.nanoTime();
+        appenders.appendLoopOnAppenders(event);
+        long elapsed = System.nanoTime() - start;
+        profiler.recordEmitted(event, encoded[0], Math.max(0, elapsed - encoded[0]), encoded[1]);
+    }
+}
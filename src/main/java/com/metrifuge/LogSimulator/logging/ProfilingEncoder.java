@@ -0,0 +1,45 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/**
+ * Encoder wrapper that adds the time and bytes spent encoding each event to the calling thread's
+ * {@link ProfilingAppender} measurement.
+ */
+class ProfilingEncoder extends EncoderBase<ILoggingEvent> {
+
+    private final Encoder<ILoggingEvent> delegate;
+
+    ProfilingEncoder(Encoder<ILoggingEvent> delegate) {
+        this.delegate = delegate;
+    }
+
+    Encoder<ILoggingEvent> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return delegate.headerBytes();
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        long start = System.nanoTime();
+        byte[] bytes = delegate.encode(event);
+        ProfilingAppender.recordEncode(System.nanoTime() - start, bytes != null ? bytes.length : 0);
+        return bytes;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return delegate.footerBytes();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return delegate.isStarted();
+    }
+}
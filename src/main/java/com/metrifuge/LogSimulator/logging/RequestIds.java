@@ -0,0 +1,26 @@
+package com.metrifuge.LogSimulator.logging;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates UUIDv7-layout request IDs: 48 bits of Unix epoch milliseconds followed by 74 random bits
+ * from {@link ThreadLocalRandom}. IDs sort by creation time and need no shared {@code SecureRandom},
+ * so generation does not contend across request threads. They are correlation IDs, not secrets.
+ */
+public final class RequestIds {
+
+    public static final String MDC_KEY = "requestId";
+
+    private RequestIds() {
+    }
+
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificant = (System.currentTimeMillis() << 16)
+                | 0x7000L
+                | (random.nextLong() & 0x0FFFL);
+        long leastSignificant = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+}
@@ -23,6 +23,7 @@ public class Todo {
     private String assignedTo;
     private String tags;
     private Integer estimatedHours = 0;
+    private Long version = 0L;
 
     public enum Priority {
         LOW, MEDIUM, HIGH, URGENT
@@ -0,0 +1,75 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.ProgressHandler;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * JdbcTemplate that honours the current {@link RequestDeadline}.
+ *
+ * A statement is not started once the deadline has passed. Otherwise the statement's query timeout is
+ * lowered to the remaining budget when that is shorter than the connection's busy timeout, which bounds
+ * waiting for a lock. SQLite's query timeout does nothing else, so running statements are stopped by a
+ * progress handler instead: SQLite calls it on the executing thread every {@code progressInterval}
+ * instructions, and it aborts the statement with SQLITE_INTERRUPT when that thread's deadline has passed.
+ * The handler is installed on a connection the first time it runs a statement under a deadline and stays
+ * installed; without a deadline it never aborts.
+ */
+public class DeadlineJdbcTemplate extends JdbcTemplate {
+
+    private static final ProgressHandler DEADLINE_CHECK = new ProgressHandler() {
+        @Override
+        protected int progress() {
+            return RequestDeadline.expired() ? 1 : 0;
+        }
+    };
+
+    private static final Set<SQLiteConnection> installed = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final int progressInterval;
+
+    public DeadlineJdbcTemplate(DataSource dataSource, int progressInterval) {
+        super(dataSource);
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        if (!RequestDeadline.isSet()) {
+            return;
+        }
+        RequestDeadline.check("running a statement");
+
+        SQLiteConnection connection = stmt.getConnection().unwrap(SQLiteConnection.class);
+        if (installed.add(connection)) {
+            ProgressHandler.setHandler(connection, progressInterval, DEADLINE_CHECK);
+        }
+        long remainingSeconds = (RequestDeadline.remainingMillis() + 999) / 1000;
+        if (remainingSeconds * 1000 < connection.getBusyTimeout()) {
+            stmt.setQueryTimeout((int) Math.max(1, remainingSeconds));
+        }
+    }
+
+    // A lock wait cut short by the lowered query timeout fails with SQLITE_BUSY rather than SQLITE_INTERRUPT
+    @Override
+    protected DataAccessException translateException(String task, String sql, SQLException ex) {
+        int code = ex.getErrorCode() & 0xff;
+        if (RequestDeadline.expired() && (code == SQLiteErrorCode.SQLITE_INTERRUPT.code
+                || code == SQLiteErrorCode.SQLITE_BUSY.code)) {
+            return RequestDeadline.cancelled(ex);
+        }
+        return super.translateException(task, sql, ex);
+    }
+}
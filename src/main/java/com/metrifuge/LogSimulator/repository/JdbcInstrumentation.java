@@ -0,0 +1,453 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.JdbcInstrumentationProperties;
+import com.metrifuge.LogSimulator.service.LatencySketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Statement-level timings for the todo databases, recorded by wrapping their DataSources in JDK proxies.
+ *
+ * Statements are grouped by shape - the SQL with whitespace collapsed and literals replaced by {@code ?} -
+ * and each shape keeps a count, errors, a sketch of database time and a sketch of rows returned or affected.
+ * Database time is the execute call plus the time spent in {@code ResultSet.next()}, since SQLite does
+ * most of a query's work while stepping through rows. Each pool keeps a sketch of connection wait.
+ *
+ * A statement slower than {@code todo.jdbc.slow-query-ms} has its {@code EXPLAIN QUERY PLAN} captured on
+ * the same connection, at most once per shape per {@code plan-capture-interval-ms}, and logged with it, so
+ * that a full table scan shows up next to the statement that caused it.
+ */
+@Component
+@Slf4j
+public class JdbcInstrumentation {
+
+    private static final String OTHER = "other";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![?\\w])-?\\d+(\\.\\d+)?");
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN \\w+$");
+
+    private final JdbcInstrumentationProperties properties;
+    private final Map<String, StatementStats> byShape = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> bySql = new ConcurrentHashMap<>();
+    private final Map<String, PoolStats> pools = new ConcurrentHashMap<>();
+
+    public JdbcInstrumentation(JdbcInstrumentationProperties properties) {
+        this.properties = properties;
+        log.info("JDBC instrumentation {} - slow query threshold: {}ms", properties.isEnabled() ? "enabled" : "disabled",
+                properties.getSlowQueryMs());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** Returns {@code dataSource} wrapped so that its statements are recorded under pool {@code name}. */
+    public DataSource wrap(DataSource dataSource, String name) {
+        if (!properties.isEnabled() || Proxy.isProxyClass(dataSource.getClass())) {
+            return dataSource;
+        }
+        PoolStats pool = pools.computeIfAbsent(name, n -> new PoolStats(n, properties.getRelativeAccuracy()));
+        log.debug("Instrumenting DataSource {}", name);
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            if (!method.getName().equals("getConnection")) {
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            Connection connection = (Connection) invoke(target, method, args);
+            pool.record(System.nanoTime() - start);
+            return wrapConnection(connection);
+        });
+    }
+
+    public void reset() {
+        byShape.clear();
+        bySql.clear();
+        pools.values().forEach(PoolStats::reset);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("slowQueryMs", properties.getSlowQueryMs());
+
+        List<Map<String, Object>> poolList = new ArrayList<>();
+        pools.values().stream()
+                .sorted(Comparator.comparing(PoolStats::name))
+                .forEach(pool -> poolList.add(pool.toMap()));
+        statistics.put("pools", poolList);
+
+        List<Map<String, Object>> statements = new ArrayList<>();
+        byShape.values().stream()
+                .sorted(Comparator.comparingLong(StatementStats::totalNanos).reversed())
+                .forEach(stats -> statements.add(stats.toMap()));
+        statistics.put("statements", statements);
+        return statistics;
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof PreparedStatement prepared && args != null && args[0] instanceof String sql) {
+                return wrapStatement(PreparedStatement.class, prepared, target, sql);
+            }
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                return wrapStatement(Statement.class, statement, target, null);
+            }
+            return result;
+        });
+    }
+
+    private <T extends Statement> T wrapStatement(Class<T> type, T statement, Connection connection,
+                                                  String preparedSql) {
+        StatementHandler handler = new StatementHandler(statement, connection, preparedSql);
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private StatementStats stats(String sql) {
+        StatementStats stats = bySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = shape(sql);
+        stats = byShape.get(shape);
+        if (stats == null) {
+            if (byShape.size() >= properties.getMaxStatements()) {
+                shape = OTHER;
+            }
+            stats = byShape.computeIfAbsent(shape, s -> new StatementStats(s, properties.getRelativeAccuracy()));
+        }
+        if (bySql.size() < properties.getMaxStatements() * 4) {
+            bySql.put(sql, stats);
+        }
+        return stats;
+    }
+
+    private void completed(StatementStats stats, String sql, Connection connection, long nanos, long rows) {
+        stats.record(nanos, rows);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis < properties.getSlowQueryMs()) {
+            return;
+        }
+        stats.slow.increment();
+        if (!stats.claimPlanCapture(properties.getPlanCaptureIntervalMs())) {
+            log.warn("Slow statement ({}ms, {} rows): {}", millis, rows, stats.shape);
+            return;
+        }
+        String plan = explain(connection, sql);
+        stats.plan(plan);
+        log.warn("Slow statement ({}ms, {} rows): {} - plan: {}", millis, rows, stats.shape, plan);
+    }
+
+    private String explain(Connection connection, String sql) {
+        String statement = sql.stripLeading();
+        String verb = statement.length() >= 6 ? statement.substring(0, 6).toUpperCase() : "";
+        if (!List.of("SELECT", "INSERT", "UPDATE", "DELETE").contains(verb) && !verb.startsWith("WITH")) {
+            return null;
+        }
+        // The connection here is the unwrapped one, so the EXPLAIN itself is not recorded
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int parameters = explain.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                explain.setObject(i, null);
+            }
+            List<String> steps = new ArrayList<>();
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getString("detail"));
+                }
+            }
+            return String.join("; ", steps);
+        } catch (SQLException e) {
+            log.debug("Could not capture query plan for {}: {}", sql, e.getMessage());
+            return null;
+        }
+    }
+
+    // "SCAN todos" reads the whole table; "SCAN todos USING INDEX ..." and "SEARCH ..." do not
+    private static boolean isFullScan(String plan) {
+        for (String step : plan.split("; ")) {
+            if (FULL_SCAN.matcher(step).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        return NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    }
+
+    private static <T> T proxy(Class<T> type, T target, TargetHandler<T> handler) {
+        return type.cast(Proxy.newProxyInstance(JdbcInstrumentation.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> method.getName().equals("equals") && args != null && args.length == 1
+                        ? proxy == args[0]
+                        : handler.invoke(target, method, args)));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetHandler<T> {
+        Object invoke(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Times execute calls and hands out ResultSets that count rows and time spent stepping. A statement's
+     * database time is recorded when its ResultSet or, for updates, its execute call finishes.
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+        private final String preparedSql;
+        private final List<String> batch = new ArrayList<>();
+        private ResultSetHandler open;
+
+        StatementHandler(Statement target, Connection connection, String preparedSql) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args[0] instanceof String sql) {
+                batch.add(sql);
+            } else if (name.equals("close") || name.equals("getResultSet")) {
+                if (name.equals("close") && open != null) {
+                    open.finish();
+                }
+                Object result = JdbcInstrumentation.invoke(target, method, args);
+                if (result instanceof ResultSet rs && open != null && !open.finished) {
+                    return open.wrap(rs);
+                }
+                return result;
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            return JdbcInstrumentation.invoke(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String given ? given
+                    : preparedSql != null ? preparedSql
+                    : batch.isEmpty() ? OTHER : batch.get(0);
+            StatementStats stats = stats(sql);
+            if (open != null) {
+                open.finish();
+            }
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = JdbcInstrumentation.invoke(target, method, args);
+            } catch (Throwable e) {
+                stats.errors.increment();
+                throw e;
+            } finally {
+                batch.clear();
+            }
+            long nanos = System.nanoTime() - start;
+
+            if (result instanceof ResultSet rs) {
+                open = new ResultSetHandler(stats, sql, nanos);
+                return open.wrap(rs);
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // execute() produced a ResultSet, wrapped when it is fetched with getResultSet()
+                open = new ResultSetHandler(stats, sql, nanos);
+                return result;
+            }
+            completed(stats, sql, connection, nanos, rows(result));
+            return result;
+        }
+
+        private long rows(Object result) {
+            if (result instanceof Integer count) {
+                return Math.max(0, count);
+            }
+            if (result instanceof Long count) {
+                return Math.max(0, count);
+            }
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) rows += Math.max(0, count);
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) rows += Math.max(0, count);
+            }
+            return rows;
+        }
+
+        private class ResultSetHandler implements InvocationHandler {
+
+            private final StatementStats stats;
+            private final String sql;
+            private long nanos;
+            private long rows;
+            private ResultSet target;
+            private boolean finished;
+
+            ResultSetHandler(StatementStats stats, String sql, long executeNanos) {
+                this.stats = stats;
+                this.sql = sql;
+                this.nanos = executeNanos;
+            }
+
+            ResultSet wrap(ResultSet rs) {
+                this.target = rs;
+                return (ResultSet) Proxy.newProxyInstance(JdbcInstrumentation.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, this);
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("next")) {
+                    long start = System.nanoTime();
+                    Object result = JdbcInstrumentation.invoke(target, method, args);
+                    nanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                    return result;
+                }
+                if (name.equals("close")) {
+                    finish();
+                }
+                return JdbcInstrumentation.invoke(target, method, args);
+            }
+
+            void finish() {
+                if (!finished) {
+                    finished = true;
+                    completed(stats, sql, connection, nanos, rows);
+                }
+            }
+        }
+    }
+
+    private static final class StatementStats {
+
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencySketch micros;
+        private final LatencySketch rows;
+        private final AtomicLong lastPlanCapture = new AtomicLong();
+        private volatile String plan;
+        private volatile LocalDateTime planCapturedAt;
+
+        StatementStats(String shape, double relativeAccuracy) {
+            this.shape = shape;
+            this.micros = new LatencySketch(relativeAccuracy);
+            this.rows = new LatencySketch(relativeAccuracy);
+        }
+
+        void record(long nanos, long rowCount) {
+            count.increment();
+            totalNanos.add(nanos);
+            micros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            rows.record(rowCount);
+        }
+
+        long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        boolean claimPlanCapture(long intervalMs) {
+            long now = System.currentTimeMillis();
+            long last = lastPlanCapture.get();
+            return (last == 0 || now - last >= intervalMs) && lastPlanCapture.compareAndSet(last, now);
+        }
+
+        void plan(String plan) {
+            this.plan = plan;
+            this.planCapturedAt = LocalDateTime.now();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sql", shape);
+            map.put("count", count.sum());
+            map.put("errors", errors.sum());
+            map.put("slow", slow.sum());
+            map.put("totalMs", TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()));
+            map.put("time", micros.summary("Micros"));
+            map.put("rows", rows.summary(""));
+            if (plan != null) {
+                map.put("plan", plan);
+                map.put("fullScan", isFullScan(plan));
+                map.put("planCapturedAt", planCapturedAt);
+            }
+            return map;
+        }
+    }
+
+    private static final class PoolStats {
+
+        private final String name;
+        private final LongAdder connections = new LongAdder();
+        private final LatencySketch waitMicros;
+
+        PoolStats(String name, double relativeAccuracy) {
+            this.name = name;
+            this.waitMicros = new LatencySketch(relativeAccuracy);
+        }
+
+        String name() {
+            return name;
+        }
+
+        void record(long nanos) {
+            connections.increment();
+            waitMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+
+        void reset() {
+            connections.reset();
+            waitMicros.clear();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pool", name);
+            map.put("connections", connections.sum());
+            map.put("connectionWait", waitMicros.summary("Micros"));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.metrifuge.LogSimulator.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class TodoArchiver {
+
+    private static final String COLUMNS = "id, title, description, completed, priority, category, created_at, " +
+            "updated_at, due_date, completed_at, assigned_to, tags, estimated_hours, version";
+
+    // completed = 1 is a literal so the planner can use the partial index on completed_at
+    private static final String ARCHIVABLE_IDS =
+            "SELECT id FROM main.todos WHERE completed = 1 AND completed_at < ? ORDER BY completed_at, id LIMIT ?";
+
+    private static final String COPY_SQL =
+            "INSERT OR REPLACE INTO archive.todos (" + COLUMNS + ", archived_at) " +
+            "SELECT " + COLUMNS + ", ? FROM main.todos WHERE id IN (" + ARCHIVABLE_IDS + ")";
+
+    private static final String DELETE_SQL = "DELETE FROM main.todos WHERE id IN (" + ARCHIVABLE_IDS + ")";
+
+    /**
+     * Moves up to {@code batchSize} todos completed before {@code cutoff} from a shard to its archive file,
+     * which is attached to the shard connection for the duration of the batch. Copy and delete run in one
+     * transaction; the copy takes the write lock, so the delete selects exactly the rows that were copied.
+     * Should the process die between the two files committing, the next batch copies the same rows again,
+     * which INSERT OR REPLACE makes harmless.
+     */
+    public int archiveBatch(TodoShards.Shard shard, LocalDateTime cutoff, int batchSize) {
+        try (Connection connection = shard.dataSource().getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            try (PreparedStatement attach = connection.prepareStatement("ATTACH DATABASE ? AS archive")) {
+                attach.setString(1, shard.archiveFile().toString());
+                attach.execute();
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement copy = connection.prepareStatement(COPY_SQL);
+                 PreparedStatement delete = connection.prepareStatement(DELETE_SQL)) {
+                copy.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                copy.setTimestamp(2, Timestamp.valueOf(cutoff));
+                copy.setInt(3, batchSize);
+                int copied = copy.executeUpdate();
+
+                delete.setTimestamp(1, Timestamp.valueOf(cutoff));
+                delete.setInt(2, batchSize);
+                int deleted = delete.executeUpdate();
+
+                if (copied != deleted) {
+                    throw new IllegalStateException("Archived " + copied + " todos but removed " + deleted);
+                }
+                connection.commit();
+                return copied;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DETACH DATABASE archive");
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Archival batch failed on shard " + shard.index(), e);
+        }
+    }
+
+    /**
+     * Returns up to {@code pages} free pages of the database file to the OS. Only has an effect when the
+     * database was created with auto_vacuum = INCREMENTAL. Returns the number of pages freed.
+     */
+    public long incrementalVacuum(DataSource dataSource, int pages) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            long before = queryLong(statement, "PRAGMA freelist_count");
+            long steps = Math.min(pages, before);
+            if (steps == 0) {
+                return 0;
+            }
+            // The driver steps a statement only once and incremental_vacuum frees one page per step, so the
+            // pragma is re-executed per page inside one transaction
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement vacuum = connection.prepareStatement("PRAGMA incremental_vacuum(1)")) {
+                    for (long i = 0; i < steps; i++) {
+                        vacuum.execute();
+                    }
+                }
+                // Committing while the last step is still open fails with SQLITE_BUSY
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return before - queryLong(statement, "PRAGMA freelist_count");
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Incremental vacuum failed", e);
+        }
+    }
+
+    public long freePages(DataSource dataSource) {
+        return pragma(dataSource, "freelist_count");
+    }
+
+    public long pageCount(DataSource dataSource) {
+        return pragma(dataSource, "page_count");
+    }
+
+    public long pageSize(DataSource dataSource) {
+        return pragma(dataSource, "page_size");
+    }
+
+    /** 0 = NONE, 1 = FULL, 2 = INCREMENTAL. */
+    public long autoVacuumMode(DataSource dataSource) {
+        return pragma(dataSource, "auto_vacuum");
+    }
+
+    private long pragma(DataSource dataSource, String pragma) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            return queryLong(statement, "PRAGMA " + pragma);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to read PRAGMA " + pragma, e);
+        }
+    }
+
+    private long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
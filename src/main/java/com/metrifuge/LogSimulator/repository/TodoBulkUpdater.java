@@ -0,0 +1,267 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import com.metrifuge.LogSimulator.model.Todo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TodoBulkUpdater {
+
+    private final TodoShards shards;
+    private final TodoIdIndex idIndex;
+
+    // Only what cache eviction and analytics need, so a large operation does not read back whole rows
+    private static final String RETURNED_COLUMNS = "id, priority, category, created_at, completed_at, updated_at";
+
+    /** Todos a bulk operation applies to; set criteria must all match, null ones are ignored. */
+    public record Criteria(Boolean completed, Todo.Priority priority, Todo.Category category, String assignedTo,
+                           LocalDateTime dueFrom, LocalDateTime dueBefore, Collection<Long> ids) {}
+
+    /**
+     * Fields a bulk update sets; null ones are left as they are. A separate type rather than {@link Todo}, whose
+     * field defaults would otherwise be written to every matching todo.
+     */
+    public record Changes(Boolean completed, Todo.Priority priority, Todo.Category category, LocalDateTime dueDate,
+                          String assignedTo, String tags, Integer estimatedHours) {
+
+        public static Changes complete() {
+            return new Changes(true, null, null, null, null, null, null);
+        }
+
+        public boolean isEmpty() {
+            return completed == null && priority == null && category == null && dueDate == null
+                    && assignedTo == null && tags == null && estimatedHours == null;
+        }
+    }
+
+    /**
+     * The changed or deleted rows, as they are after an update or were before a delete. Only the ID, priority,
+     * category and timestamps are set.
+     */
+    public record Result(List<Todo> rows, int statements) {}
+
+    /**
+     * Applies the non-null fields of {@code changes} to every todo matching {@code criteria}, bumping
+     * version and updated_at. Completing sets completed_at only on todos that were open, reopening clears it.
+     */
+    public Result update(Criteria criteria, Changes changes, int chunkSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> assignments = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (changes.completed() != null) {
+            if (changes.completed()) {
+                // SET expressions see the row as it was before the update
+                assignments.add("completed = 1");
+                assignments.add("completed_at = CASE WHEN completed = 0 THEN ? ELSE completed_at END");
+                args.add(Timestamp.valueOf(now));
+            } else {
+                assignments.add("completed = 0");
+                assignments.add("completed_at = NULL");
+            }
+        }
+        assign(assignments, args, "priority", changes.priority() != null ? changes.priority().name() : null);
+        assign(assignments, args, "category", changes.category() != null ? changes.category().name() : null);
+        assign(assignments, args, "due_date", changes.dueDate() != null ? Timestamp.valueOf(changes.dueDate()) : null);
+        assign(assignments, args, "assigned_to", changes.assignedTo());
+        assign(assignments, args, "tags", changes.tags());
+        assign(assignments, args, "estimated_hours", changes.estimatedHours());
+        assignments.add("updated_at = ?");
+        args.add(Timestamp.valueOf(now));
+
+        String update = "UPDATE todos SET " + String.join(", ", assignments) + ", version = version + 1 " +
+                "WHERE id IN (%s) RETURNING " + RETURNED_COLUMNS;
+        return execute("update", criteria, update, args, chunkSize);
+    }
+
+    public Result delete(Criteria criteria, int chunkSize) {
+        Result result = execute("delete", criteria, "DELETE FROM todos WHERE id IN (%s) RETURNING " + RETURNED_COLUMNS,
+                List.of(), chunkSize);
+        result.rows().forEach(todo -> idIndex.removed(todo.getId()));
+        return result;
+    }
+
+    private static void assign(List<String> assignments, List<Object> args, String column, Object value) {
+        if (value != null) {
+            assignments.add(column + " = ?");
+            args.add(value);
+        }
+    }
+
+    /**
+     * Runs {@code statement} chunk by chunk on every shard that can hold a matching todo. The chunk subquery
+     * walks the matching IDs in order from the last ID changed, so rows that still match after an update are
+     * not visited twice. Each shard gets one transaction and the transactions are only committed once every
+     * shard has run, so a failure on any shard - including a passed request deadline, checked before each
+     * chunk - rolls all of them back. Only a failure between two shards committing leaves some applied.
+     */
+    private Result execute(String operation, Criteria criteria, String statement, List<Object> assignmentArgs,
+                           int chunkSize) {
+        Map<Integer, Collection<Long>> idsByShard = idsByShard(criteria.ids());
+        if (idsByShard != null && idsByShard.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+
+        List<Todo> rows = new ArrayList<>();
+        List<Connection> connections = new ArrayList<>();
+        int statements = 0;
+        int committed = 0;
+        try {
+            for (TodoShards.Shard shard : shards.all()) {
+                Collection<Long> ids = idsByShard != null ? idsByShard.get(shard.index()) : null;
+                if (idsByShard != null && ids == null) {
+                    continue;
+                }
+                List<Object> whereArgs = new ArrayList<>();
+                String sql = statement.formatted(matchingIds(criteria, ids, whereArgs));
+
+                Connection connection = shard.dataSource().getConnection();
+                connections.add(connection);
+                connection.setAutoCommit(false);
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    int index = 1;
+                    for (Object arg : assignmentArgs) {
+                        ps.setObject(index++, arg);
+                    }
+                    for (Object arg : whereArgs) {
+                        ps.setObject(index++, arg);
+                    }
+                    long afterId = Long.MIN_VALUE;
+                    int changed;
+                    do {
+                        RequestDeadline.check("the next bulk " + operation + " chunk");
+                        ps.setLong(index, afterId);
+                        ps.setInt(index + 1, chunkSize);
+                        changed = 0;
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                Todo todo = changedRow(rs);
+                                rows.add(todo);
+                                changed++;
+                                afterId = Math.max(afterId, todo.getId());
+                            }
+                        }
+                        statements++;
+                    } while (changed == chunkSize);
+                }
+            }
+            for (Connection connection : connections) {
+                connection.commit();
+                committed++;
+            }
+            return new Result(rows, statements);
+        } catch (SQLException | RuntimeException e) {
+            rollback(connections.subList(committed, connections.size()), e);
+            if (committed > 0) {
+                log.error("Bulk {} committed on {} of {} shards before failing", operation, committed,
+                        connections.size());
+            }
+            if (e instanceof SQLException) {
+                // A connection the deadline progress handler was installed on interrupts the statement
+                if (RequestDeadline.expired()) {
+                    throw RequestDeadline.cancelled(e);
+                }
+                throw new DataAccessResourceFailureException("Bulk " + operation + " failed", e);
+            }
+            throw (RuntimeException) e;
+        } finally {
+            for (Connection connection : connections) {
+                try (connection) {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.warn("Failed to release connection after bulk {}", operation, e);
+                }
+            }
+        }
+    }
+
+    private static Todo changedRow(ResultSet rs) throws SQLException {
+        Todo todo = new Todo();
+        todo.setId(rs.getLong("id"));
+        todo.setPriority(Todo.Priority.valueOf(rs.getString("priority")));
+        todo.setCategory(Todo.Category.valueOf(rs.getString("category")));
+        todo.setCreatedAt(localDateTime(rs.getTimestamp("created_at")));
+        todo.setCompletedAt(localDateTime(rs.getTimestamp("completed_at")));
+        todo.setUpdatedAt(localDateTime(rs.getTimestamp("updated_at")));
+        return todo;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /** The chunk subquery; its last two parameters are the ID to continue after and the chunk size. */
+    private static String matchingIds(Criteria criteria, Collection<Long> ids, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM todos WHERE 1 = 1");
+        if (criteria.completed() != null) {
+            sql.append(" AND completed = ?");
+            args.add(criteria.completed());
+        }
+        if (criteria.priority() != null) {
+            sql.append(" AND priority = ?");
+            args.add(criteria.priority().name());
+        }
+        if (criteria.category() != null) {
+            sql.append(" AND category = ?");
+            args.add(criteria.category().name());
+        }
+        if (criteria.assignedTo() != null) {
+            sql.append(" AND assigned_to = ?");
+            args.add(criteria.assignedTo());
+        }
+        if (criteria.dueFrom() != null) {
+            sql.append(" AND due_date >= ?");
+            args.add(Timestamp.valueOf(criteria.dueFrom()));
+        }
+        if (criteria.dueBefore() != null) {
+            sql.append(" AND due_date < ?");
+            args.add(Timestamp.valueOf(criteria.dueBefore()));
+        }
+        if (ids != null) {
+            sql.append(" AND id IN (").append(String.join(", ", Collections.nCopies(ids.size(), "?"))).append(")");
+            args.addAll(ids);
+        }
+        return sql.append(" AND id > ? ORDER BY id LIMIT ?").toString();
+    }
+
+    /** Null without an ID criterion, otherwise the IDs that might exist grouped by shard index. */
+    private Map<Integer, Collection<Long>> idsByShard(Collection<Long> ids) {
+        if (ids == null) {
+            return null;
+        }
+        Map<Integer, Collection<Long>> byShard = new TreeMap<>();
+        for (Long id : ids) {
+            if (id != null && idIndex.mightExist(id)) {
+                byShard.computeIfAbsent(shards.indexOf(id), index -> new ArrayList<>()).add(id);
+            }
+        }
+        return byShard;
+    }
+
+    private static void rollback(List<Connection> connections, Exception failure) {
+        for (Connection connection : connections) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+}
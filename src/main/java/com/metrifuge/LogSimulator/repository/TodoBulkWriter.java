@@ -0,0 +1,321 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.model.Todo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TodoBulkWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO todos (id, title, description, completed, priority, category, created_at, updated_at, " +
+            "due_date, completed_at, assigned_to, tags, estimated_hours, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int QUEUED_BATCHES_PER_SHARD = 4;
+
+    private final TodoShards shards;
+    private final TodoIdIndex idIndex;
+
+    /**
+     * Inserts every todo from the iterator using batched prepared inserts on one connection per shard,
+     * committing every {@code commitInterval} rows. Todos with a null id get the next id from the
+     * shard sequence. With more than one shard the calling thread routes rows to one loader thread per
+     * shard, so the shards are written in parallel.
+     */
+    public long load(Iterator<Todo> todos, int batchSize, int commitInterval, boolean deferIndexes) {
+        if (batchSize <= 0 || commitInterval <= 0) {
+            throw new IllegalArgumentException("Batch size and commit interval must be positive, got "
+                    + batchSize + " and " + commitInterval);
+        }
+        // Rows loaded here are not added to the ID index; it is rebuilt when the dataset change is published
+        idIndex.invalidate();
+        try {
+            if (shards.count() == 1) {
+                return loadShard(shards.all().get(0), new AssigningIterator(todos), batchSize, commitInterval,
+                        deferIndexes);
+            }
+            return loadParallel(todos, batchSize, commitInterval, deferIndexes);
+        } finally {
+            shards.resetIds();
+        }
+    }
+
+    public void truncate() {
+        idIndex.invalidate();
+        for (TodoShards.Shard shard : shards.all()) {
+            try (Connection connection = shard.dataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM todos");
+                statement.executeUpdate("DELETE FROM sqlite_sequence WHERE name = 'todos'");
+            } catch (SQLException e) {
+                throw new DataAccessResourceFailureException("Failed to truncate todos on shard " + shard.index(), e);
+            }
+            shard.archiveJdbcTemplate().update("DELETE FROM todos");
+        }
+        shards.resetIds();
+    }
+
+    private long loadParallel(Iterator<Todo> todos, int batchSize, int commitInterval, boolean deferIndexes) {
+        int count = shards.count();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService loaders = Executors.newFixedThreadPool(count, runnable ->
+                new Thread(runnable, "bulk-load-" + threadCount.incrementAndGet()));
+        try {
+            List<BlockingQueue<List<Todo>>> queues = new ArrayList<>(count);
+            List<Future<Long>> results = new ArrayList<>(count);
+            List<List<Todo>> pending = new ArrayList<>(count);
+            for (TodoShards.Shard shard : shards.all()) {
+                BlockingQueue<List<Todo>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES_PER_SHARD);
+                queues.add(queue);
+                results.add(loaders.submit(() ->
+                        loadShard(shard, new QueueIterator(queue), batchSize, commitInterval, deferIndexes)));
+                pending.add(new ArrayList<>(batchSize));
+            }
+
+            Iterator<Todo> assigning = new AssigningIterator(todos);
+            while (assigning.hasNext()) {
+                Todo todo = assigning.next();
+                int index = shards.indexOf(todo.getId());
+                List<Todo> batch = pending.get(index);
+                batch.add(todo);
+                if (batch.size() == batchSize) {
+                    hand(queues.get(index), batch, results.get(index));
+                    pending.set(index, new ArrayList<>(batchSize));
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (!pending.get(i).isEmpty()) {
+                    hand(queues.get(i), pending.get(i), results.get(i));
+                }
+                hand(queues.get(i), List.of(), results.get(i));
+            }
+
+            long rows = 0;
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Bulk load of todos was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new DataAccessResourceFailureException("Bulk load of todos failed", e.getCause());
+        } finally {
+            loaders.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a batch for a shard loader, failing fast if that loader has already died instead of
+     * blocking on its full queue forever. An empty batch tells the loader the input is exhausted.
+     */
+    private void hand(BlockingQueue<List<Todo>> queue, List<Todo> batch, Future<Long> loader)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (loader.isDone()) {
+                loader.get();
+                throw new IllegalStateException("Shard loader stopped before the end of the input");
+            }
+        }
+    }
+
+    private long loadShard(TodoShards.Shard shard, Iterator<Todo> todos, int batchSize, int commitInterval,
+                           boolean deferIndexes) {
+        try (Connection connection = shard.dataSource().getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            String synchronous = queryPragma(connection, "synchronous");
+            List<String> deferredIndexes = deferIndexes ? dropSecondaryIndexes(connection) : List.of();
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA synchronous = OFF");
+            }
+            connection.setAutoCommit(false);
+
+            long rows = 0;
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                int pending = 0;
+                while (todos.hasNext()) {
+                    bind(insert, todos.next());
+                    insert.addBatch();
+                    rows++;
+
+                    if (++pending == batchSize) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                    if (rows % commitInterval == 0) {
+                        if (pending > 0) {
+                            insert.executeBatch();
+                            pending = 0;
+                        }
+                        connection.commit();
+                        log.debug("Bulk load committed {} rows so far on shard {}", rows, shard.index());
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA synchronous = " + synchronous);
+                }
+                recreateIndexes(connection, deferredIndexes);
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Bulk load of todos failed on shard " + shard.index(), e);
+        }
+    }
+
+    private void bind(PreparedStatement insert, Todo todo) throws SQLException {
+        insert.setLong(1, todo.getId());
+        insert.setString(2, todo.getTitle());
+        insert.setString(3, todo.getDescription());
+        insert.setBoolean(4, todo.getCompleted());
+        insert.setString(5, todo.getPriority().name());
+        insert.setString(6, todo.getCategory().name());
+        insert.setTimestamp(7, toTimestamp(todo.getCreatedAt()));
+        insert.setTimestamp(8, toTimestamp(todo.getUpdatedAt()));
+        insert.setTimestamp(9, toTimestamp(todo.getDueDate()));
+        insert.setTimestamp(10, toTimestamp(todo.getCompletedAt()));
+        insert.setString(11, todo.getAssignedTo());
+        insert.setString(12, todo.getTags());
+        insert.setInt(13, todo.getEstimatedHours());
+        insert.setLong(14, todo.getVersion() != null ? todo.getVersion() : 0);
+    }
+
+    private Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private String queryPragma(Connection connection, String pragma) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA " + pragma)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private List<String> dropSecondaryIndexes(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<>();
+        List<String> definitions = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT name, sql FROM sqlite_master WHERE type = 'index' AND tbl_name = 'todos' AND sql IS NOT NULL")) {
+            while (rs.next()) {
+                names.add(rs.getString("name"));
+                definitions.add(rs.getString("sql"));
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String name : names) {
+                log.debug("Dropping index {} for the duration of the bulk load", name);
+                statement.execute("DROP INDEX IF EXISTS \"" + name + "\"");
+            }
+        }
+        return definitions;
+    }
+
+    private void recreateIndexes(Connection connection, List<String> definitions) throws SQLException {
+        if (definitions.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            for (String definition : definitions) {
+                statement.execute(definition);
+            }
+        }
+        log.info("Recreated {} deferred indexes in {}ms", definitions.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private class AssigningIterator implements Iterator<Todo> {
+
+        private final Iterator<Todo> delegate;
+
+        AssigningIterator(Iterator<Todo> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public Todo next() {
+            Todo todo = delegate.next();
+            if (todo.getId() == null) {
+                todo.setId(shards.nextId());
+            }
+            return todo;
+        }
+    }
+
+    private static class QueueIterator implements Iterator<Todo> {
+
+        private final BlockingQueue<List<Todo>> queue;
+        private List<Todo> batch = List.of();
+        private int index;
+        private boolean finished;
+
+        QueueIterator(BlockingQueue<List<Todo>> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!finished && index == batch.size()) {
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataAccessResourceFailureException("Shard loader was interrupted", e);
+                }
+                index = 0;
+                finished = batch.isEmpty();
+            }
+            return !finished;
+        }
+
+        @Override
+        public Todo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(index++);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.service.DatasetChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory set of the todo IDs that exist, in the shards or their archives, so lookups of missing IDs
+ * are answered without a query.
+ *
+ * IDs are allocated densely from one sequence, so the set is a bitset split into chunks of 64K IDs that
+ * are allocated as the sequence reaches them; a million todos take about 128KB. Inserts and deletes
+ * through {@link TodoRepository} keep it current. Bulk loads and truncates invalidate it, and it is
+ * rebuilt from the database on a background thread when the dataset is loaded at startup, seeded or
+ * restored. Until it is built every ID might exist and lookups go to the database.
+ *
+ * Writes that race with a rebuild are applied to both the current and the new set. The only error this
+ * can leave is a deleted ID still marked present, which costs a query, never a wrong 404.
+ */
+@Component
+@Slf4j
+public class TodoIdIndex {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int WORDS_PER_CHUNK = 1 << (CHUNK_SHIFT - 6);
+
+    private final boolean enabled;
+    private final TodoShards shards;
+
+    private volatile Bits current;
+    private volatile Bits building;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Map<String, Object> lastBuild;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unbuiltLookups = new LongAdder();
+
+    public TodoIdIndex(@Value("${todo.id-index.enabled:true}") boolean enabled, TodoShards shards) {
+        this.enabled = enabled;
+        this.shards = shards;
+    }
+
+    /**
+     * False only when the ID is known not to exist; true when it exists or the index is not built.
+     */
+    public boolean mightExist(long id) {
+        Bits bits = current;
+        if (bits == null) {
+            unbuiltLookups.increment();
+            return true;
+        }
+        lookups.increment();
+        if (id > 0 && bits.get(id)) {
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    // The set being built is read first: a finished build publishes current before clearing building, so
+    // a write that sees no build in progress is guaranteed to see the set it produced
+    public void added(long id) {
+        Bits next = building;
+        if (next != null) {
+            next.set(id);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.set(id);
+        }
+    }
+
+    public void removed(long id) {
+        Bits next = building;
+        if (next != null) {
+            next.clear(id);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.clear(id);
+        }
+    }
+
+    /**
+     * Stops answering from the index until the next rebuild, for writes that bypass the repository.
+     */
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        current = null;
+        building = null;
+    }
+
+    @EventListener
+    public synchronized void onDatasetChanged(DatasetChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long buildGeneration = generation.incrementAndGet();
+        Bits fresh = new Bits();
+        current = null;
+        building = fresh;
+        Thread thread = new Thread(() -> build(fresh, buildGeneration, event.source()), "id-index-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Bits bits = current;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("built", bits != null);
+        statistics.put("building", building != null);
+        if (bits != null) {
+            statistics.put("ids", bits.count());
+            statistics.put("chunks", bits.chunks.size());
+            statistics.put("memoryBytes", (long) bits.chunks.size() * WORDS_PER_CHUNK * Long.BYTES);
+        }
+        long lookupCount = lookups.sum();
+        long missCount = misses.sum();
+        statistics.put("lookups", lookupCount);
+        statistics.put("missesAnswered", missCount);
+        statistics.put("missRatio", lookupCount > 0 ? (double) missCount / lookupCount : 0.0);
+        statistics.put("lookupsWhileUnbuilt", unbuiltLookups.sum());
+        statistics.put("lastBuild", lastBuild);
+        return statistics;
+    }
+
+    private void build(Bits target, long buildGeneration, String source) {
+        long startTime = System.currentTimeMillis();
+        try {
+            shards.queryAll(jdbc -> {
+                jdbc.query("SELECT id FROM todos", rs -> {
+                    target.set(rs.getLong(1));
+                });
+                return null;
+            }, true);
+        } catch (RuntimeException e) {
+            log.warn("Could not build todo ID index after {}: {}", source, e.getMessage());
+            synchronized (this) {
+                if (generation.get() == buildGeneration) {
+                    building = null;
+                }
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (generation.get() != buildGeneration) {
+                log.debug("Discarding todo ID index built after {}; the dataset changed again", source);
+                return;
+            }
+            current = target;
+            building = null;
+        }
+
+        Map<String, Object> build = new LinkedHashMap<>();
+        build.put("source", source);
+        build.put("ids", target.count());
+        build.put("durationMs", System.currentTimeMillis() - startTime);
+        lastBuild = build;
+        log.info("Todo ID index built after {} with {} IDs in {}ms", source, build.get("ids"), build.get("durationMs"));
+    }
+
+    private static final class Bits {
+
+        private final ConcurrentHashMap<Long, AtomicLongArray> chunks = new ConcurrentHashMap<>();
+
+        boolean get(long id) {
+            AtomicLongArray chunk = chunks.get(id >>> CHUNK_SHIFT);
+            return chunk != null && (chunk.get(word(id)) & mask(id)) != 0;
+        }
+
+        void set(long id) {
+            if (id <= 0) {
+                return;
+            }
+            AtomicLongArray chunk = chunks.computeIfAbsent(id >>> CHUNK_SHIFT, key -> new AtomicLongArray(WORDS_PER_CHUNK));
+            chunk.accumulateAndGet(word(id), mask(id), (bits, mask) -> bits | mask);
+        }
+
+        void clear(long id) {
+            AtomicLongArray chunk = chunks.get(id >>> CHUNK_SHIFT);
+            if (chunk != null) {
+                chunk.accumulateAndGet(word(id), ~mask(id), (bits, mask) -> bits & mask);
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (AtomicLongArray chunk : chunks.values()) {
+                for (int i = 0; i < WORDS_PER_CHUNK; i++) {
+                    count += Long.bitCount(chunk.get(i));
+                }
+            }
+            return count;
+        }
+
+        private static int word(long id) {
+            return (int) (id >>> 6) & (WORDS_PER_CHUNK - 1);
+        }
+
+        private static long mask(long id) {
+            return 1L << id;
+        }
+    }
+}
@@ -4,22 +4,60 @@ import com.metrifuge.LogSimulator.model.Todo;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 @Slf4j
 public class TodoRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private static final Comparator<Todo> NEWEST_FIRST = Comparator
+            .comparing(Todo::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(Todo::getId, Comparator.reverseOrder());
+
+    private static final Comparator<Todo> DUE_FIRST = Comparator
+            .comparing(Todo::getDueDate)
+            .thenComparing(Todo::getId);
+
+    private static final Comparator<Todo> BY_ID = Comparator.comparing(Todo::getId);
+
+    private final TodoShards shards;
+    private final TodoIdIndex idIndex;
+
+    // Numbered parameters so the completion flag and timestamp can be referenced more than once. SET
+    // expressions see the row as it was before the update, which is what the completed_at CASE relies on.
+    private static final String CONDITIONAL_UPDATE_SQL =
+            "UPDATE todos SET title = ?1, description = ?2, " +
+            "completed = COALESCE(?3, completed), " +
+            "completed_at = CASE WHEN ?3 = 1 AND completed = 0 THEN ?4 WHEN ?3 = 0 THEN NULL ELSE completed_at END, " +
+            "priority = COALESCE(?5, priority), category = COALESCE(?6, category), updated_at = ?4, " +
+            "due_date = ?7, assigned_to = ?8, tags = ?9, estimated_hours = COALESCE(?10, estimated_hours), " +
+            "version = version + 1 " +
+            "WHERE id = ?11";
+
+    // Only the completion fields change, so a concurrent edit of the other fields is not overwritten
+    private static final String CONDITIONAL_COMPLETE_SQL =
+            "UPDATE todos SET completed = 1, completed_at = CASE WHEN completed = 0 THEN ?1 ELSE completed_at END, " +
+            "updated_at = ?1, version = version + 1 " +
+            "WHERE id = ?2";
 
     private final RowMapper<Todo> todoRowMapper = new RowMapper<Todo>() {
         @Override
@@ -47,6 +85,7 @@ public class TodoRepository {
             todo.setAssignedTo(rs.getString("assigned_to"));
             todo.setTags(rs.getString("tags"));
             todo.setEstimatedHours(rs.getInt("estimated_hours"));
+            todo.setVersion(rs.getLong("version"));
 
             return todo;
         }
@@ -61,15 +100,19 @@ public class TodoRepository {
     }
 
     private Todo insert(Todo todo) {
-        String sql = "INSERT INTO todos (title, description, completed, priority, category, created_at, updated_at, " +
+        String sql = "INSERT INTO todos (id, title, description, completed, priority, category, created_at, updated_at, " +
                      "due_date, completed_at, assigned_to, tags, estimated_hours) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         LocalDateTime now = LocalDateTime.now();
         todo.setCreatedAt(now);
         todo.setUpdatedAt(now);
 
-        jdbcTemplate.update(sql,
+        // IDs are allocated up front rather than read back with last_insert_rowid(), which is
+        // per-connection, because the ID decides which shard the row goes to
+        long id = shards.nextId();
+        shards.forId(id).jdbcTemplate().update(sql,
+            id,
             todo.getTitle(),
             todo.getDescription(),
             todo.getCompleted(),
@@ -84,20 +127,19 @@ public class TodoRepository {
             todo.getEstimatedHours()
         );
 
-        // SQLite-compatible way to get the last inserted ID
-        Long id = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Long.class);
+        idIndex.added(id);
         todo.setId(id);
         return todo;
     }
 
     private Todo update(Todo todo) {
         String sql = "UPDATE todos SET title = ?, description = ?, completed = ?, priority = ?, category = ?, " +
-                     "updated_at = ?, due_date = ?, completed_at = ?, assigned_to = ?, tags = ?, estimated_hours = ? " +
-                     "WHERE id = ?";
+                     "updated_at = ?, due_date = ?, completed_at = ?, assigned_to = ?, tags = ?, estimated_hours = ?, " +
+                     "version = version + 1 WHERE id = ?";
 
         todo.setUpdatedAt(LocalDateTime.now());
 
-        jdbcTemplate.update(sql,
+        shards.forId(todo.getId()).jdbcTemplate().update(sql,
             todo.getTitle(),
             todo.getDescription(),
             todo.getCompleted(),
@@ -112,18 +154,162 @@ public class TodoRepository {
             todo.getId()
         );
 
+        todo.setVersion(todo.getVersion() + 1);
         return todo;
     }
 
+    /**
+     * Applies {@code changes} to a todo in one statement and returns the updated row, or empty when no row
+     * was updated - because the todo does not exist or, with {@code expectedVersion} set, because its
+     * version has moved on. A null completed, priority, category or estimatedHours keeps the stored value;
+     * the other fields are overwritten. Completing a todo sets completed_at to the update time, reopening
+     * it clears completed_at.
+     */
+    public Optional<Todo> updateIfVersion(Long id, Todo changes, Long expectedVersion) {
+        if (!idIndex.mightExist(id)) {
+            return Optional.empty();
+        }
+        String sql = CONDITIONAL_UPDATE_SQL + (expectedVersion != null ? " AND version = ?12" : "") + " RETURNING *";
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object> args = new ArrayList<>(12);
+        args.add(changes.getTitle());
+        args.add(changes.getDescription());
+        args.add(changes.getCompleted());
+        args.add(Timestamp.valueOf(now));
+        args.add(changes.getPriority() != null ? changes.getPriority().name() : null);
+        args.add(changes.getCategory() != null ? changes.getCategory().name() : null);
+        args.add(changes.getDueDate() != null ? Timestamp.valueOf(changes.getDueDate()) : null);
+        args.add(changes.getAssignedTo());
+        args.add(changes.getTags());
+        args.add(changes.getEstimatedHours());
+        args.add(id);
+        if (expectedVersion != null) {
+            args.add(expectedVersion);
+        }
+
+        List<Todo> todos = shards.forId(id).jdbcTemplate().query(sql, todoRowMapper, args.toArray());
+        return todos.isEmpty() ? Optional.empty() : Optional.of(todos.get(0));
+    }
+
+    /**
+     * Marks a todo complete in one statement, leaving its other fields as they are, and returns the updated
+     * row. Empty under the same conditions as {@link #updateIfVersion}.
+     */
+    public Optional<Todo> completeIfVersion(Long id, Long expectedVersion) {
+        if (!idIndex.mightExist(id)) {
+            return Optional.empty();
+        }
+        String sql = CONDITIONAL_COMPLETE_SQL + (expectedVersion != null ? " AND version = ?3" : "") + " RETURNING *";
+        Object[] args = expectedVersion != null
+                ? new Object[] {Timestamp.valueOf(LocalDateTime.now()), id, expectedVersion}
+                : new Object[] {Timestamp.valueOf(LocalDateTime.now()), id};
+
+        List<Todo> todos = shards.forId(id).jdbcTemplate().query(sql, todoRowMapper, args);
+        return todos.isEmpty() ? Optional.empty() : Optional.of(todos.get(0));
+    }
+
+    public Optional<Long> findVersion(Long id) {
+        if (!idIndex.mightExist(id)) {
+            return Optional.empty();
+        }
+        String sql = "SELECT version FROM todos WHERE id = ?";
+        List<Long> versions = shards.forId(id).jdbcTemplate().queryForList(sql, Long.class, id);
+        return versions.isEmpty() ? Optional.empty() : Optional.of(versions.get(0));
+    }
+
     public Optional<Todo> findById(Long id) {
+        return findById(id, false);
+    }
+
+    public Optional<Todo> findById(Long id, boolean includeArchived) {
+        if (!idIndex.mightExist(id)) {
+            return Optional.empty();
+        }
         String sql = "SELECT * FROM todos WHERE id = ?";
-        List<Todo> todos = jdbcTemplate.query(sql, todoRowMapper, id);
+        TodoShards.Shard shard = shards.forId(id);
+        List<Todo> todos = shard.jdbcTemplate().query(sql, todoRowMapper, id);
+        if (todos.isEmpty() && includeArchived) {
+            todos = shard.archiveJdbcTemplate().query(sql, todoRowMapper, id);
+        }
         return todos.isEmpty() ? Optional.empty() : Optional.of(todos.get(0));
     }
 
+    /**
+     * Fetches the todos with the given IDs, in no particular order; IDs without a todo are left out. IDs are
+     * grouped by shard and each shard prepares one {@code WHERE id IN (...)} statement with {@code chunkSize}
+     * placeholders and runs it once per chunk. Only IDs missing from a shard are looked up in its archive.
+     */
+    public List<Todo> findByIds(Collection<Long> ids, boolean includeArchived, int chunkSize) {
+        List<List<Long>> byShard = new ArrayList<>(shards.count());
+        for (int i = 0; i < shards.count(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            if (idIndex.mightExist(id)) {
+                byShard.get(shards.indexOf(id)).add(id);
+            }
+        }
+
+        String sql = "SELECT * FROM todos WHERE id IN (" + String.join(", ", Collections.nCopies(chunkSize, "?")) + ")";
+        List<Todo> found = new ArrayList<>(ids.size());
+        for (TodoShards.Shard shard : shards.all()) {
+            List<Long> shardIds = byShard.get(shard.index());
+            if (shardIds.isEmpty()) {
+                continue;
+            }
+            List<Todo> live = findChunked(shard.jdbcTemplate(), sql, shardIds, chunkSize);
+            found.addAll(live);
+            if (includeArchived && live.size() < shardIds.size()) {
+                Set<Long> missing = new HashSet<>(shardIds);
+                live.forEach(todo -> missing.remove(todo.getId()));
+                found.addAll(findChunked(shard.archiveJdbcTemplate(), sql, new ArrayList<>(missing), chunkSize));
+            }
+        }
+        return found;
+    }
+
+    private List<Todo> findChunked(JdbcTemplate jdbcTemplate, String sql, List<Long> ids, int chunkSize) {
+        return jdbcTemplate.execute(sql, (PreparedStatement ps) -> {
+            List<Todo> todos = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                for (int i = 0; i < chunkSize; i++) {
+                    if (from + i < ids.size()) {
+                        ps.setLong(i + 1, ids.get(from + i));
+                    } else {
+                        ps.setNull(i + 1, Types.BIGINT);
+                    }
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        todos.add(todoRowMapper.mapRow(rs, todos.size()));
+                    }
+                }
+            }
+            return todos;
+        });
+    }
+
     public List<Todo> findAll() {
-        String sql = "SELECT * FROM todos ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper);
+        return findAll(false);
+    }
+
+    public List<Todo> findAll(boolean includeArchived) {
+        String sql = "SELECT * FROM todos ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper), NEWEST_FIRST, includeArchived);
+    }
+
+    public List<Todo> findPageAfterId(long afterId, int limit) {
+        return findPageAfterId(afterId, limit, false);
+    }
+
+    /**
+     * Keyset page in ID order: every shard returns its first {@code limit} todos after {@code afterId} and the
+     * merge keeps the lowest {@code limit} of them.
+     */
+    public List<Todo> findPageAfterId(long afterId, int limit, boolean includeArchived) {
+        String sql = "SELECT * FROM todos WHERE id > ? ORDER BY id ASC LIMIT ?";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, afterId, limit), BY_ID, limit, includeArchived);
     }
 
     public void delete(Todo todo) {
@@ -132,67 +318,100 @@ public class TodoRepository {
 
     public void deleteById(Long id) {
         String sql = "DELETE FROM todos WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+        // A todo the archiver moved in the meantime still exists, in the archive, so it stays in the index
+        if (shards.forId(id).jdbcTemplate().update(sql, id) == 1) {
+            idIndex.removed(id);
+        }
     }
 
-    public List<Todo> findByCompleted(Boolean completed) {
-        String sql = "SELECT * FROM todos WHERE completed = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, completed);
+    public List<Todo> findByCompleted(Boolean completed, boolean includeArchived) {
+        String sql = "SELECT * FROM todos WHERE completed = ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, completed), NEWEST_FIRST, includeArchived);
     }
 
-    public List<Todo> findByPriority(Todo.Priority priority) {
-        String sql = "SELECT * FROM todos WHERE priority = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, priority.name());
+    public List<Todo> findByPriority(Todo.Priority priority, boolean includeArchived) {
+        String sql = "SELECT * FROM todos WHERE priority = ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, priority.name()), NEWEST_FIRST, includeArchived);
     }
 
-    public List<Todo> findByCategory(Todo.Category category) {
-        String sql = "SELECT * FROM todos WHERE category = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, category.name());
+    public List<Todo> findByCategory(Todo.Category category, boolean includeArchived) {
+        String sql = "SELECT * FROM todos WHERE category = ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, category.name()), NEWEST_FIRST, includeArchived);
     }
 
     public List<Todo> findByAssignedTo(String assignedTo) {
-        String sql = "SELECT * FROM todos WHERE assigned_to = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, assignedTo);
+        String sql = "SELECT * FROM todos WHERE assigned_to = ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, assignedTo), NEWEST_FIRST);
     }
 
     public List<Todo> findByCompletedAndPriority(Boolean completed, Todo.Priority priority) {
-        String sql = "SELECT * FROM todos WHERE completed = ? AND priority = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, completed, priority.name());
+        String sql = "SELECT * FROM todos WHERE completed = ? AND priority = ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, completed, priority.name()), NEWEST_FIRST);
     }
 
     public List<Todo> findByDueDateBetween(LocalDateTime start, LocalDateTime end) {
-        String sql = "SELECT * FROM todos WHERE due_date BETWEEN ? AND ? ORDER BY due_date ASC";
-        return jdbcTemplate.query(sql, todoRowMapper, Timestamp.valueOf(start), Timestamp.valueOf(end));
+        String sql = "SELECT * FROM todos WHERE due_date BETWEEN ? AND ? ORDER BY due_date ASC, id ASC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, Timestamp.valueOf(start), Timestamp.valueOf(end)),
+                DUE_FIRST);
     }
 
-    public List<Todo> searchByKeyword(String keyword) {
-        String sql = "SELECT * FROM todos WHERE title LIKE ? OR description LIKE ? ORDER BY created_at DESC";
+    public List<Todo> searchByKeyword(String keyword, boolean includeArchived) {
+        String sql = "SELECT * FROM todos WHERE title LIKE ? OR description LIKE ? ORDER BY created_at DESC, id DESC";
         String searchPattern = "%" + keyword + "%";
-        return jdbcTemplate.query(sql, todoRowMapper, searchPattern, searchPattern);
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, searchPattern, searchPattern), NEWEST_FIRST,
+                includeArchived);
     }
 
     public List<Todo> findByCreatedAtAfter(LocalDateTime date) {
-        String sql = "SELECT * FROM todos WHERE created_at > ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, todoRowMapper, Timestamp.valueOf(date));
+        String sql = "SELECT * FROM todos WHERE created_at > ? ORDER BY created_at DESC, id DESC";
+        return shards.merge(jdbc -> jdbc.query(sql, todoRowMapper, Timestamp.valueOf(date)), NEWEST_FIRST);
+    }
+
+    /** Streams the todos created in [from, to) to {@code consumer}, on every shard in parallel. */
+    public void forEachCreatedBetween(LocalDateTime from, LocalDateTime to, Consumer<Todo> consumer) {
+        String sql = "SELECT * FROM todos WHERE created_at >= ? AND created_at < ?";
+        forEach(sql, consumer, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /** Streams the todos completed in [from, to) to {@code consumer}, on every shard in parallel. */
+    public void forEachCompletedBetween(LocalDateTime from, LocalDateTime to, Consumer<Todo> consumer) {
+        String sql = "SELECT * FROM todos WHERE completed = 1 AND completed_at >= ? AND completed_at < ?";
+        forEach(sql, consumer, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private void forEach(String sql, Consumer<Todo> consumer, Object... args) {
+        shards.queryAll(jdbc -> {
+            jdbc.query(sql, (RowCallbackHandler) rs -> consumer.accept(todoRowMapper.mapRow(rs, 0)), args);
+            return null;
+        });
     }
 
     public Long count() {
         String sql = "SELECT COUNT(*) FROM todos";
-        return jdbcTemplate.queryForObject(sql, Long.class);
+        return shards.sum(jdbc -> jdbc.queryForObject(sql, Long.class));
     }
 
     public Long countByCompleted(Boolean completed) {
         String sql = "SELECT COUNT(*) FROM todos WHERE completed = ?";
-        return jdbcTemplate.queryForObject(sql, Long.class, completed);
+        return shards.sum(jdbc -> jdbc.queryForObject(sql, Long.class, completed));
     }
 
     public Long countByPriority(Todo.Priority priority) {
         String sql = "SELECT COUNT(*) FROM todos WHERE priority = ?";
-        return jdbcTemplate.queryForObject(sql, Long.class, priority.name());
+        return shards.sum(jdbc -> jdbc.queryForObject(sql, Long.class, priority.name()));
     }
 
     public Long countByCategory(Todo.Category category) {
         String sql = "SELECT COUNT(*) FROM todos WHERE category = ?";
-        return jdbcTemplate.queryForObject(sql, Long.class, category.name());
+        return shards.sum(jdbc -> jdbc.queryForObject(sql, Long.class, category.name()));
+    }
+
+    public Long countArchived() {
+        String sql = "SELECT COUNT(*) FROM todos";
+        long total = 0;
+        for (TodoShards.Shard shard : shards.all()) {
+            total += shard.archiveJdbcTemplate().queryForObject(sql, Long.class);
+        }
+        return total;
     }
 }
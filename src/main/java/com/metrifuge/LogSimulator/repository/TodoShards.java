@@ -0,0 +1,381 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.DeadlineProperties;
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import com.metrifuge.LogSimulator.config.ShardingProperties;
+import com.metrifuge.LogSimulator.logging.MdcTaskDecorator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The SQLite databases todos are spread across.
+ *
+ * With one shard this is the spring.datasource database. With N shards every shard is its own file and
+ * connection pool in WAL mode, so N writers can commit at the same time. IDs come from one sequence and a
+ * todo lives on shard {@code id % N}, which makes lookups by ID a single-shard query and spreads new todos
+ * evenly. Queries that are not keyed by ID run on every shard in parallel and the per-shard results, each
+ * already sorted by the query's ORDER BY, are k-way merged.
+ *
+ * Every shard has a companion archive file next to it ({@code todos-archive.db} for {@code todos.db})
+ * with a {@code todos} table of the same shape, where {@link TodoArchiver} moves old completed todos.
+ * Queries can include the archives, in which case they run against both files of every shard.
+ *
+ * Each shard file records the shard count and its index in {@code shard_layout}, and startup fails when they
+ * differ from the configuration, because {@code id % N} would then send IDs to the wrong file.
+ *
+ * All statements go through a {@link DeadlineJdbcTemplate}, and queries handed to the query threads carry
+ * the request deadline along, so every shard stops when the request runs out of time.
+ */
+@Component
+@Slf4j
+public class TodoShards {
+
+    private static final long UNSEEDED = -1;
+
+    private final List<Shard> shards;
+    private final List<HikariDataSource> ownedPools = new ArrayList<>();
+    private final ExecutorService queryExecutor;
+    private final AtomicLong lastId = new AtomicLong(UNSEEDED);
+
+    public TodoShards(DataSource dataSource, JdbcTemplate jdbcTemplate, ShardingProperties properties,
+                      JdbcInstrumentation instrumentation, DeadlineProperties deadlineProperties) {
+        int count = Math.max(1, properties.getShards());
+        int progressInterval = deadlineProperties.getProgressInterval();
+        if (count == 1) {
+            Path archiveFile = archiveFileFor(primaryFile(jdbcTemplate));
+            HikariDataSource archivePool = createPool(archiveFile, "archive-0", properties);
+            ownedPools.add(archivePool);
+            DataSource archive = instrumentation.wrap(archivePool, "archive-0");
+            this.shards = List.of(new Shard(0, dataSource, new DeadlineJdbcTemplate(dataSource, progressInterval),
+                    archiveFile, archive, new DeadlineJdbcTemplate(archive, progressInterval)));
+            this.queryExecutor = null;
+            verifyLayout();
+            log.info("Sharding disabled - todos are stored in the primary datasource, archive in {}", archiveFile);
+            return;
+        }
+
+        Path directory = Paths.get(properties.getDirectory());
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create shard directory " + directory, e);
+        }
+
+        List<Shard> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Path file = directory.resolve("todos-" + i + ".db");
+            Path archiveFile = archiveFileFor(file.toString());
+            HikariDataSource pool = createPool(file, "shard-" + i, properties);
+            HikariDataSource archivePool = createPool(archiveFile, "archive-" + i, properties);
+            ownedPools.add(pool);
+            ownedPools.add(archivePool);
+            DataSource shard = instrumentation.wrap(pool, "shard-" + i);
+            DataSource archive = instrumentation.wrap(archivePool, "archive-" + i);
+            created.add(new Shard(i, shard, new DeadlineJdbcTemplate(shard, progressInterval),
+                    archiveFile, archive, new DeadlineJdbcTemplate(archive, progressInterval)));
+        }
+        this.shards = List.copyOf(created);
+        verifyLayout();
+
+        int threads = properties.getQueryThreads() > 0 ? properties.getQueryThreads() : count;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.queryExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Sharding enabled - {} shards in {} ({} connections each, {} query threads)",
+                count, directory.toAbsolutePath(), properties.getPoolSize(), threads);
+    }
+
+    public int count() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard forId(long id) {
+        return shards.get(indexOf(id));
+    }
+
+    public int indexOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.size());
+    }
+
+    /**
+     * Allocates the next todo ID. The sequence is seeded lazily from the highest ID any shard has used,
+     * including deleted ones recorded in sqlite_sequence, so IDs are not reused across restarts.
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastId.get();
+            if (last == UNSEEDED) {
+                seedIds();
+                continue;
+            }
+            if (lastId.compareAndSet(last, last + 1)) {
+                return last + 1;
+            }
+        }
+    }
+
+    /**
+     * Forgets the ID sequence so the next allocation re-reads it. Called after bulk loads and truncates,
+     * which write IDs without going through {@link #nextId()}.
+     */
+    public void resetIds() {
+        lastId.set(UNSEEDED);
+    }
+
+    /**
+     * Runs the query on every shard and returns the per-shard results in shard order. Shard 0 runs on the
+     * calling thread, the others on the query executor.
+     */
+    public <T> List<T> queryAll(Function<JdbcTemplate, T> query) {
+        return queryAll(query, false);
+    }
+
+    /**
+     * Same as {@link #queryAll(Function)}, with the archive files appended after the shards when
+     * {@code includeArchived} is set.
+     */
+    public <T> List<T> queryAll(Function<JdbcTemplate, T> query, boolean includeArchived) {
+        List<JdbcTemplate> targets = new ArrayList<>(includeArchived ? shards.size() * 2 : shards.size());
+        shards.forEach(shard -> targets.add(shard.jdbcTemplate()));
+        if (includeArchived) {
+            shards.forEach(shard -> targets.add(shard.archiveJdbcTemplate()));
+        }
+        if (targets.size() == 1) {
+            return Collections.singletonList(query.apply(targets.get(0)));
+        }
+
+        List<FutureTask<T>> tasks = new ArrayList<>(targets.size());
+        for (int i = 1; i < targets.size(); i++) {
+            JdbcTemplate jdbcTemplate = targets.get(i);
+            FutureTask<T> task = new FutureTask<>(() -> query.apply(jdbcTemplate));
+            if (queryExecutor != null) {
+                queryExecutor.execute(MdcTaskDecorator.wrap(RequestDeadline.wrap(task)));
+            } else {
+                task.run();
+            }
+            tasks.add(task);
+        }
+
+        List<T> results = new ArrayList<>(targets.size());
+        results.add(query.apply(targets.get(0)));
+        try {
+            for (FutureTask<T> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while waiting for shard queries", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new DataAccessResourceFailureException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    public <T> List<T> merge(Function<JdbcTemplate, List<T>> query, Comparator<? super T> order) {
+        return merge(query, order, Integer.MAX_VALUE, false);
+    }
+
+    public <T> List<T> merge(Function<JdbcTemplate, List<T>> query, Comparator<? super T> order,
+                             boolean includeArchived) {
+        return merge(query, order, Integer.MAX_VALUE, includeArchived);
+    }
+
+    /**
+     * Runs a query returning rows in {@code order} on every shard, and optionally every archive, and merges
+     * the results, keeping at most {@code limit} rows.
+     */
+    public <T> List<T> merge(Function<JdbcTemplate, List<T>> query, Comparator<? super T> order, int limit,
+                             boolean includeArchived) {
+        List<List<T>> results = queryAll(query, includeArchived);
+        if (results.size() == 1) {
+            List<T> only = results.get(0);
+            return only.size() > limit ? new ArrayList<>(only.subList(0, limit)) : only;
+        }
+
+        int total = 0;
+        for (List<T> result : results) {
+            total += result.size();
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+
+        // Heap of {shard, position} cursors ordered by the row each cursor points at
+        PriorityQueue<int[]> heads = new PriorityQueue<>(results.size(),
+                (a, b) -> order.compare(results.get(a[0]).get(a[1]), results.get(b[0]).get(b[1])));
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<T> result = results.get(head[0]);
+            merged.add(result.get(head[1]));
+            if (++head[1] < result.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    public long sum(Function<JdbcTemplate, Long> query) {
+        return sum(query, false);
+    }
+
+    public long sum(Function<JdbcTemplate, Long> query, boolean includeArchived) {
+        long total = 0;
+        for (Long value : queryAll(query, includeArchived)) {
+            total += value != null ? value : 0;
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (queryExecutor != null) {
+            queryExecutor.shutdownNow();
+        }
+        ownedPools.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Stamps every shard file with the shard count and its index, or checks the stamp it already has. A file
+     * written before the layout was recorded is stamped only if every todo in it belongs on that shard.
+     */
+    private void verifyLayout() {
+        try {
+            for (Shard shard : shards) {
+                JdbcTemplate jdbcTemplate = shard.jdbcTemplate();
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS shard_layout " +
+                        "(shard_count INTEGER NOT NULL, shard_index INTEGER NOT NULL)");
+                List<int[]> layout = jdbcTemplate.query("SELECT shard_count, shard_index FROM shard_layout",
+                        (rs, rowNum) -> new int[] {rs.getInt(1), rs.getInt(2)});
+                if (!layout.isEmpty()) {
+                    if (layout.get(0)[0] != shards.size() || layout.get(0)[1] != shard.index()) {
+                        throw new IllegalStateException(String.format(
+                                "Shard file %d was written as shard %d of %d, but todo.sharding.shards is %d. " +
+                                "Start with the original shard count, or snapshot and restore into an empty " +
+                                "shard directory to change it", shard.index(), layout.get(0)[1],
+                                layout.get(0)[0], shards.size()));
+                    }
+                    continue;
+                }
+                Integer tables = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'todos'", Integer.class);
+                if (tables != null && tables > 0) {
+                    Long misplaced = jdbcTemplate.queryForObject(
+                            "SELECT COUNT(*) FROM todos WHERE id % ? != ?", Long.class, shards.size(), shard.index());
+                    if (misplaced != null && misplaced > 0) {
+                        throw new IllegalStateException(String.format(
+                                "Shard file %d holds %d todos that belong on other shards with %d shards; it was " +
+                                "written with a different todo.sharding.shards", shard.index(), misplaced,
+                                shards.size()));
+                    }
+                }
+                jdbcTemplate.update("INSERT INTO shard_layout (shard_count, shard_index) VALUES (?, ?)",
+                        shards.size(), shard.index());
+            }
+        } catch (RuntimeException e) {
+            ownedPools.forEach(HikariDataSource::close);
+            throw e;
+        }
+    }
+
+    private synchronized void seedIds() {
+        if (lastId.get() != UNSEEDED) {
+            return;
+        }
+        long max = 0;
+        for (Long shardMax : queryAll(jdbcTemplate -> jdbcTemplate.queryForObject(
+                "SELECT MAX(value) FROM (SELECT MAX(id) AS value FROM todos " +
+                "UNION ALL SELECT seq FROM sqlite_sequence WHERE name = 'todos')", Long.class))) {
+            if (shardMax != null) {
+                max = Math.max(max, shardMax);
+            }
+        }
+        log.debug("Todo ID sequence seeded at {}", max);
+        lastId.set(max);
+    }
+
+    private static String primaryFile(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query("PRAGMA database_list", rs -> {
+            while (rs.next()) {
+                if ("main".equals(rs.getString("name"))) {
+                    return rs.getString("file");
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Path archiveFileFor(String file) {
+        Path path = Paths.get(file == null || file.isEmpty() ? "todos.db" : file);
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String archiveName = (dot > 0 ? name.substring(0, dot) : name) + "-archive.db";
+        return path.resolveSibling(archiveName);
+    }
+
+    private HikariDataSource createPool(Path file, String name, ShardingProperties properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl("jdbc:sqlite:" + file);
+        config.setMaximumPoolSize(properties.getPoolSize());
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        config.addDataSourceProperty("busy_timeout", Integer.toString(properties.getBusyTimeoutMs()));
+        HikariDataSource pool = new HikariDataSource(config);
+
+        // Both modes are stored in the file. auto_vacuum only takes on a new file and has to be set before
+        // the switch to WAL writes the header, which is why neither is a per-connection property.
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            statement.execute("PRAGMA journal_mode = WAL");
+        } catch (SQLException e) {
+            pool.close();
+            throw new DataAccessResourceFailureException("Cannot open SQLite file " + file, e);
+        }
+        return pool;
+    }
+
+    public record Shard(int index, DataSource dataSource, JdbcTemplate jdbcTemplate,
+                        Path archiveFile, DataSource archiveDataSource, JdbcTemplate archiveJdbcTemplate) {}
+}
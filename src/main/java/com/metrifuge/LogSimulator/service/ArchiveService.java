@@ -0,0 +1,207 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.ArchiveProperties;
+import com.metrifuge.LogSimulator.dto.ArchiveResult;
+import com.metrifuge.LogSimulator.repository.TodoArchiver;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import com.metrifuge.LogSimulator.repository.TodoShards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves todos completed more than {@code todo.archive.older-than-days} ago out of the hot table into the
+ * shard's archive file, so that list, filter and count queries only scan live todos. Each batch is one
+ * short transaction followed by a pause, so request writers are never held off for longer than one batch.
+ * Pages freed by the move are returned to the file system with incremental vacuum, in steps, on databases
+ * created with auto_vacuum = INCREMENTAL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveService {
+
+    private final ArchiveProperties properties;
+    private final TodoShards shards;
+    private final TodoArchiver archiver;
+    private final TodoRepository todoRepository;
+    private final ReadCoalescer readCoalescer;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean vacuumModeChecked = new AtomicBoolean(false);
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder totalArchived = new LongAdder();
+    private final LongAdder totalReclaimedBytes = new LongAdder();
+    private volatile long hotRows = -1;
+    private volatile long archivedRows = -1;
+    private volatile ArchiveResult lastRun;
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Scheduled(fixedDelayString = "${todo.archive.interval-ms:3600000}",
+               initialDelayString = "${todo.archive.initial-delay-ms:60000}")
+    public void scheduledArchive() {
+        if (!properties.isEnabled() || running.get()) {
+            return;
+        }
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.error("Scheduled archival run failed", e);
+        }
+    }
+
+    public ArchiveResult archive() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An archival run is already in progress");
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getOlderThanDays());
+            log.info("Archiving todos completed before {} (batch size: {})", cutoff, properties.getBatchSize());
+            checkVacuumMode();
+
+            long startTime = System.currentTimeMillis();
+            long archived = 0;
+            int batches = 0;
+            boolean truncated = false;
+            long reclaimedBytes = 0;
+
+            for (TodoShards.Shard shard : shards.all()) {
+                int shardBatches = 0;
+                while (true) {
+                    int moved = archiver.archiveBatch(shard, cutoff, properties.getBatchSize());
+                    archived += moved;
+                    shardBatches++;
+                    if (moved < properties.getBatchSize()) {
+                        break;
+                    }
+                    if (shardBatches >= properties.getMaxBatchesPerRun()) {
+                        truncated = true;
+                        break;
+                    }
+                    if (!pause()) {
+                        break;
+                    }
+                }
+                batches += shardBatches;
+                reclaimedBytes += vacuum(shard.dataSource());
+            }
+
+            if (archived > 0) {
+                readCoalescer.invalidate();
+            }
+            hotRows = todoRepository.count();
+            archivedRows = todoRepository.countArchived();
+            long duration = System.currentTimeMillis() - startTime;
+
+            ArchiveResult result = new ArchiveResult(cutoff, archived, batches, truncated, reclaimedBytes,
+                    hotRows, archivedRows, duration);
+            runs.increment();
+            totalArchived.add(archived);
+            totalReclaimedBytes.add(reclaimedBytes);
+            lastRun = result;
+
+            log.info("Archived {} todos in {} batches in {}ms, reclaimed {} bytes - hot: {}, archived: {}{}",
+                    archived, batches, duration, reclaimedBytes, hotRows, archivedRows,
+                    truncated ? " (batch limit reached, continuing next run)" : "");
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        hotRows = todoRepository.count();
+        archivedRows = todoRepository.countArchived();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", properties.isEnabled());
+        statistics.put("running", running.get());
+        statistics.put("olderThanDays", properties.getOlderThanDays());
+        statistics.put("hotRows", hotRows);
+        statistics.put("archivedRows", archivedRows);
+        statistics.put("runs", runs.sum());
+        statistics.put("totalArchived", totalArchived.sum());
+        statistics.put("totalReclaimedBytes", totalReclaimedBytes.sum());
+        statistics.put("lastRun", lastRun);
+
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (TodoShards.Shard shard : shards.all()) {
+            files.add(fileStatistics(shard.index(), "hot", shard.dataSource()));
+            files.add(fileStatistics(shard.index(), "archive", shard.archiveDataSource()));
+        }
+        statistics.put("files", files);
+        return statistics;
+    }
+
+    private Map<String, Object> fileStatistics(int shard, String role, DataSource dataSource) {
+        long pageSize = archiver.pageSize(dataSource);
+        Map<String, Object> file = new LinkedHashMap<>();
+        file.put("shard", shard);
+        file.put("role", role);
+        file.put("autoVacuum", vacuumModeName(archiver.autoVacuumMode(dataSource)));
+        file.put("sizeBytes", archiver.pageCount(dataSource) * pageSize);
+        file.put("freeBytes", archiver.freePages(dataSource) * pageSize);
+        return file;
+    }
+
+    private long vacuum(DataSource dataSource) {
+        long pageSize = archiver.pageSize(dataSource);
+        long reclaimed = 0;
+        while (true) {
+            long freed = archiver.incrementalVacuum(dataSource, properties.getVacuumPages());
+            reclaimed += freed * pageSize;
+            if (freed < properties.getVacuumPages() || !pause()) {
+                return reclaimed;
+            }
+        }
+    }
+
+    private boolean pause() {
+        if (properties.getPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Archival run interrupted, stopping early");
+            return false;
+        }
+    }
+
+    private void checkVacuumMode() {
+        if (!vacuumModeChecked.compareAndSet(false, true)) {
+            return;
+        }
+        for (TodoShards.Shard shard : shards.all()) {
+            long mode = archiver.autoVacuumMode(shard.dataSource());
+            if (mode != 2) {
+                log.warn("Shard {} uses auto_vacuum = {}; archived space is reused but the file will not shrink " +
+                        "until a one-off VACUUM converts it", shard.index(), vacuumModeName(mode));
+            }
+        }
+    }
+
+    private static String vacuumModeName(long mode) {
+        return switch ((int) mode) {
+            case 0 -> "NONE";
+            case 1 -> "FULL";
+            case 2 -> "INCREMENTAL";
+            default -> Long.toString(mode);
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.SeederProperties;
+import com.metrifuge.LogSimulator.dto.SeedResult;
+import com.metrifuge.LogSimulator.exception.SeedInProgressException;
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoBulkWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataSeeder {
+
+    private static final List<String> VERBS = List.of(
+            "Fix", "Implement", "Review", "Refactor", "Document", "Test", "Deploy", "Investigate",
+            "Update", "Plan", "Migrate", "Optimize", "Schedule", "Buy", "Pay", "Prepare");
+
+    private static final List<String> SUBJECTS = List.of(
+            "login flow", "payment service", "search index", "API gateway", "release notes",
+            "database schema", "CI pipeline", "monitoring dashboard", "grocery list", "utility bills",
+            "team offsite", "quarterly budget", "onboarding guide", "cache layer", "error handling",
+            "doctor appointment", "online course", "build scripts", "access logs", "load balancer");
+
+    private static final List<String> DESCRIPTIONS = List.of(
+            "Needs immediate attention before the next release",
+            "Low priority task that can be done later",
+            "Critical issue affecting users in production",
+            "Enhancement requested by the product team",
+            "Technical debt that needs to be addressed",
+            "Routine maintenance task",
+            "Follow up with the stakeholders once done",
+            "Blocked until the upstream change lands");
+
+    private final SeederProperties properties;
+    private final TodoBulkWriter bulkWriter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public SeedResult seed() {
+        return seed(properties.getRows(), properties.getRandomSeed(), false);
+    }
+
+    public SeedResult seed(long rows, long randomSeed, boolean truncate) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Row count must not be negative, got " + rows);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new SeedInProgressException();
+        }
+        try {
+            if (truncate) {
+                log.info("Truncating todos before seeding");
+                bulkWriter.truncate();
+            }
+
+            log.info("Seeding {} synthetic todos (seed: {}, batch size: {}, commit interval: {}, defer indexes: {})",
+                    rows, randomSeed, properties.getBatchSize(), properties.getCommitInterval(),
+                    properties.isDeferIndexes());
+
+            long startTime = System.currentTimeMillis();
+            long inserted = bulkWriter.load(new SyntheticTodos(rows, randomSeed),
+                    properties.getBatchSize(), properties.getCommitInterval(), properties.isDeferIndexes());
+            long duration = Math.max(1, System.currentTimeMillis() - startTime);
+            double rowsPerSecond = inserted * 1000.0 / duration;
+
+            log.info("Seeded {} todos in {}ms ({} rows/sec)", inserted, duration, String.format("%.1f", rowsPerSecond));
+            return new SeedResult(inserted, randomSeed, duration, rowsPerSecond);
+        } finally {
+            running.set(false);
+            eventPublisher.publishEvent(new DatasetChangedEvent("seed"));
+        }
+    }
+
+    private class SyntheticTodos implements Iterator<Todo> {
+
+        private final long rows;
+        private final SplittableRandom random;
+        private final Todo.Priority[] priorities;
+        private final int[] priorityCumulative;
+        private final Todo.Category[] categories;
+        private final int[] categoryCumulative;
+        private final LocalDateTime now = LocalDateTime.now();
+        private long produced;
+
+        SyntheticTodos(long rows, long randomSeed) {
+            this.rows = rows;
+            this.random = new SplittableRandom(randomSeed);
+            this.priorities = Todo.Priority.values();
+            this.priorityCumulative = cumulative(priorities, properties.getPriorityWeights());
+            this.categories = Todo.Category.values();
+            this.categoryCumulative = cumulative(categories, properties.getCategoryWeights());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return produced < rows;
+        }
+
+        @Override
+        public Todo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            produced++;
+
+            Todo todo = new Todo();
+            todo.setTitle(pick(VERBS) + " " + pick(SUBJECTS) + " #" + produced);
+            todo.setDescription(pick(DESCRIPTIONS));
+            todo.setPriority(priorities[weighted(priorityCumulative)]);
+            todo.setCategory(categories[weighted(categoryCumulative)]);
+            todo.setAssignedTo(properties.getAssignees().isEmpty() ? null : pick(properties.getAssignees()));
+            todo.setTags(tags());
+            todo.setEstimatedHours(random.nextInt(Math.max(1, properties.getMaxEstimatedHours())) + 1);
+
+            LocalDateTime createdAt = now.minusSeconds(
+                    random.nextLong(Math.max(1, properties.getCreatedAtSpreadDays() * 86_400L)));
+            todo.setCreatedAt(createdAt);
+            todo.setUpdatedAt(createdAt);
+
+            if (random.nextDouble() < properties.getDueDateRatio()) {
+                todo.setDueDate(createdAt.plusHours(random.nextLong(Math.max(1, properties.getDueDateHorizonDays() * 24L))));
+            }
+
+            boolean completed = random.nextDouble() < properties.getCompletedRatio();
+            todo.setCompleted(completed);
+            if (completed) {
+                long openSeconds = Duration.between(createdAt, now).getSeconds();
+                LocalDateTime completedAt = createdAt.plusSeconds(random.nextLong(Math.max(1, openSeconds)));
+                todo.setCompletedAt(completedAt);
+                todo.setUpdatedAt(completedAt);
+            }
+            return todo;
+        }
+
+        private String tags() {
+            List<String> available = properties.getTags();
+            if (available.isEmpty() || properties.getMaxTagsPerTodo() <= 0) {
+                return null;
+            }
+            int count = random.nextInt(properties.getMaxTagsPerTodo()) + 1;
+            StringBuilder tags = new StringBuilder(pick(available));
+            for (int i = 1; i < count; i++) {
+                String tag = pick(available);
+                if (tags.length() + tag.length() + 1 > 50) {
+                    break;
+                }
+                tags.append(',').append(tag);
+            }
+            return tags.toString();
+        }
+
+        private <T> T pick(List<T> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+
+        private int weighted(int[] cumulative) {
+            int total = cumulative[cumulative.length - 1];
+            if (total <= 0) {
+                return random.nextInt(cumulative.length);
+            }
+            int target = random.nextInt(total);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (target < cumulative[i]) {
+                    return i;
+                }
+            }
+            return cumulative.length - 1;
+        }
+
+        private <E extends Enum<E>> int[] cumulative(E[] values, Map<E, Integer> weights) {
+            int[] cumulative = new int[values.length];
+            int total = 0;
+            for (int i = 0; i < values.length; i++) {
+                total += Math.max(0, weights.getOrDefault(values[i], 0));
+                cumulative[i] = total;
+            }
+            return cumulative;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.metrifuge.LogSimulator.service;
+
+/**
+ * Published after todos were written outside {@link TodoService}, e.g. by a bulk seed or a snapshot restore,
+ * and once the dataset is in place at startup, so that anything derived from individual rows can be rebuilt.
+ */
+public record DatasetChangedEvent(String source) {
+}
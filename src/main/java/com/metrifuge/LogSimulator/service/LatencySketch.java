@@ -0,0 +1,114 @@
+package com.metrifuge.LogSimulator.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations (or any non-negative quantity) in logarithmic bins, so every quantile it reports is
+ * within {@code relativeAccuracy} of the recorded value whatever the range. Sketches with the same accuracy merge by adding their bins,
+ * which is how rolling windows combine per-bucket sketches. Recording is a single atomic increment.
+ */
+public final class LatencySketch {
+
+    // Ten years in milliseconds; anything larger lands in the last bin
+    private static final long MAX_VALUE = 10L * 366 * 24 * 3600 * 1000;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final AtomicLongArray bins;
+    private final AtomicLong sum = new AtomicLong();
+
+    public LatencySketch(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.bins = new AtomicLongArray((int) Math.ceil(Math.log(MAX_VALUE) / logGamma) + 2);
+    }
+
+    public void record(long value) {
+        bins.incrementAndGet(index(value));
+        sum.addAndGet(Math.max(0, value));
+    }
+
+    public void merge(LatencySketch other) {
+        if (other.bins.length() != bins.length()) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracy");
+        }
+        for (int i = 0; i < bins.length(); i++) {
+            long count = other.bins.get(i);
+            if (count != 0) {
+                bins.addAndGet(i, count);
+            }
+        }
+        sum.addAndGet(other.sum.get());
+    }
+
+    public void clear() {
+        for (int i = 0; i < bins.length(); i++) {
+            bins.set(i, 0);
+        }
+        sum.set(0);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < bins.length(); i++) {
+            count += bins.get(i);
+        }
+        return count;
+    }
+
+    /** The value at quantile {@code q} (0..1), or 0 when nothing was recorded. */
+    public long quantile(double q) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < bins.length(); i++) {
+            seen += bins.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return value(i);
+            }
+        }
+        return value(bins.length() - 1);
+    }
+
+    public Map<String, Object> summary() {
+        return summary("Ms");
+    }
+
+    /** Count, mean and quantiles, with {@code unit} appended to the key of every value, e.g. {@code p99Ms}. */
+    public Map<String, Object> summary(String unit) {
+        long count = count();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("mean" + unit, count > 0 ? sum.get() / count : 0);
+        summary.put("p50" + unit, quantile(0.5));
+        summary.put("p90" + unit, quantile(0.9));
+        summary.put("p99" + unit, quantile(0.99));
+        summary.put("max" + unit, quantile(1.0));
+        summary.put("relativeAccuracy", relativeAccuracy);
+        return summary;
+    }
+
+    // Bin 0 holds zeros, bin i > 0 holds (gamma^(i-2), gamma^(i-1)]
+    private int index(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return (int) Math.min(bins.length() - 1, 1 + (long) Math.ceil(Math.log(value) / logGamma));
+    }
+
+    // Midpoint of the bin in the relative sense
+    private long value(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        return Math.round(2 * Math.pow(gamma, index - 1) / (gamma + 1));
+    }
+}
@@ -0,0 +1,182 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import com.metrifuge.LogSimulator.exception.DeadlineExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical read queries.
+ *
+ * The first caller for a key runs the query; callers arriving with the same key while it runs wait for it
+ * and get the same result, which must therefore be immutable. With {@code ttlMs} above zero a finished
+ * result keeps being served for that long. Every write through {@link TodoService} and every dataset change
+ * invalidates all keys, so a caller never gets a result from a query that started before a write it has
+ * already seen complete.
+ *
+ * Followers wait no longer than their own request deadline. When the leader's query was cut short by the
+ * leader's deadline, followers with time left start a new one.
+ */
+@Component
+@Slf4j
+public class ReadCoalescer {
+
+    // Returned by await when the leader ran out of time but the follower has not
+    private static final Object RETRY = new Object();
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final boolean enabled;
+    private final long ttlNanos;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder ttlHits = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ReadCoalescer(@Value("${todo.single-flight.enabled:true}") boolean enabled,
+                         @Value("${todo.single-flight.ttl-ms:0}") long ttlMs) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+        log.info("Read coalescing {} - result TTL: {}ms", enabled ? "enabled" : "disabled", ttlMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        requests.increment();
+        while (true) {
+            long current = generation.get();
+            Flight flight = flights.get(key);
+            if (flight != null) {
+                if (!flight.result.isDone()) {
+                    joined.increment();
+                    Object value = await(flight);
+                    if (value == RETRY) {
+                        retries.increment();
+                        continue;
+                    }
+                    return (T) value;
+                }
+                if (flight.generation == current && System.nanoTime() - flight.expiresAt < 0
+                        && !flight.result.isCompletedExceptionally()) {
+                    ttlHits.increment();
+                    return (T) flight.result.join();
+                }
+                flights.remove(key, flight);
+                continue;
+            }
+
+            Flight mine = new Flight(current);
+            if (flights.putIfAbsent(key, mine) != null) {
+                continue;
+            }
+            return lead(key, mine, query);
+        }
+    }
+
+    /** Forgets all in-flight and cached results; callers arriving afterwards start a new query. */
+    public void invalidate() {
+        generation.incrementAndGet();
+        flights.clear();
+        invalidations.increment();
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        invalidate();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long requestCount = requests.sum();
+        long executionCount = executions.sum();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        statistics.put("requests", requestCount);
+        statistics.put("executions", executionCount);
+        statistics.put("joinedInFlight", joined.sum());
+        statistics.put("servedWithinTtl", ttlHits.sum());
+        statistics.put("retriedAfterLeaderDeadline", retries.sum());
+        statistics.put("executionsSaved", requestCount - executionCount);
+        statistics.put("savedRatio", requestCount > 0 ? (double) (requestCount - executionCount) / requestCount : 0);
+        statistics.put("invalidations", invalidations.sum());
+        statistics.put("keys", flights.size());
+        return statistics;
+    }
+
+    private <T> T lead(String key, Flight flight, Supplier<T> query) {
+        executions.increment();
+        T value;
+        try {
+            value = query.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.expiresAt = System.nanoTime() + ttlNanos;
+        flight.result.complete(value);
+        if (ttlNanos == 0 || generation.get() != flight.generation) {
+            flights.remove(key, flight);
+        }
+        return value;
+    }
+
+    private Object await(Flight flight) {
+        try {
+            while (true) {
+                if (!RequestDeadline.isSet()) {
+                    return flight.result.get();
+                }
+                try {
+                    return flight.result.get(Math.max(0, RequestDeadline.remainingMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    RequestDeadline.check("the shared query finished");
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DeadlineExceededException && !RequestDeadline.expired()) {
+                return RETRY;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared query", e);
+        }
+    }
+
+    private static final class Flight {
+        final long generation;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile long expiresAt;
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
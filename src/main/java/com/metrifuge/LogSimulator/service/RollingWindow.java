@@ -0,0 +1,128 @@
+package com.metrifuge.LogSimulator.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ring of {@code size} time buckets of {@code bucketMillis} each, every bucket holding {@code width}
+ * counters and a latency sketch. Each slot is tagged with the bucket number it currently holds; the first
+ * writer into a new bucket claims the slot and clears it, readers skip slots whose tag is outside the window.
+ * Writers only contend on that claim, once per slot per bucket, so recording is a couple of atomic
+ * increments. Reads touch {@code size} slots regardless of how many events went into them.
+ */
+final class RollingWindow {
+
+    private static final long EMPTY = -1;
+    private static final long CLEARING = -2;
+
+    private final long bucketMillis;
+    private final int size;
+    private final int width;
+    private final AtomicLongArray tags;
+    private final AtomicLongArray counts;
+    private final LatencySketch[] sketches;
+    private final double relativeAccuracy;
+
+    RollingWindow(long bucketMillis, int size, int width, double relativeAccuracy) {
+        this.bucketMillis = bucketMillis;
+        this.size = size;
+        this.width = width;
+        this.relativeAccuracy = relativeAccuracy;
+        this.tags = new AtomicLongArray(size);
+        this.counts = new AtomicLongArray(size * width);
+        this.sketches = new LatencySketch[size];
+        for (int i = 0; i < size; i++) {
+            tags.set(i, EMPTY);
+            sketches[i] = new LatencySketch(relativeAccuracy);
+        }
+    }
+
+    long bucketMillis() {
+        return bucketMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Counts one event at {@code timeMillis} in each of {@code counters}, and its latency when not negative.
+     * Events older than the window are dropped; events stamped in the future count in the current bucket.
+     */
+    void record(long timeMillis, long nowMillis, int[] counters, long latencyMillis) {
+        long current = nowMillis / bucketMillis;
+        long bucket = Math.min(timeMillis / bucketMillis, current);
+        if (bucket <= current - size) {
+            return;
+        }
+        int slot = claim(bucket);
+        if (slot < 0) {
+            return;
+        }
+        for (int counter : counters) {
+            counts.incrementAndGet(slot * width + counter);
+        }
+        if (latencyMillis >= 0) {
+            sketches[slot].record(latencyMillis);
+        }
+    }
+
+    /** Per-bucket counters for the window ending at {@code nowMillis}, oldest bucket first. */
+    long[][] read(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        long[][] result = new long[size][width];
+        for (int i = 0; i < size; i++) {
+            long bucket = current - size + 1 + i;
+            int slot = (int) Math.floorMod(bucket, (long) size);
+            if (tags.get(slot) != bucket) {
+                continue;
+            }
+            for (int c = 0; c < width; c++) {
+                result[i][c] = counts.get(slot * width + c);
+            }
+            // Cleared for a newer bucket while being read
+            if (tags.get(slot) != bucket) {
+                result[i] = new long[width];
+            }
+        }
+        return result;
+    }
+
+    /** The latency sketches of every bucket in the window merged into one. */
+    LatencySketch latency(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        LatencySketch merged = new LatencySketch(relativeAccuracy);
+        for (long bucket = current - size + 1; bucket <= current; bucket++) {
+            int slot = (int) Math.floorMod(bucket, (long) size);
+            if (tags.get(slot) == bucket) {
+                merged.merge(sketches[slot]);
+            }
+        }
+        return merged;
+    }
+
+    /** The slot holding {@code bucket}, claiming and clearing it if it holds an older one; -1 if it holds a newer one. */
+    private int claim(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) size);
+        while (true) {
+            long tag = tags.get(slot);
+            if (tag == bucket) {
+                return slot;
+            }
+            if (tag == CLEARING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (tag > bucket) {
+                return -1;
+            }
+            if (tags.compareAndSet(slot, tag, CLEARING)) {
+                for (int c = 0; c < width; c++) {
+                    counts.set(slot * width + c, 0);
+                }
+                sketches[slot].clear();
+                tags.set(slot, bucket);
+                return slot;
+            }
+        }
+    }
+}
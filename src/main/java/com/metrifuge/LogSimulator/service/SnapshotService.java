@@ -0,0 +1,429 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.SeederProperties;
+import com.metrifuge.LogSimulator.dto.SnapshotResult;
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoBulkWriter;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes and loads the todo dataset as a versioned, column-oriented binary file through memory-mapped NIO.
+ *
+ * Layout: a fixed header (magic, format version, row count, block count, creation time) followed by
+ * blocks of up to {@code todo.snapshot.block-rows} rows. Each block stores every column contiguously:
+ * fixed-width columns as primitive arrays, enums as ordinal bytes, timestamps as epoch microseconds
+ * ({@link Long#MIN_VALUE} for null) and strings as a length array (-1 for null) followed by UTF-8 bytes.
+ * Format 2 adds the version column after the ids; format 1 files still restore, with every version at 0.
+ *
+ * Snapshots read the table in keyset-paginated chunks, so each chunk is a short read and writers are only
+ * held off for the duration of one chunk rather than the whole snapshot.
+ */
+@Service
+@Slf4j
+public class SnapshotService {
+
+    private static final int MAGIC = 0x4D465453; // "MFTS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int FIRST_FORMAT_WITH_VERSIONS = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+    private static final Todo.Category[] CATEGORIES = Todo.Category.values();
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TodoRepository todoRepository;
+    private final TodoBulkWriter bulkWriter;
+    private final SeederProperties seederProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path directory;
+    private final int blockRows;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SnapshotService(TodoRepository todoRepository,
+                           TodoBulkWriter bulkWriter,
+                           SeederProperties seederProperties,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${todo.snapshot.directory:snapshots}") String directory,
+                           @Value("${todo.snapshot.block-rows:65536}") int blockRows) {
+        this.todoRepository = todoRepository;
+        this.bulkWriter = bulkWriter;
+        this.seederProperties = seederProperties;
+        this.eventPublisher = eventPublisher;
+        this.directory = Paths.get(directory);
+        this.blockRows = blockRows;
+    }
+
+    public boolean isBusy() {
+        return lock.isLocked();
+    }
+
+    public SnapshotResult snapshot(String name) {
+        Path file = resolve(name != null ? name : "todos-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".mfs");
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("A snapshot or restore is already running");
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            log.info("Writing snapshot to {} in blocks of {} rows", file, blockRows);
+
+            long startTime = System.currentTimeMillis();
+            long rows = 0;
+            int blocks = 0;
+            long position = HEADER_BYTES;
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long afterId = 0;
+                while (true) {
+                    List<Todo> page = todoRepository.findPageAfterId(afterId, blockRows);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    position += writeBlock(channel, position, page);
+                    rows += page.size();
+                    blocks++;
+                    afterId = page.get(page.size() - 1).getId();
+                    log.debug("Snapshot block {} written - {} rows so far", blocks, rows);
+                }
+
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(rows).putInt(blocks)
+                        .putLong(System.currentTimeMillis()).putInt(0);
+                header.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            SnapshotResult result = result(file, rows, blocks, position, startTime);
+            log.info("Snapshot of {} todos written to {} ({} bytes, {} blocks) in {}ms",
+                    rows, file, position, blocks, result.getDurationMs());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SnapshotResult restore(String name) {
+        Path file = resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Snapshot not found: " + file);
+        }
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("A snapshot or restore is already running");
+        }
+        boolean truncated = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a todo snapshot: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a todo snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot format version " + version + " in " + file);
+            }
+            long rows = header.getLong();
+            int blocks = header.getInt();
+
+            log.info("Restoring {} todos ({} blocks) from {}", rows, blocks, file);
+            long startTime = System.currentTimeMillis();
+
+            // The dataset is only replaced once every block has decoded, so a damaged file is rejected
+            // before anything is deleted
+            verify(new SnapshotReader(channel, size, blocks, version), rows, file);
+            log.debug("Verified all {} blocks of {} in {}ms", blocks, file, System.currentTimeMillis() - startTime);
+
+            bulkWriter.truncate();
+            truncated = true;
+            long restored = bulkWriter.load(new SnapshotReader(channel, size, blocks, version),
+                    seederProperties.getBatchSize(), seederProperties.getCommitInterval(),
+                    seederProperties.isDeferIndexes());
+
+            SnapshotResult result = result(file, restored, blocks, size, startTime);
+            log.info("Restored {} todos from {} in {}ms ({} rows/sec)", restored, file, result.getDurationMs(),
+                    String.format("%.1f", result.getRowsPerSecond()));
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore snapshot " + file, e);
+        } finally {
+            lock.unlock();
+            if (truncated) {
+                eventPublisher.publishEvent(new DatasetChangedEvent("restore"));
+            }
+        }
+    }
+
+    private static void verify(SnapshotReader reader, long expectedRows, Path file) {
+        long rows = 0;
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+                rows++;
+            }
+        } catch (CorruptSnapshotException e) {
+            throw new IllegalArgumentException("Corrupt snapshot " + file + ": " + e.getMessage(), e);
+        }
+        if (rows != expectedRows) {
+            throw new IllegalArgumentException("Corrupt snapshot " + file + ": header declares " + expectedRows
+                    + " rows but the blocks hold " + rows);
+        }
+        if (!reader.atEnd()) {
+            throw new IllegalArgumentException("Corrupt snapshot " + file + ": unexpected bytes after the last block");
+        }
+    }
+
+    private Path resolve(String name) {
+        if (name == null || name.isBlank() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Snapshot name must be a plain file name: " + name);
+        }
+        return directory.resolve(name);
+    }
+
+    private SnapshotResult result(Path file, long rows, int blocks, long bytes, long startTime) {
+        long duration = Math.max(1, System.currentTimeMillis() - startTime);
+        return new SnapshotResult(file.toString(), rows, blocks, bytes, duration, rows * 1000.0 / duration);
+    }
+
+    private long writeBlock(FileChannel channel, long position, List<Todo> todos) throws IOException {
+        int n = todos.size();
+        byte[][] titles = new byte[n][];
+        byte[][] descriptions = new byte[n][];
+        byte[][] assignees = new byte[n][];
+        byte[][] tags = new byte[n][];
+        long stringBytes = 0;
+        for (int i = 0; i < n; i++) {
+            Todo todo = todos.get(i);
+            stringBytes += length(titles[i] = utf8(todo.getTitle()))
+                    + length(descriptions[i] = utf8(todo.getDescription()))
+                    + length(assignees[i] = utf8(todo.getAssignedTo()))
+                    + length(tags[i] = utf8(todo.getTags()));
+        }
+
+        // id + version + 4 timestamps (8 bytes each), completed/priority/category (1 byte each),
+        // estimated hours + 4 string lengths (4 bytes each)
+        long payload = (long) n * (2 * 8 + 4 * 8 + 3 + 5 * 4) + stringBytes;
+        long blockSize = 8 + payload;
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, blockSize);
+        buffer.putInt(n).putInt((int) payload);
+        for (Todo todo : todos) buffer.putLong(todo.getId());
+        for (Todo todo : todos) buffer.putLong(todo.getVersion() != null ? todo.getVersion() : 0);
+        for (Todo todo : todos) buffer.put((byte) (Boolean.TRUE.equals(todo.getCompleted()) ? 1 : 0));
+        for (Todo todo : todos) buffer.put((byte) todo.getPriority().ordinal());
+        for (Todo todo : todos) buffer.put((byte) todo.getCategory().ordinal());
+        for (Todo todo : todos) buffer.putInt(todo.getEstimatedHours() != null ? todo.getEstimatedHours() : 0);
+        for (Todo todo : todos) buffer.putLong(micros(todo.getCreatedAt()));
+        for (Todo todo : todos) buffer.putLong(micros(todo.getUpdatedAt()));
+        for (Todo todo : todos) buffer.putLong(micros(todo.getDueDate()));
+        for (Todo todo : todos) buffer.putLong(micros(todo.getCompletedAt()));
+        putStrings(buffer, titles);
+        putStrings(buffer, descriptions);
+        putStrings(buffer, assignees);
+        putStrings(buffer, tags);
+        return blockSize;
+    }
+
+    private void putStrings(ByteBuffer buffer, byte[][] values) {
+        for (byte[] value : values) {
+            buffer.putInt(value != null ? value.length : -1);
+        }
+        for (byte[] value : values) {
+            if (value != null) {
+                buffer.put(value);
+            }
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private static long micros(LocalDateTime value) {
+        if (value == null) {
+            return NULL_TIMESTAMP;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long value) {
+        if (value == NULL_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1_000_000L),
+                (int) Math.floorMod(value, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Streams todos out of the snapshot one mapped block at a time, so restore never holds more than
+     * one decoded block in memory.
+     */
+    private static class SnapshotReader implements Iterator<Todo> {
+
+        private final FileChannel channel;
+        private final long size;
+        private final int blocks;
+        private final int formatVersion;
+        private int blocksRead;
+        private long position = HEADER_BYTES;
+        private List<Todo> current = List.of();
+        private int index;
+
+        SnapshotReader(FileChannel channel, long size, int blocks, int formatVersion) {
+            this.channel = channel;
+            this.size = size;
+            this.blocks = blocks;
+            this.formatVersion = formatVersion;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= current.size()) {
+                if (blocksRead == blocks) {
+                    return false;
+                }
+                current = readBlock();
+                index = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Todo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.get(index++);
+        }
+
+        boolean atEnd() {
+            return position == size;
+        }
+
+        private List<Todo> readBlock() {
+            try {
+                if (position + 8 > size) {
+                    throw new CorruptSnapshotException("block " + blocksRead + " starts past the end of the file");
+                }
+                ByteBuffer sizes = channel.map(FileChannel.MapMode.READ_ONLY, position, 8);
+                int n = sizes.getInt();
+                int payload = sizes.getInt();
+                if (n < 0 || payload < 0 || position + 8 + payload > size) {
+                    throw new CorruptSnapshotException("block " + blocksRead + " at offset " + position
+                            + " has an invalid size");
+                }
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 8, payload);
+                position += 8 + payload;
+                blocksRead++;
+
+                List<Todo> todos = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    Todo todo = new Todo();
+                    todo.setId(buffer.getLong());
+                    todos.add(todo);
+                }
+                if (formatVersion >= FIRST_FORMAT_WITH_VERSIONS) {
+                    for (Todo todo : todos) todo.setVersion(buffer.getLong());
+                }
+                for (Todo todo : todos) todo.setCompleted(buffer.get() == 1);
+                for (Todo todo : todos) todo.setPriority(PRIORITIES[ordinal(buffer, PRIORITIES.length)]);
+                for (Todo todo : todos) todo.setCategory(CATEGORIES[ordinal(buffer, CATEGORIES.length)]);
+                for (Todo todo : todos) todo.setEstimatedHours(buffer.getInt());
+                for (Todo todo : todos) todo.setCreatedAt(fromMicros(buffer.getLong()));
+                for (Todo todo : todos) todo.setUpdatedAt(fromMicros(buffer.getLong()));
+                for (Todo todo : todos) todo.setDueDate(fromMicros(buffer.getLong()));
+                for (Todo todo : todos) todo.setCompletedAt(fromMicros(buffer.getLong()));
+
+                String[] values = readStrings(buffer, n);
+                for (int i = 0; i < n; i++) todos.get(i).setTitle(values[i]);
+                values = readStrings(buffer, n);
+                for (int i = 0; i < n; i++) todos.get(i).setDescription(values[i]);
+                values = readStrings(buffer, n);
+                for (int i = 0; i < n; i++) todos.get(i).setAssignedTo(values[i]);
+                values = readStrings(buffer, n);
+                for (int i = 0; i < n; i++) todos.get(i).setTags(values[i]);
+                if (buffer.hasRemaining()) {
+                    throw new CorruptSnapshotException("block " + (blocksRead - 1) + " has "
+                            + buffer.remaining() + " bytes left over");
+                }
+                return todos;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new CorruptSnapshotException("block " + (blocksRead - 1) + " is truncated");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read snapshot block at offset " + position, e);
+            }
+        }
+
+        private static int ordinal(ByteBuffer buffer, int values) {
+            int ordinal = buffer.get();
+            if (ordinal < 0 || ordinal >= values) {
+                throw new CorruptSnapshotException("enum ordinal " + ordinal + " is out of range");
+            }
+            return ordinal;
+        }
+
+        private String[] readStrings(ByteBuffer buffer, int n) {
+            int[] lengths = new int[n];
+            for (int i = 0; i < n; i++) {
+                lengths[i] = buffer.getInt();
+            }
+            String[] values = new String[n];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < n; i++) {
+                if (lengths[i] < 0) {
+                    continue;
+                }
+                if (lengths[i] > buffer.remaining()) {
+                    throw new CorruptSnapshotException("string length " + lengths[i] + " exceeds the block");
+                }
+                if (scratch.length < lengths[i]) {
+                    scratch = new byte[lengths[i]];
+                }
+                buffer.get(scratch, 0, lengths[i]);
+                values[i] = new String(scratch, 0, lengths[i], StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+    }
+
+    private static class CorruptSnapshotException extends RuntimeException {
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.AnalyticsProperties;
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory throughput and completion latency analytics for todo lifecycle events.
+ *
+ * {@link TodoService} records every create, completion and delete into three rolling windows - the last
+ * minute by second, the last hour by minute and the last day by hour - counted in total, by priority and by
+ * category, with a {@link LatencySketch} of {@code completed_at - created_at} per bucket. Answering a query
+ * reads a fixed number of buckets, so its cost does not grow with the table.
+ *
+ * When the dataset is loaded at startup, seeded or restored, fresh windows are swapped in and filled from
+ * the todos created or completed during the last day, on a background thread. Deletes cannot be recovered
+ * from the database and only count from then on.
+ */
+@Component
+@Slf4j
+public class TodoAnalytics {
+
+    private enum Event { CREATED, COMPLETED, DELETED }
+
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+    private static final Todo.Category[] CATEGORIES = Todo.Category.values();
+    // Per event: total, then one counter per priority, then one per category
+    private static final int STRIDE = 1 + PRIORITIES.length + CATEGORIES.length;
+    private static final int WIDTH = Event.values().length * STRIDE;
+
+    private final AnalyticsProperties properties;
+    private final TodoRepository todoRepository;
+
+    private volatile Windows windows;
+    private volatile Map<String, Object> lastSeed;
+
+    public TodoAnalytics(AnalyticsProperties properties, TodoRepository todoRepository) {
+        this.properties = properties;
+        this.todoRepository = todoRepository;
+        this.windows = new Windows(properties.getRelativeAccuracy());
+    }
+
+    public void recordCreated(Todo todo) {
+        record(windows, Event.CREATED, todo, millis(todo.getCreatedAt()), -1, System.currentTimeMillis());
+    }
+
+    public void recordCompleted(Todo todo) {
+        long completedAt = millis(todo.getCompletedAt());
+        record(windows, Event.COMPLETED, todo, completedAt, latency(todo), System.currentTimeMillis());
+    }
+
+    public void recordDeleted(Todo todo) {
+        long now = System.currentTimeMillis();
+        record(windows, Event.DELETED, todo, now, -1, now);
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        if (!properties.isEnabled() || !properties.isSeedFromDatabase()) {
+            return;
+        }
+        Windows fresh = new Windows(properties.getRelativeAccuracy());
+        LocalDateTime cutoff = LocalDateTime.now();
+        windows = fresh;
+        Thread thread = new Thread(() -> seed(fresh, cutoff, event.source()), "analytics-seed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Map<String, Object> getAnalytics() {
+        Map<String, Object> analytics = new LinkedHashMap<>();
+        analytics.put("enabled", properties.isEnabled());
+        if (!properties.isEnabled()) {
+            return analytics;
+        }
+        Windows current = windows;
+        long now = System.currentTimeMillis();
+        analytics.put("generatedAt", LocalDateTime.now());
+        analytics.put("lastMinute", window(current.seconds, now));
+        analytics.put("lastHour", window(current.minutes, now));
+        analytics.put("lastDay", window(current.hours, now));
+        analytics.put("seed", lastSeed);
+        return analytics;
+    }
+
+    private void seed(Windows target, LocalDateTime cutoff, String source) {
+        long startTime = System.currentTimeMillis();
+        LocalDateTime from = cutoff.minusHours(target.hours.size());
+        LongAdder created = new LongAdder();
+        LongAdder completed = new LongAdder();
+        try {
+            todoRepository.forEachCreatedBetween(from, cutoff, todo -> {
+                record(target, Event.CREATED, todo, millis(todo.getCreatedAt()), -1, startTime);
+                created.increment();
+            });
+            todoRepository.forEachCompletedBetween(from, cutoff, todo -> {
+                record(target, Event.COMPLETED, todo, millis(todo.getCompletedAt()), latency(todo), startTime);
+                completed.increment();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not seed todo analytics after {}: {}", source, e.getMessage());
+            return;
+        }
+
+        Map<String, Object> seed = new LinkedHashMap<>();
+        seed.put("source", source);
+        seed.put("cutoff", cutoff);
+        seed.put("created", created.sum());
+        seed.put("completed", completed.sum());
+        seed.put("durationMs", System.currentTimeMillis() - startTime);
+        if (target == windows) {
+            lastSeed = seed;
+        }
+        log.info("Todo analytics seeded after {} from {} created and {} completed todos in {}ms",
+                source, created.sum(), completed.sum(), seed.get("durationMs"));
+    }
+
+    private void record(Windows target, Event event, Todo todo, long timeMillis, long latencyMillis, long now) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        int base = event.ordinal() * STRIDE;
+        int[] counters = {
+                base,
+                base + 1 + todo.getPriority().ordinal(),
+                base + 1 + PRIORITIES.length + todo.getCategory().ordinal()
+        };
+        target.seconds.record(timeMillis, now, counters, latencyMillis);
+        target.minutes.record(timeMillis, now, counters, latencyMillis);
+        target.hours.record(timeMillis, now, counters, latencyMillis);
+    }
+
+    private Map<String, Object> window(RollingWindow window, long now) {
+        long[][] buckets = window.read(now);
+        long[] totals = new long[WIDTH];
+        Map<String, long[]> series = new LinkedHashMap<>();
+        for (Event event : Event.values()) {
+            series.put(name(event), new long[buckets.length]);
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            for (int c = 0; c < WIDTH; c++) {
+                totals[c] += buckets[i][c];
+            }
+            for (Event event : Event.values()) {
+                series.get(name(event))[i] = buckets[i][event.ordinal() * STRIDE];
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bucketSeconds", window.bucketMillis() / 1000);
+        result.put("buckets", window.size());
+        for (Event event : Event.values()) {
+            int base = event.ordinal() * STRIDE;
+            Map<String, Long> byPriority = new LinkedHashMap<>();
+            for (Todo.Priority priority : PRIORITIES) {
+                byPriority.put(priority.name(), totals[base + 1 + priority.ordinal()]);
+            }
+            Map<String, Long> byCategory = new LinkedHashMap<>();
+            for (Todo.Category category : CATEGORIES) {
+                byCategory.put(category.name(), totals[base + 1 + PRIORITIES.length + category.ordinal()]);
+            }
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("total", totals[base]);
+            counts.put("byPriority", byPriority);
+            counts.put("byCategory", byCategory);
+            result.put(name(event), counts);
+        }
+        result.put("series", series);
+        result.put("completionLatency", window.latency(now).summary());
+        return result;
+    }
+
+    private static String name(Event event) {
+        return event.name().toLowerCase();
+    }
+
+    private static long latency(Todo todo) {
+        if (todo.getCreatedAt() == null || todo.getCompletedAt() == null) {
+            return -1;
+        }
+        return Math.max(0, millis(todo.getCompletedAt()) - millis(todo.getCreatedAt()));
+    }
+
+    private static long millis(LocalDateTime value) {
+        return value != null ? value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
+    private static final class Windows {
+        final RollingWindow seconds;
+        final RollingWindow minutes;
+        final RollingWindow hours;
+
+        Windows(double relativeAccuracy) {
+            seconds = new RollingWindow(1_000, 60, WIDTH, relativeAccuracy);
+            minutes = new RollingWindow(60_000, 60, WIDTH, relativeAccuracy);
+            hours = new RollingWindow(3_600_000, 24, WIDTH, relativeAccuracy);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.dto.TodoChangeEvent;
+import com.metrifuge.LogSimulator.dto.TodoResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded in-memory ring buffer of todo changes with SSE fan-out.
+ *
+ * Writers only append to the ring. A single dispatcher thread periodically hands each subscriber
+ * that is behind to a small sender pool, which writes everything from the subscriber's cursor to the
+ * head of the ring in one flush. A subscriber that is still busy with its previous batch is skipped
+ * and catches up on a later tick; one that falls out of the ring is sent a {@code resync} event and dropped.
+ * A resync is also sent to a subscriber resuming from a position the ring does not hold, and to everyone
+ * when a seed or restore replaces the dataset.
+ */
+@Service
+@Slf4j
+public class TodoChangeFeed {
+
+    private final AtomicReferenceArray<TodoChangeEvent> ring;
+    private final int mask;
+    // Sequences start from the startup time so IDs handed out before a restart never look resumable after it
+    private final long firstSequence = System.currentTimeMillis() * 1_000;
+    private long headSequence = firstSequence;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    private final long emitterTimeoutMs;
+    private final long heartbeatIntervalMs;
+    private final int maxSubscribers;
+
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+
+    public TodoChangeFeed(@Value("${todo.stream.buffer-size:4096}") int bufferSize,
+                          @Value("${todo.stream.dispatch-interval-ms:50}") long dispatchIntervalMs,
+                          @Value("${todo.stream.heartbeat-interval-ms:15000}") long heartbeatIntervalMs,
+                          @Value("${todo.stream.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                          @Value("${todo.stream.max-subscribers:10000}") int maxSubscribers,
+                          @Value("${todo.stream.sender-threads:4}") int senderThreads) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.maxSubscribers = maxSubscribers;
+
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher.scheduleWithFixedDelay(this::dispatch, dispatchIntervalMs, dispatchIntervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("Todo change feed initialized - ring capacity: {}, dispatch interval: {}ms, sender threads: {}",
+                capacity, dispatchIntervalMs, senderThreads);
+    }
+
+    public void publish(TodoChangeEvent.Type type, Long todoId, TodoResponse todo) {
+        append(new TodoChangeEvent(0, type, todoId, LocalDateTime.now(), todo, null));
+        log.trace("Published {} event for todo {}", type, todoId);
+    }
+
+    /** One event for a whole bulk operation, so it takes a single slot in the ring however many todos it changed. */
+    public void publishBulk(TodoChangeEvent.Type type, int affected) {
+        append(new TodoChangeEvent(0, type, null, LocalDateTime.now(), null, affected));
+        log.trace("Published {} event for {} todos", type, affected);
+    }
+
+    private void append(TodoChangeEvent event) {
+        synchronized (ring) {
+            long sequence = ++headSequence;
+            event.setSequence(sequence);
+            ring.set((int) (sequence & mask), event);
+        }
+    }
+
+    /**
+     * Seeds and restores replace todos without going through {@link TodoService}, so the events in the ring
+     * no longer describe the dataset. A resync in the ring tells every subscriber, and anyone resuming from
+     * before it, to reload.
+     */
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        append(new TodoChangeEvent(0, TodoChangeEvent.Type.RESYNC, null, LocalDateTime.now(), null, null));
+        log.info("Published resync on the change feed after {}", event.source());
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = createEmitter(emitterTimeoutMs);
+        if (subscribers.size() >= maxSubscribers) {
+            log.warn("Rejecting change feed subscription - {} subscribers already connected", subscribers.size());
+            emitter.completeWithError(new IllegalStateException("Too many change feed subscribers"));
+            return emitter;
+        }
+
+        long head = head();
+        long cursor = head;
+        boolean resync = false;
+        if (lastEventId != null) {
+            if (lastEventId <= head && lastEventId >= oldestAvailable(head) - 1) {
+                cursor = lastEventId;
+            } else {
+                resync = true;
+            }
+        }
+
+        long id = subscriberIds.incrementAndGet();
+        Subscriber subscriber = new Subscriber(id, emitter, cursor);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        if (resync) {
+            log.debug("Subscriber {} asked to resume from {} which is not buffered (head {})", id, lastEventId, head);
+            sendResync(subscriber, head);
+        }
+        subscribers.put(id, subscriber);
+
+        log.info("Change feed subscriber {} connected - resuming after sequence {} ({} subscribers)",
+                id, subscriber.cursor, subscribers.size());
+        return emitter;
+    }
+
+    /** Overridden in tests to capture what subscribers are sent. */
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    public Map<String, Long> getStatistics() {
+        return Map.of(
+                "headSequence", head(),
+                "subscribers", (long) subscribers.size(),
+                "droppedSubscribers", droppedSubscribers.get(),
+                "bufferCapacity", (long) ring.length());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private long head() {
+        synchronized (ring) {
+            return headSequence;
+        }
+    }
+
+    private long oldestAvailable(long head) {
+        return Math.max(firstSequence + 1, head - ring.length() + 1);
+    }
+
+    private void dispatch() {
+        try {
+            long head = head();
+            long now = System.currentTimeMillis();
+            for (Subscriber subscriber : subscribers.values()) {
+                boolean behind = subscriber.cursor < head;
+                boolean idle = now - subscriber.lastSendMillis >= heartbeatIntervalMs;
+                if ((behind || idle) && subscriber.sending.compareAndSet(false, true)) {
+                    try {
+                        senders.execute(() -> deliver(subscriber, head));
+                    } catch (RejectedExecutionException e) {
+                        subscriber.sending.set(false);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Change feed dispatch failed", e);
+        }
+    }
+
+    private void deliver(Subscriber subscriber, long head) {
+        try {
+            if (subscriber.cursor < oldestAvailable(head) - 1) {
+                log.warn("Change feed subscriber {} fell {} events behind - dropping",
+                        subscriber.id, head - subscriber.cursor);
+                droppedSubscribers.incrementAndGet();
+                sendResync(subscriber, head);
+                subscriber.emitter.complete();
+                remove(subscriber);
+                return;
+            }
+
+            Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+            long cursor = subscriber.cursor;
+            while (cursor < head) {
+                TodoChangeEvent event = ring.get((int) ((cursor + 1) & mask));
+                if (event == null || event.getSequence() != cursor + 1) {
+                    break;
+                }
+                batch.addAll(SseEmitter.event()
+                        .id(Long.toString(event.getSequence()))
+                        .name(event.getType().name().toLowerCase())
+                        .data(event, MediaType.APPLICATION_JSON)
+                        .build());
+                cursor++;
+            }
+
+            if (batch.isEmpty()) {
+                batch.addAll(SseEmitter.event().comment("heartbeat").build());
+            }
+            subscriber.emitter.send(batch);
+            subscriber.cursor = cursor;
+            subscriber.lastSendMillis = System.currentTimeMillis();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Change feed subscriber {} disconnected: {}", subscriber.id, e.getMessage());
+            remove(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void sendResync(Subscriber subscriber, long head) {
+        try {
+            TodoChangeEvent resync = new TodoChangeEvent(head, TodoChangeEvent.Type.RESYNC, null,
+                    LocalDateTime.now(), null, null);
+            subscriber.emitter.send(SseEmitter.event()
+                    .id(Long.toString(head))
+                    .name("resync")
+                    .data(resync, MediaType.APPLICATION_JSON));
+            subscriber.cursor = head;
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.id) != null) {
+            log.info("Change feed subscriber {} disconnected ({} subscribers)", subscriber.id, subscribers.size());
+        }
+    }
+
+    private static class Subscriber {
+        private final long id;
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private volatile long cursor;
+        private volatile long lastSendMillis = System.currentTimeMillis();
+
+        Subscriber(long id, SseEmitter emitter, long cursor) {
+            this.id = id;
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.metrifuge.LogSimulator.dto.TodoResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialized JSON of each todo, keyed by id and tagged with the {@code version} and {@code updatedAt} it was
+ * rendered from.
+ *
+ * An entry is only served while the todo's version and {@code updatedAt} still match, so a missed invalidation
+ * costs a re-serialization rather than a stale response. Writes through {@link TodoService} evict their todo,
+ * bulk loads clear the whole cache. Once {@code maxEntries} is reached an arbitrary entry is dropped per insert.
+ * Serialization cost is measured as thread CPU time so that the saving estimate holds up on a saturated host.
+ */
+@Component
+@Slf4j
+public class TodoJsonCache {
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ObjectWriter writer;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported();
+    private final boolean enabled;
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+
+    public TodoJsonCache(ObjectMapper objectMapper,
+                         @Value("${todo.json-cache.enabled:true}") boolean enabled,
+                         @Value("${todo.json-cache.max-entries:100000}") int maxEntries) {
+        this.writer = objectMapper.writerFor(TodoResponse.class);
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        log.info("Todo JSON cache {} - max entries: {}", enabled ? "enabled" : "disabled", maxEntries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public byte[] toJson(TodoResponse todo) throws JsonProcessingException {
+        Long id = todo.getId();
+        Entry entry = id != null ? entries.get(id) : null;
+        if (entry != null && Objects.equals(entry.version, todo.getVersion())
+                && Objects.equals(entry.updatedAt, todo.getUpdatedAt())) {
+            hits.increment();
+            bytesServed.add(entry.json.length);
+            return entry.json;
+        }
+
+        long start = cpuTime();
+        byte[] json = writer.writeValueAsBytes(todo);
+        serializationNanos.add(cpuTime() - start);
+        misses.increment();
+        bytesServed.add(json.length);
+
+        if (id != null) {
+            if (entry == null && entries.size() >= maxEntries) {
+                evictOne();
+            }
+            entries.put(id, new Entry(todo.getVersion(), todo.getUpdatedAt(), json));
+        }
+        return json;
+    }
+
+    public void evict(Long id) {
+        if (id != null && entries.remove(id) != null) {
+            evictions.increment();
+        }
+    }
+
+    public void clear() {
+        evictions.add(entries.size());
+        entries.clear();
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        log.info("Clearing todo JSON cache after {}", event.source());
+        clear();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long serializeNanos = serializationNanos.sum();
+        double meanSerializeNanos = missCount > 0 ? (double) serializeNanos / missCount : 0;
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("entries", entries.size());
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", missCount);
+        statistics.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0);
+        statistics.put("evictions", evictions.sum());
+        statistics.put("bytesServed", bytesServed.sum());
+        statistics.put("serializationCpuMillis", TimeUnit.NANOSECONDS.toMillis(serializeNanos));
+        statistics.put("meanSerializationCpuMicros", meanSerializeNanos / 1000);
+        statistics.put("estimatedSavedCpuMillis", (long) (hitCount * meanSerializeNanos / 1_000_000));
+        return statistics;
+    }
+
+    private long cpuTime() {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private void evictOne() {
+        Iterator<Long> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry(Long version, LocalDateTime updatedAt, byte[] json) {}
+}
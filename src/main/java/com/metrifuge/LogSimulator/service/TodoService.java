@@ -1,17 +1,32 @@
 package com.metrifuge.LogSimulator.service;
 
+import com.metrifuge.LogSimulator.config.BulkProperties;
+import com.metrifuge.LogSimulator.config.LookupProperties;
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import com.metrifuge.LogSimulator.dto.BulkResult;
+import com.metrifuge.LogSimulator.dto.BulkUpdateRequest;
+import com.metrifuge.LogSimulator.dto.TodoChangeEvent;
+import com.metrifuge.LogSimulator.dto.TodoFilter;
+import com.metrifuge.LogSimulator.dto.TodoLookupResult;
 import com.metrifuge.LogSimulator.dto.TodoRequest;
 import com.metrifuge.LogSimulator.dto.TodoResponse;
+import com.metrifuge.LogSimulator.exception.PreconditionFailedException;
 import com.metrifuge.LogSimulator.exception.TodoNotFoundException;
 import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoBulkUpdater;
 import com.metrifuge.LogSimulator.repository.TodoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +35,13 @@ import java.util.stream.Collectors;
 public class TodoService {
 
     private final TodoRepository todoRepository;
+    private final TodoChangeFeed changeFeed;
+    private final TodoJsonCache jsonCache;
+    private final TodoAnalytics analytics;
+    private final ReadCoalescer readCoalescer;
+    private final LookupProperties lookupProperties;
+    private final TodoBulkUpdater bulkUpdater;
+    private final BulkProperties bulkProperties;
 
     public TodoResponse createTodo(TodoRequest request) {
         log.info("Creating new todo with title: '{}'", request.getTitle());
@@ -38,18 +60,22 @@ public class TodoService {
         todo.setEstimatedHours(request.getEstimatedHours() != null ? request.getEstimatedHours() : 0);
 
         Todo savedTodo = todoRepository.save(todo);
+        readCoalescer.invalidate();
         log.info("Successfully created todo with ID: {}", savedTodo.getId());
         log.debug("Created todo complete details: {}", savedTodo);
 
-        return TodoResponse.fromEntity(savedTodo);
+        analytics.recordCreated(savedTodo);
+        TodoResponse response = TodoResponse.fromEntity(savedTodo);
+        changeFeed.publish(TodoChangeEvent.Type.CREATED, response.getId(), response);
+        return response;
     }
 
-    public TodoResponse getTodoById(Long id) {
-        log.info("Fetching todo by ID: {}", id);
+    public TodoResponse getTodoById(Long id, boolean includeArchived) {
+        log.info("Fetching todo by ID: {} (includeArchived: {})", id, includeArchived);
 
-        Todo todo = todoRepository.findById(id)
+        Todo todo = todoRepository.findById(id, includeArchived)
                 .orElseThrow(() -> {
-                    log.error("Todo not found with ID: {}", id);
+                    log.debug("Todo not found with ID: {}", id);
                     return new TodoNotFoundException(id);
                 });
 
@@ -57,68 +83,136 @@ public class TodoService {
         return TodoResponse.fromEntity(todo);
     }
 
-    public List<TodoResponse> getAllTodos() {
-        log.info("Fetching all todos");
-
-        List<Todo> todos = todoRepository.findAll();
-        log.info("Found {} todos in database", todos.size());
-        log.debug("Todo IDs: {}", todos.stream().map(Todo::getId).collect(Collectors.toList()));
+    /**
+     * Fetches many todos by ID in one round of chunked IN queries. Found todos come back in request order,
+     * repeated IDs once; IDs without a todo are reported instead of failing the call.
+     */
+    public TodoLookupResult lookupTodos(List<Long> ids, boolean includeArchived) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > lookupProperties.getMaxIds()) {
+            throw new IllegalArgumentException("At most " + lookupProperties.getMaxIds()
+                    + " IDs can be looked up at once, got " + requested.size());
+        }
+        log.info("Looking up {} todos by ID (includeArchived: {})", requested.size(), includeArchived);
 
-        return todos.stream()
-                .map(TodoResponse::fromEntity)
-                .collect(Collectors.toList());
+        Map<Long, Todo> found = new HashMap<>();
+        for (Todo todo : todoRepository.findByIds(requested, includeArchived, lookupProperties.getChunkSize())) {
+            found.put(todo.getId(), todo);
+        }
+        RequestDeadline.check("building the response");
+
+        List<TodoResponse> todos = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            Todo todo = found.get(id);
+            if (todo != null) {
+                todos.add(TodoResponse.fromEntity(todo));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        log.info("Found {} of {} requested todos", todos.size(), requested.size());
+        if (!missingIds.isEmpty()) {
+            log.debug("Todos not found with IDs: {}", missingIds);
+        }
+        return new TodoLookupResult(todos, missingIds);
     }
 
-    public TodoResponse updateTodo(Long id, TodoRequest request) {
-        log.info("Updating todo with ID: {}", id);
-        log.debug("Update request details: {}", request);
+    public List<TodoResponse> getAllTodos(boolean includeArchived) {
+        log.info("Fetching all todos (includeArchived: {})", includeArchived);
 
-        Todo todo = todoRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.error("Cannot update - Todo not found with ID: {}", id);
-                    return new TodoNotFoundException(id);
-                });
-
-        log.debug("Existing todo before update: {}", todo);
+        List<TodoResponse> todos = readCoalescer.execute("all:" + includeArchived,
+                () -> toResponses(todoRepository.findAll(includeArchived)));
+        log.info("Found {} todos in database", todos.size());
+        log.debug("Todo IDs: {}", todos.stream().map(TodoResponse::getId).collect(Collectors.toList()));
 
-        todo.setTitle(request.getTitle());
-        todo.setDescription(request.getDescription());
+        return todos;
+    }
 
-        if (request.getCompleted() != null) {
-            boolean wasCompleted = todo.getCompleted();
-            todo.setCompleted(request.getCompleted());
-            if (!wasCompleted && request.getCompleted()) {
-                log.info("Todo ID: {} marked as completed", id);
-                todo.setCompletedAt(LocalDateTime.now());
-            } else if (wasCompleted && !request.getCompleted()) {
-                log.info("Todo ID: {} marked as incomplete", id);
-                todo.setCompletedAt(null);
-            }
+    /** Up to {@code limit} todos with IDs above {@code afterId}, in ID order, for paging through every todo. */
+    public List<TodoResponse> getTodoPage(long afterId, int limit, boolean includeArchived) {
+        if (limit < 1 || limit > lookupProperties.getMaxPageSize()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + lookupProperties.getMaxPageSize()
+                    + ", got " + limit);
         }
+        log.info("Fetching up to {} todos after ID {} (includeArchived: {})", limit, afterId, includeArchived);
 
-        if (request.getPriority() != null) {
-            log.debug("Priority changed from {} to {}", todo.getPriority(), request.getPriority());
-            todo.setPriority(request.getPriority());
-        }
+        List<TodoResponse> todos = toResponses(todoRepository.findPageAfterId(afterId, limit, includeArchived));
+        log.info("Found {} todos after ID {}", todos.size(), afterId);
+        return todos;
+    }
 
-        if (request.getCategory() != null) {
-            log.debug("Category changed from {} to {}", todo.getCategory(), request.getCategory());
-            todo.setCategory(request.getCategory());
-        }
+    /**
+     * Updates a todo with a single conditional UPDATE. With {@code expectedVersion} set the update only
+     * applies while the todo is still at that version; when it does not apply, one version lookup tells a
+     * missing todo (404) apart from a concurrent modification (412).
+     */
+    public TodoResponse updateTodo(Long id, TodoRequest request, Long expectedVersion) {
+        log.info("Updating todo with ID: {}{}", id, expectedVersion != null ? " at version " + expectedVersion : "");
+        log.debug("Update request details: {}", request);
 
-        todo.setDueDate(request.getDueDate());
-        todo.setAssignedTo(request.getAssignedTo());
-        todo.setTags(request.getTags());
+        Todo changes = new Todo();
+        changes.setTitle(request.getTitle());
+        changes.setDescription(request.getDescription());
+        changes.setCompleted(request.getCompleted());
+        changes.setPriority(request.getPriority());
+        changes.setCategory(request.getCategory());
+        changes.setDueDate(request.getDueDate());
+        changes.setAssignedTo(request.getAssignedTo());
+        changes.setTags(request.getTags());
+        changes.setEstimatedHours(request.getEstimatedHours());
+
+        Todo updatedTodo = todoRepository.updateIfVersion(id, changes, expectedVersion)
+                .orElseThrow(() -> updateFailure(id, expectedVersion));
+        return updated(id, updatedTodo, request.getCompleted());
+    }
 
-        if (request.getEstimatedHours() != null) {
-            todo.setEstimatedHours(request.getEstimatedHours());
+    /**
+     * Marks a todo complete with one conditional UPDATE that only touches the completion fields, so an edit
+     * landing at the same time is neither lost nor overwritten.
+     */
+    public TodoResponse completeTodo(Long id, Long expectedVersion) {
+        log.info("Completing todo with ID: {}{}", id, expectedVersion != null ? " at version " + expectedVersion : "");
+
+        Todo updatedTodo = todoRepository.completeIfVersion(id, expectedVersion)
+                .orElseThrow(() -> updateFailure(id, expectedVersion));
+        return updated(id, updatedTodo, true);
+    }
+
+    private TodoResponse updated(Long id, Todo updatedTodo, Boolean completedRequested) {
+        // completed_at is only set to the update time when this update completed the todo
+        boolean newlyCompleted = Boolean.TRUE.equals(completedRequested)
+                && updatedTodo.getCompletedAt() != null
+                && updatedTodo.getCompletedAt().equals(updatedTodo.getUpdatedAt());
+        if (newlyCompleted) {
+            log.info("Todo ID: {} marked as completed", id);
+            analytics.recordCompleted(updatedTodo);
+        } else if (Boolean.FALSE.equals(completedRequested)) {
+            log.debug("Todo ID: {} marked as incomplete", id);
         }
 
-        Todo updatedTodo = todoRepository.save(todo);
-        log.info("Successfully updated todo with ID: {}", id);
+        jsonCache.evict(id);
+        readCoalescer.invalidate();
+        log.info("Successfully updated todo with ID: {} to version {}", id, updatedTodo.getVersion());
         log.debug("Updated todo complete details: {}", updatedTodo);
 
-        return TodoResponse.fromEntity(updatedTodo);
+        TodoResponse response = TodoResponse.fromEntity(updatedTodo);
+        changeFeed.publish(newlyCompleted ? TodoChangeEvent.Type.COMPLETED : TodoChangeEvent.Type.UPDATED, id, response);
+        return response;
+    }
+
+    private RuntimeException updateFailure(Long id, Long expectedVersion) {
+        if (expectedVersion != null) {
+            Optional<Long> currentVersion = todoRepository.findVersion(id);
+            if (currentVersion.isPresent()) {
+                log.warn("Cannot update - Todo ID: {} is at version {}, expected {}",
+                        id, currentVersion.get(), expectedVersion);
+                return new PreconditionFailedException(id, expectedVersion, currentVersion.get());
+            }
+        }
+        log.debug("Cannot update - Todo not found with ID: {}", id);
+        return new TodoNotFoundException(id);
     }
 
     public void deleteTodo(Long id) {
@@ -126,62 +220,163 @@ public class TodoService {
 
         Todo todo = todoRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Cannot delete - Todo not found with ID: {}", id);
+                    log.debug("Cannot delete - Todo not found with ID: {}", id);
                     return new TodoNotFoundException(id);
                 });
 
         log.debug("Deleting todo: {}", todo);
         todoRepository.delete(todo);
+        jsonCache.evict(id);
+        readCoalescer.invalidate();
+        analytics.recordDeleted(todo);
         log.info("Successfully deleted todo with ID: {}", id);
+        changeFeed.publish(TodoChangeEvent.Type.DELETED, id, null);
+    }
+
+    public BulkResult bulkComplete(TodoFilter filter) {
+        requireCriteria(filter);
+        if (Boolean.TRUE.equals(filter.getCompleted())) {
+            throw new IllegalArgumentException("Bulk complete only applies to open todos, " +
+                    "drop completed=true from the filter");
+        }
+        log.info("Bulk completing todos matching {}", filter);
+
+        TodoFilter open = new TodoFilter(false, filter.getPriority(), filter.getCategory(), filter.getAssignedTo(),
+                filter.getDueFrom(), filter.getDueBefore(), filter.getIds());
+        return bulkUpdate("complete", open, TodoBulkUpdater.Changes.complete());
+    }
+
+    public BulkResult bulkUpdate(BulkUpdateRequest request) {
+        log.info("Bulk updating todos matching {}", request.getFilter());
+        log.debug("Bulk update request details: {}", request);
+
+        TodoBulkUpdater.Changes changes = new TodoBulkUpdater.Changes(request.getCompleted(), request.getPriority(),
+                request.getCategory(), request.getDueDate(), request.getAssignedTo(), request.getTags(),
+                request.getEstimatedHours());
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Bulk update needs at least one field to change");
+        }
+        return bulkUpdate("update", request.getFilter(), changes);
+    }
+
+    private BulkResult bulkUpdate(String operation, TodoFilter filter, TodoBulkUpdater.Changes changes) {
+        long startTime = System.currentTimeMillis();
+        TodoBulkUpdater.Result result = bulkUpdater.update(criteria(filter), changes, bulkProperties.getChunkSize());
+
+        int newlyCompleted = 0;
+        for (Todo todo : result.rows()) {
+            // completed_at is only set to the update time on todos this update completed
+            boolean completed = Boolean.TRUE.equals(changes.completed())
+                    && todo.getCompletedAt() != null && todo.getCompletedAt().equals(todo.getUpdatedAt());
+            if (completed) {
+                newlyCompleted++;
+                analytics.recordCompleted(todo);
+            }
+        }
+        if (!result.rows().isEmpty()) {
+            evict(result.rows());
+            readCoalescer.invalidate();
+            changeFeed.publishBulk("complete".equals(operation) ? TodoChangeEvent.Type.BULK_COMPLETED
+                    : TodoChangeEvent.Type.BULK_UPDATED, result.rows().size());
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("Bulk {} changed {} todos, {} newly completed, in {} statements", operation, result.rows().size(),
+                newlyCompleted, result.statements());
+        return new BulkResult(operation, result.rows().size(), newlyCompleted, result.statements(), duration);
+    }
+
+    public BulkResult bulkDelete(TodoFilter filter) {
+        log.info("Bulk deleting todos matching {}", filter);
+
+        long startTime = System.currentTimeMillis();
+        TodoBulkUpdater.Result result = bulkUpdater.delete(criteria(filter), bulkProperties.getChunkSize());
+        result.rows().forEach(analytics::recordDeleted);
+        if (!result.rows().isEmpty()) {
+            evict(result.rows());
+            readCoalescer.invalidate();
+            changeFeed.publishBulk(TodoChangeEvent.Type.BULK_DELETED, result.rows().size());
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("Bulk delete removed {} todos in {} statements", result.rows().size(), result.statements());
+        return new BulkResult("delete", result.rows().size(), 0, result.statements(), duration);
+    }
+
+    private void evict(List<Todo> changed) {
+        if (changed.size() > bulkProperties.getMaxCacheEvictions()) {
+            jsonCache.clear();
+        } else {
+            changed.forEach(todo -> jsonCache.evict(todo.getId()));
+        }
+    }
+
+    private TodoBulkUpdater.Criteria criteria(TodoFilter filter) {
+        requireCriteria(filter);
+        Set<Long> ids = null;
+        if (filter.getIds() != null) {
+            ids = new LinkedHashSet<>(filter.getIds());
+            ids.remove(null);
+            if (ids.size() > bulkProperties.getMaxIds()) {
+                throw new IllegalArgumentException("At most " + bulkProperties.getMaxIds()
+                        + " IDs can be given to a bulk operation, got " + ids.size());
+            }
+        }
+        return new TodoBulkUpdater.Criteria(filter.getCompleted(), filter.getPriority(), filter.getCategory(),
+                filter.getAssignedTo(), filter.getDueFrom(), filter.getDueBefore(), ids);
+    }
+
+    // An empty filter would match every todo, so a forgotten filter is refused rather than applied to all
+    private static void requireCriteria(TodoFilter filter) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("Bulk operations need at least one filter criterion");
+        }
     }
 
-    public List<TodoResponse> getTodosByCompleted(Boolean completed) {
-        log.info("Fetching todos by completed status: {}", completed);
+    public List<TodoResponse> getTodosByCompleted(Boolean completed, boolean includeArchived) {
+        log.info("Fetching todos by completed status: {} (includeArchived: {})", completed, includeArchived);
 
-        List<Todo> todos = todoRepository.findByCompleted(completed);
+        List<TodoResponse> todos = readCoalescer.execute("completed:" + completed + ":" + includeArchived,
+                () -> toResponses(todoRepository.findByCompleted(completed, includeArchived)));
         log.info("Found {} todos with completed={}", todos.size(), completed);
 
-        return todos.stream()
-                .map(TodoResponse::fromEntity)
-                .collect(Collectors.toList());
+        return todos;
     }
 
-    public List<TodoResponse> getTodosByPriority(Todo.Priority priority) {
-        log.info("Fetching todos by priority: {}", priority);
+    public List<TodoResponse> getTodosByPriority(Todo.Priority priority, boolean includeArchived) {
+        log.info("Fetching todos by priority: {} (includeArchived: {})", priority, includeArchived);
 
-        List<Todo> todos = todoRepository.findByPriority(priority);
+        List<TodoResponse> todos = readCoalescer.execute("priority:" + priority + ":" + includeArchived,
+                () -> toResponses(todoRepository.findByPriority(priority, includeArchived)));
         log.info("Found {} todos with priority={}", todos.size(), priority);
 
-        return todos.stream()
-                .map(TodoResponse::fromEntity)
-                .collect(Collectors.toList());
+        return todos;
     }
 
-    public List<TodoResponse> getTodosByCategory(Todo.Category category) {
-        log.info("Fetching todos by category: {}", category);
+    public List<TodoResponse> getTodosByCategory(Todo.Category category, boolean includeArchived) {
+        log.info("Fetching todos by category: {} (includeArchived: {})", category, includeArchived);
 
-        List<Todo> todos = todoRepository.findByCategory(category);
+        List<TodoResponse> todos = readCoalescer.execute("category:" + category + ":" + includeArchived,
+                () -> toResponses(todoRepository.findByCategory(category, includeArchived)));
         log.info("Found {} todos with category={}", todos.size(), category);
 
-        return todos.stream()
-                .map(TodoResponse::fromEntity)
-                .collect(Collectors.toList());
+        return todos;
     }
 
-    public List<TodoResponse> searchTodos(String keyword) {
-        log.info("Searching todos with keyword: '{}'", keyword);
+    public List<TodoResponse> searchTodos(String keyword, boolean includeArchived) {
+        log.info("Searching todos with keyword: '{}' (includeArchived: {})", keyword, includeArchived);
 
-        List<Todo> todos = todoRepository.searchByKeyword(keyword);
+        List<TodoResponse> todos = readCoalescer.execute("search:" + includeArchived + ":" + keyword,
+                () -> toResponses(todoRepository.searchByKeyword(keyword, includeArchived)));
         log.info("Found {} todos matching keyword '{}'", todos.size(), keyword);
 
-        return todos.stream()
-                .map(TodoResponse::fromEntity)
-                .collect(Collectors.toList());
+        return todos;
     }
 
     public Map<String, Long> getStatistics() {
         log.info("Calculating todo statistics");
+        return readCoalescer.execute("statistics", this::calculateStatistics);
+    }
 
+    private Map<String, Long> calculateStatistics() {
         long totalTodos = todoRepository.count();
         long completedTodos = todoRepository.countByCompleted(true);
         long incompleteTodos = todoRepository.countByCompleted(false);
@@ -199,6 +394,15 @@ public class TodoService {
         stats.put("urgent", urgentTodos);
         stats.put("highPriority", highPriorityTodos);
 
-        return stats;
+        return Collections.unmodifiableMap(stats);
+    }
+
+    // Mapping and serializing a large result is wasted once the client has given up on it. The list is
+    // unmodifiable because coalesced callers share it
+    private List<TodoResponse> toResponses(List<Todo> todos) {
+        RequestDeadline.check("building the response");
+        return todos.stream()
+                .map(TodoResponse::fromEntity)
+                .toList();
     }
 }
@@ -0,0 +1,20 @@
+-- Archive file companion to each todos database; same columns as todos plus the time of archival
+PRAGMA auto_vacuum = INCREMENTAL;
+
+CREATE TABLE IF NOT EXISTS todos (
+    id INTEGER PRIMARY KEY,
+    title VARCHAR(500) NOT NULL,
+    description VARCHAR(2000),
+    completed BOOLEAN NOT NULL DEFAULT 0,
+    priority VARCHAR(50) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    due_date TIMESTAMP,
+    completed_at TIMESTAMP,
+    assigned_to VARCHAR(100),
+    tags VARCHAR(50),
+    estimated_hours INTEGER NOT NULL DEFAULT 0,
+    version INTEGER NOT NULL DEFAULT 0,
+    archived_at TIMESTAMP NOT NULL
+);
@@ -1,3 +1,6 @@
+-- Only takes effect on a new database; lets the archiver return freed pages to the OS
+PRAGMA auto_vacuum = INCREMENTAL;
+
 CREATE TABLE IF NOT EXISTS todos (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     title VARCHAR(500) NOT NULL,
@@ -11,5 +14,8 @@ CREATE TABLE IF NOT EXISTS todos (
     completed_at TIMESTAMP,
     assigned_to VARCHAR(100),
     tags VARCHAR(50),
-    estimated_hours INTEGER NOT NULL DEFAULT 0
+    estimated_hours INTEGER NOT NULL DEFAULT 0,
+    version INTEGER NOT NULL DEFAULT 0
 );
+
+CREATE INDEX IF NOT EXISTS idx_todos_completed_at ON todos (completed_at) WHERE completed = 1;
@@ -0,0 +1,130 @@
+package com.metrifuge.LogSimulator.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientConcurrencyLimitTest {
+
+    private static final int WINDOW_SAMPLES = 5;
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        GradientConcurrencyLimit limit = limit(2, 1, 10);
+
+        assertEquals(1, limit.tryAcquire());
+        assertEquals(2, limit.tryAcquire());
+        assertEquals(-1, limit.tryAcquire());
+        limit.release(millis(5), 1, false);
+        assertEquals(2, limit.tryAcquire());
+
+        assertEquals(3L, limit.getStatistics().get("accepted"));
+        assertEquals(1L, limit.getStatistics().get("rejected"));
+        assertEquals(2, limit.getStatistics().get("inFlight"));
+    }
+
+    @Test
+    void initialLimitIsClampedToTheBounds() {
+        assertEquals(4, currentLimit(limit(1, 4, 16)));
+        assertEquals(16, currentLimit(limit(100, 4, 16)));
+    }
+
+    @Test
+    void dropShrinksTheLimitImmediatelyDownToTheMinimum() {
+        GradientConcurrencyLimit limit = limit(20, 17, 64);
+
+        limit.tryAcquire();
+        limit.release(millis(5), 1, true);
+        assertEquals(18, currentLimit(limit));
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.release(millis(5), 1, true);
+        }
+        assertEquals(17, currentLimit(limit));
+        assertEquals(6L, limit.getStatistics().get("drops"));
+    }
+
+    @Test
+    void steadyLatencyUnderFullUseGrowsTheLimitUpToTheMaximum() {
+        GradientConcurrencyLimit limit = limit(16, 4, 64);
+
+        // Each window moves the limit a fifth of the way to limit + sqrt(limit)
+        for (int i = 0; i < 5; i++) {
+            window(limit, 10, 64);
+        }
+        int grown = currentLimit(limit);
+        assertTrue(grown > 16, "limit grew to " + grown);
+
+        for (int i = 0; i < 200; i++) {
+            window(limit, 10, 64);
+        }
+        assertEquals(64, currentLimit(limit));
+    }
+
+    @Test
+    void risingLatencyShrinksTheLimit() {
+        GradientConcurrencyLimit limit = limit(32, 4, 64);
+        window(limit, 10, 32);
+        int before = currentLimit(limit);
+
+        for (int i = 0; i < 10; i++) {
+            window(limit, 100, 32);
+        }
+
+        int after = currentLimit(limit);
+        assertTrue(after < before * 0.6, "limit went from " + before + " to " + after);
+        assertTrue(after >= 4);
+    }
+
+    @Test
+    void limitDoesNotGrowWhileMostOfItIsUnused() {
+        GradientConcurrencyLimit limit = limit(32, 4, 64);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, 10, 15);
+        }
+
+        assertEquals(32, currentLimit(limit));
+    }
+
+    @Test
+    void windowNeedsTheMinimumNumberOfSamples() {
+        GradientConcurrencyLimit limit = limit(16, 4, 64);
+
+        for (int i = 0; i < WINDOW_SAMPLES - 1; i++) {
+            limit.tryAcquire();
+            limit.release(millis(10), 16, false);
+        }
+
+        assertEquals(16, currentLimit(limit));
+        assertEquals(0.0, limit.getStatistics().get("shortRttMillis"));
+    }
+
+    private static GradientConcurrencyLimit limit(int initial, int min, int max) {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setWindowMs(0);
+        properties.setMinWindowSamples(WINDOW_SAMPLES);
+        return new GradientConcurrencyLimit(new ConcurrencyLimitProperties.LimitSettings(initial, min, max),
+                properties);
+    }
+
+    /** Completes one latency window of requests that each took {@code rttMillis}. */
+    private static void window(GradientConcurrencyLimit limit, long rttMillis, int inFlightAtStart) {
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            limit.tryAcquire();
+            limit.release(millis(rttMillis), inFlightAtStart, false);
+        }
+    }
+
+    private static int currentLimit(GradientConcurrencyLimit limit) {
+        return (int) limit.getStatistics().get("limit");
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
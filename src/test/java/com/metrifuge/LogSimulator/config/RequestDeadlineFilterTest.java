@@ -0,0 +1,186 @@
+package com.metrifuge.LogSimulator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.metrifuge.LogSimulator.exception.DeadlineExceededException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDeadlineFilterTest {
+
+    private final DeadlineProperties properties = new DeadlineProperties();
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(properties,
+            new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    /** Milliseconds left on the deadline as seen by the handler, or null when it was not called. */
+    private Long seenRemaining;
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void requestWithoutHeaderOrDefaultHasNoDeadline() throws Exception {
+        MockHttpServletResponse response = run(request("GET", "/api/todos"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(Long.MAX_VALUE, seenRemaining);
+    }
+
+    @Test
+    void timeoutHeaderSetsTheDeadline() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/todos");
+        request.addHeader("X-Request-Timeout", " 500 ");
+
+        run(request);
+
+        assertBetween(400, 500, seenRemaining);
+        assertFalse(RequestDeadline.isSet(), "deadline is cleared after the request");
+    }
+
+    @Test
+    void deadlineHeaderIsRelativeToTheWallClock() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/todos");
+        request.addHeader("X-Request-Deadline", Long.toString(System.currentTimeMillis() + 2_000));
+
+        run(request);
+
+        assertBetween(1_800, 2_000, seenRemaining);
+    }
+
+    @Test
+    void soonerOfBothHeadersWins() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/todos");
+        request.addHeader("X-Request-Timeout", "5000");
+        request.addHeader("X-Request-Deadline", Long.toString(System.currentTimeMillis() + 1_000));
+
+        run(request);
+
+        assertBetween(800, 1_000, seenRemaining);
+    }
+
+    @Test
+    void headerCanOnlyShortenTheEndpointTimeout() throws Exception {
+        properties.setEndpoints(List.of(endpoint("GET", "/api/todos/**", 1_000)));
+        MockHttpServletRequest longer = request("GET", "/api/todos/stats");
+        longer.addHeader("X-Request-Timeout", "60000");
+        MockHttpServletRequest shorter = request("GET", "/api/todos/stats");
+        shorter.addHeader("X-Request-Timeout", "200");
+
+        run(longer);
+        assertBetween(800, 1_000, seenRemaining);
+        run(shorter);
+        assertBetween(100, 200, seenRemaining);
+    }
+
+    @Test
+    void firstMatchingEndpointWinsAndZeroExemptsIt() throws Exception {
+        properties.setDefaultTimeoutMs(300);
+        properties.setEndpoints(List.of(endpoint("POST", "/api/todos/lookup", 5_000),
+                endpoint("", "/api/todos/export", 0)));
+
+        run(request("GET", "/api/todos/export"));
+        assertEquals(Long.MAX_VALUE, seenRemaining);
+
+        run(request("POST", "/api/todos"));
+        assertBetween(200, 300, seenRemaining);
+    }
+
+    @Test
+    void malformedHeaderIsRejectedWith400() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/todos");
+        request.addHeader("X-Request-Timeout", "1.5s");
+
+        MockHttpServletResponse response = run(request);
+
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Invalid deadline header"));
+        assertNull(seenRemaining);
+    }
+
+    @Test
+    void expiredOnArrivalIsRejectedWith504() throws Exception {
+        MockHttpServletRequest zero = request("GET", "/api/todos");
+        zero.addHeader("X-Request-Timeout", "0");
+        MockHttpServletRequest past = request("GET", "/api/todos");
+        past.addHeader("X-Request-Deadline", Long.toString(System.currentTimeMillis() - 1_000));
+
+        assertEquals(504, run(zero).getStatus());
+        assertEquals(504, run(past).getStatus());
+        assertNull(seenRemaining);
+        assertEquals(2L, filter.getStatistics().get("expiredOnArrival"));
+    }
+
+    @Test
+    void excludedAndNonApiPathsIgnoreTheHeaders() throws Exception {
+        MockHttpServletRequest admin = request("POST", "/api/admin/seed");
+        admin.addHeader("X-Request-Timeout", "0");
+        MockHttpServletRequest docs = request("GET", "/swagger-ui.html");
+        docs.addHeader("X-Request-Timeout", "0");
+
+        assertEquals(200, run(admin).getStatus());
+        assertEquals(Long.MAX_VALUE, seenRemaining);
+        assertEquals(200, run(docs).getStatus());
+        assertEquals(Long.MAX_VALUE, seenRemaining);
+    }
+
+    @Test
+    void wrappedWorkSeesTheDeadlineAndChecksIt() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RequestDeadline.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+            long[] remaining = new long[2];
+            executor.submit(RequestDeadline.wrap(() -> remaining[0] = RequestDeadline.remainingMillis())).get();
+            executor.submit(() -> remaining[1] = RequestDeadline.remainingMillis()).get();
+
+            assertBetween(9_000, 10_000, remaining[0]);
+            assertEquals(Long.MAX_VALUE, remaining[1], "the worker's own deadline is restored");
+
+            RequestDeadline.set(System.nanoTime() - 1);
+            assertTrue(RequestDeadline.expired());
+            assertThrows(DeadlineExceededException.class, () -> RequestDeadline.check("the query"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request) throws Exception {
+        seenRemaining = null;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> seenRemaining = RequestDeadline.remainingMillis();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+
+    private static DeadlineProperties.Endpoint endpoint(String method, String path, long timeoutMs) {
+        DeadlineProperties.Endpoint endpoint = new DeadlineProperties.Endpoint();
+        endpoint.setMethod(method);
+        endpoint.setPath(path);
+        endpoint.setTimeoutMs(timeoutMs);
+        return endpoint;
+    }
+
+    private static void assertBetween(long min, long max, Long actual) {
+        assertTrue(actual != null && actual >= min && actual <= max,
+                "expected between " + min + " and " + max + " but was " + actual);
+    }
+}
@@ -0,0 +1,131 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.metrifuge.LogSimulator.config.LogSamplingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveSamplingFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("com.metrifuge.LogSimulator.test");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        context.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdownNow();
+        MDC.clear();
+        context.stop();
+    }
+
+    @Test
+    void unsampledRequestDropsDebugWithoutHoldingIt() {
+        AdaptiveSamplingFilter filter = start(0.0, 0);
+
+        filter.begin("request-1");
+        logger.debug("dropped {}", 1);
+        logger.warn("forced");
+        filter.end();
+
+        assertEquals(List.of("forced"), messages());
+        assertEquals(0L, filter.getStatistics().get("replayedEvents"));
+        assertEquals(0L, filter.getStatistics().get("droppedEvents"));
+    }
+
+    @Test
+    void replayWhenEnabledWritesHeldEventsBeforeTheForcingOne() throws Exception {
+        AdaptiveSamplingFilter filter = start(0.0, 2);
+
+        filter.begin("request-1");
+        logger.debug("first {}", 1);
+        long firstLogged = System.currentTimeMillis();
+        Thread.sleep(20);
+        logger.debug("second {}", 2);
+        logger.debug("third {}", 3);
+        logger.warn("forced");
+        filter.end();
+
+        assertEquals(List.of("first 1", "second 2", "forced"), messages());
+        assertTrue(appender.list.get(0).getTimeStamp() <= firstLogged, "replayed event keeps its original time");
+        assertEquals(2L, filter.getStatistics().get("replayedEvents"));
+        assertEquals(1L, filter.getStatistics().get("droppedEvents"));
+    }
+
+    @Test
+    void workerThreadsFollowTheRequestDecision() throws Exception {
+        AdaptiveSamplingFilter unsampled = start(0.0, 16);
+        runOnWorker(unsampled, "unsampled");
+        context.resetTurboFilterList();
+
+        AdaptiveSamplingFilter sampled = start(1.0, 16);
+        runOnWorker(sampled, "sampled");
+
+        assertEquals(List.of("worker info for unsampled", "worker info for sampled",
+                "worker debug for sampled"), messages());
+    }
+
+    @Test
+    void threadsOutsideARequestLogAtTheirConfiguredLevels() {
+        start(0.0, 0);
+
+        logger.debug("background");
+
+        assertEquals(List.of("background"), messages());
+    }
+
+    private void runOnWorker(AdaptiveSamplingFilter filter, String decision) throws Exception {
+        filter.begin("request-" + decision);
+        try {
+            worker.submit(MdcTaskDecorator.wrap(() -> {
+                logger.info("worker info for {}", decision);
+                logger.debug("worker debug for {}", decision);
+            })).get();
+        } finally {
+            filter.end();
+        }
+    }
+
+    private AdaptiveSamplingFilter start(double rate, int replayBufferSize) {
+        LogSamplingProperties properties = new LogSamplingProperties();
+        properties.setInitialRate(rate);
+        properties.setMinRate(rate);
+        properties.setMaxRate(rate);
+        properties.setAdjustIntervalMs(60_000);
+        properties.setReplayBufferSize(replayBufferSize);
+        AdaptiveSamplingFilter filter = new AdaptiveSamplingFilter(properties);
+        filter.setContext(context);
+        filter.start();
+        context.addTurboFilter(filter);
+
+        if (!appender.isStarted()) {
+            logger.setLevel(Level.DEBUG);
+            appender.setContext(context);
+            appender.start();
+            logger.addAppender(appender);
+        }
+        return filter;
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+}
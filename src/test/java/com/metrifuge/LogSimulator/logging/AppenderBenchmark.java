@@ -0,0 +1,148 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link RollingFileAppender} with {@link MappedSegmentAppender} under the same pattern,
+ * segment size and thread count, reporting sustained lines/sec and per-append latency percentiles.
+ *
+ * Run with:
+ * {@code mvn -B test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=com.metrifuge.LogSimulator.logging.AppenderBenchmark -Dexec.args="4 500000"}
+ */
+public class AppenderBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+    private static final String SEGMENT_SIZE = "64MB";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int linesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 250_000;
+        Path root = Files.createTempDirectory("appender-benchmark");
+
+        System.out.printf("%d threads x %d lines, %s segments, output under %s%n%n",
+                threads, linesPerThread, SEGMENT_SIZE, root);
+        System.out.printf("%-22s %12s %10s %10s %10s%n", "appender", "lines/sec", "p50 ns", "p99 ns", "p99.9 ns");
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            run("RollingFileAppender", rolling(root.resolve("rolling-" + round)), threads, linesPerThread, report);
+            run("MappedSegmentAppender", mapped(root.resolve("mapped-" + round)), threads, linesPerThread, report);
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void run(String label, Appender<ILoggingEvent> appender, int threads, int linesPerThread,
+                            boolean report) throws InterruptedException {
+        LoggerContext context = (LoggerContext) appender.getContext();
+        Logger logger = context.getLogger("com.metrifuge.LogSimulator.controller.TodoController");
+        long[][] latencies = new long[threads][linesPerThread];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            long[] samples = latencies[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < linesPerThread; i++) {
+                    LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO,
+                            "GET /api/todos/{} - Successfully retrieved todo: {} in {}ms",
+                            null, new Object[]{i, "Benchmark todo " + i, i % 17});
+                    long begin = System.nanoTime();
+                    appender.doAppend(event);
+                    samples[i] = System.nanoTime() - begin;
+                }
+            }, "bench-" + t);
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        appender.stop();
+        long elapsed = System.nanoTime() - begin;
+        context.stop();
+
+        if (report) {
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            double linesPerSecond = all.length * 1_000_000_000.0 / elapsed;
+            System.out.printf("%-22s %12.0f %10d %10d %10d%n", label, linesPerSecond,
+                    percentile(all, 50.0), percentile(all, 99.0), percentile(all, 99.9));
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static Appender<ILoggingEvent> rolling(Path directory) throws IOException {
+        LoggerContext context = new LoggerContext();
+        Files.createDirectories(directory);
+        String file = directory.resolve("bench.log").toString();
+
+        RollingFileAppender<ILoggingEvent> appender = new RollingFileAppender<>();
+        appender.setContext(context);
+        appender.setName("rolling");
+        appender.setFile(file);
+        appender.setEncoder(encoder(context));
+
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> policy = new SizeAndTimeBasedRollingPolicy<>();
+        policy.setContext(context);
+        policy.setParent(appender);
+        policy.setFileNamePattern(file + ".%d{yyyy-MM-dd}.%i.gz");
+        policy.setMaxFileSize(FileSize.valueOf(SEGMENT_SIZE));
+        policy.setMaxHistory(20);
+        policy.start();
+        appender.setRollingPolicy(policy);
+        appender.start();
+        return appender;
+    }
+
+    private static Appender<ILoggingEvent> mapped(Path directory) {
+        LoggerContext context = new LoggerContext();
+        MappedSegmentAppender<ILoggingEvent> appender = new MappedSegmentAppender<>();
+        appender.setContext(context);
+        appender.setName("mapped");
+        appender.setFile(directory.resolve("bench.log").toString());
+        appender.setSegmentSize(FileSize.valueOf(SEGMENT_SIZE));
+        appender.setMaxHistory(20);
+        appender.setEncoder(encoder(context));
+        appender.start();
+        return appender;
+    }
+
+    private static PatternLayoutEncoder encoder(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        return encoder;
+    }
+}
@@ -0,0 +1,303 @@
+package com.metrifuge.LogSimulator.logging;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stand-in for the log collector that {@link LogShippingAppender} ships to, over HTTP and framed TCP.
+ *
+ * Batches are decompressed, checked against their declared size and tracked per source by event number:
+ * retransmitted batches are counted as duplicates, batches arriving after a later one as reordered, and
+ * skipped event numbers as gaps. {@link Report#problems()} lists gaps the shipper did not declare lost,
+ * reordering and corrupt batches. {@link #failNext(int, boolean)} makes the next batches fail, before or
+ * after they were taken in, to exercise retries and lost acknowledgements.
+ *
+ * Run standalone with:
+ * {@code mvn -B test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=com.metrifuge.LogSimulator.logging.LocalLogCollector -Dexec.args="9880 9881"}
+ * and start the application with {@code todo.logging.shipping.enabled=true}.
+ */
+public class LocalLogCollector implements Closeable {
+
+    private final boolean keepEvents;
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean failAfterReceiving;
+
+    private HttpServer http;
+    private ServerSocket tcp;
+    private ExecutorService tcpConnections;
+
+    /** With {@code keepEvents} the decompressed payloads are kept and returned by {@link #events(String)}. */
+    public LocalLogCollector(boolean keepEvents) {
+        this.keepEvents = keepEvents;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int httpPort = args.length > 0 ? Integer.parseInt(args[0]) : 9880;
+        int tcpPort = args.length > 1 ? Integer.parseInt(args[1]) : 9881;
+        LocalLogCollector collector = new LocalLogCollector(false);
+        collector.startHttp(httpPort);
+        collector.startTcp(tcpPort);
+        System.out.printf("Collecting on http://localhost:%d/logs and tcp://localhost:%d%n", httpPort, tcpPort);
+        while (true) {
+            Thread.sleep(5_000);
+            for (Report report : collector.reports()) {
+                System.out.println(report + (report.problems().isEmpty() ? "" : " PROBLEMS: " + report.problems()));
+            }
+        }
+    }
+
+    public int startHttp(int port) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/logs", this::handle);
+        http.setExecutor(Executors.newCachedThreadPool());
+        http.start();
+        return http.getAddress().getPort();
+    }
+
+    public int startTcp(int port) throws IOException {
+        tcp = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        tcpConnections = Executors.newCachedThreadPool();
+        tcpConnections.execute(() -> {
+            while (!tcp.isClosed()) {
+                try {
+                    Socket socket = tcp.accept();
+                    tcpConnections.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    // Closed
+                }
+            }
+        });
+        return tcp.getLocalPort();
+    }
+
+    /**
+     * Fails the next {@code count} batches: with {@code afterReceiving} unset they are refused, otherwise they
+     * are taken in and only the acknowledgement fails, so the shipper sends them again.
+     */
+    public void failNext(int count, boolean afterReceiving) {
+        failAfterReceiving = afterReceiving;
+        failures.set(count);
+    }
+
+    public List<Report> reports() {
+        List<Report> reports = new ArrayList<>();
+        new TreeMap<>(sources).values().forEach(source -> reports.add(source.report()));
+        return reports;
+    }
+
+    public Report report(String source) {
+        Source state = sources.get(source);
+        return state != null ? state.report() : null;
+    }
+
+    public List<String> events(String source) {
+        Source state = sources.get(source);
+        if (state == null) {
+            return List.of();
+        }
+        synchronized (state) {
+            String text = state.text.toString();
+            return text.isEmpty() ? List.of() : List.of(text.split("\n"));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (http != null) {
+            http.stop(0);
+            ((ExecutorService) http.getExecutor()).shutdownNow();
+        }
+        if (tcp != null) {
+            tcp.close();
+            tcpConnections.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] payload = exchange.getRequestBody().readAllBytes();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            var headers = exchange.getRequestHeaders();
+            Batch batch;
+            try {
+                batch = new Batch(headers.getFirst(LogShippingAppender.HEADER_SOURCE),
+                        Long.parseLong(headers.getFirst(LogShippingAppender.HEADER_BATCH)),
+                        Long.parseLong(headers.getFirst(LogShippingAppender.HEADER_FIRST_EVENT)),
+                        Integer.parseInt(headers.getFirst(LogShippingAppender.HEADER_EVENTS)),
+                        Integer.parseInt(headers.getFirst(LogShippingAppender.HEADER_RAW_BYTES)),
+                        Long.parseLong(headers.getFirst(LogShippingAppender.HEADER_DROPPED)),
+                        Long.parseLong(headers.getFirst(LogShippingAppender.HEADER_LOST)),
+                        "gzip".equalsIgnoreCase(headers.getFirst("Content-Encoding")), payload);
+            } catch (RuntimeException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(receive(batch) ? 204 : 503, -1);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (magic != LogShippingAppender.TCP_MAGIC || in.readShort() != LogShippingAppender.TCP_VERSION) {
+                    return;
+                }
+                String source = in.readUTF();
+                long number = in.readLong();
+                long firstEvent = in.readLong();
+                int events = in.readInt();
+                int rawBytes = in.readInt();
+                long dropped = in.readLong();
+                long lost = in.readLong();
+                boolean gzip = (in.readByte() & LogShippingAppender.TCP_FLAG_GZIP) != 0;
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                if (!receive(new Batch(source, number, firstEvent, events, rawBytes, dropped, lost, gzip, payload))) {
+                    return;
+                }
+                out.writeLong(number);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Connection dropped by the shipper
+        }
+    }
+
+    /** Returns whether the batch is acknowledged. */
+    private boolean receive(Batch batch) {
+        boolean fail = failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0;
+        if (fail && !failAfterReceiving) {
+            return false;
+        }
+        Source source = sources.computeIfAbsent(batch.source(), Source::new);
+        byte[] raw;
+        try (InputStream in = batch.gzip()
+                ? new GZIPInputStream(new ByteArrayInputStream(batch.payload()))
+                : new ByteArrayInputStream(batch.payload())) {
+            raw = in.readAllBytes();
+        } catch (IOException e) {
+            raw = null;
+        }
+        return source.accept(batch, raw) && !fail;
+    }
+
+    private class Source {
+        final String name;
+        final BitSet received = new BitSet();
+        final StringBuilder text = new StringBuilder();
+        long nextEvent;
+        long batches;
+        long events;
+        long bytes;
+        long compressedBytes;
+        long duplicates;
+        long reordered;
+        long gapEvents;
+        long corrupt;
+        long dropped;
+        long lost;
+
+        Source(String name) {
+            this.name = name;
+        }
+
+        /** Returns false for a corrupt batch, which is refused so that the shipper sends it again. */
+        synchronized boolean accept(Batch batch, byte[] raw) {
+            if (raw == null || raw.length != batch.rawBytes()) {
+                corrupt++;
+                return false;
+            }
+            if (received.get((int) batch.number())) {
+                duplicates++;
+                return true;
+            }
+            received.set((int) batch.number());
+            if (batch.firstEvent() < nextEvent) {
+                // Fills a gap left when a later batch overtook it
+                reordered++;
+                gapEvents -= batch.events();
+            } else {
+                gapEvents += batch.firstEvent() - nextEvent;
+                nextEvent = batch.firstEvent() + batch.events();
+            }
+            batches++;
+            events += batch.events();
+            bytes += raw.length;
+            compressedBytes += batch.payload().length;
+            dropped = Math.max(dropped, batch.dropped());
+            lost = Math.max(lost, batch.lost());
+            if (keepEvents) {
+                text.append(new String(raw, StandardCharsets.UTF_8));
+            }
+            return true;
+        }
+
+        synchronized Report report() {
+            return new Report(name, batches, events, bytes, compressedBytes, duplicates, reordered, gapEvents,
+                    corrupt, dropped, lost);
+        }
+    }
+
+    private record Batch(String source, long number, long firstEvent, int events, int rawBytes, long dropped,
+                         long lost, boolean gzip, byte[] payload) {}
+
+    public record Report(String source, long batches, long events, long bytes, long compressedBytes,
+                         long duplicates, long reordered, long gapEvents, long corrupt, long declaredDropped,
+                         long declaredLost) {
+
+        /** Everything that means events went missing or arrived out of order without the shipper saying so. */
+        public List<String> problems() {
+            List<String> problems = new ArrayList<>();
+            // Every batch declares the events of all batches given up before it
+            if (gapEvents > declaredLost) {
+                problems.add((gapEvents - declaredLost) + " events missing that were not declared lost");
+            }
+            if (reordered > 0) {
+                problems.add(reordered + " batches arrived after a later batch");
+            }
+            if (corrupt > 0) {
+                problems.add(corrupt + " batches did not decompress to their declared size");
+            }
+            return Collections.unmodifiableList(problems);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.metrifuge.LogSimulator.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogShippingAppenderTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 2_500;
+
+    private final LoggerContext context = new LoggerContext();
+    private final LocalLogCollector collector = new LocalLogCollector(true);
+
+    @BeforeEach
+    void setUp() {
+        context.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        context.stop();
+        collector.close();
+    }
+
+    @Test
+    void shipsEveryEventInOrderOverHttpThroughRefusedBatches() throws Exception {
+        int port = collector.startHttp(0);
+        LogShippingAppender<ILoggingEvent> appender = appender("http://localhost:" + port + "/logs", 10);
+        collector.failNext(3, false);
+
+        log(appender);
+        appender.stop();
+
+        LocalLogCollector.Report report = collector.report("test");
+        assertEquals(THREADS * EVENTS_PER_THREAD, report.events());
+        assertEquals(List.of(), report.problems());
+        assertEquals(0L, appender.getStatistics().get("lostEvents"));
+        assertTrue((Long) appender.getStatistics().get("retries") >= 3);
+        assertInOrder(collector.events("test"));
+    }
+
+    @Test
+    void discardsRetransmissionsAfterLostAcknowledgementsOverTcp() throws Exception {
+        int port = collector.startTcp(0);
+        LogShippingAppender<ILoggingEvent> appender = appender("tcp://localhost:" + port, 10);
+        collector.failNext(2, true);
+
+        log(appender);
+        appender.stop();
+
+        LocalLogCollector.Report report = collector.report("test");
+        assertEquals(THREADS * EVENTS_PER_THREAD, report.events());
+        assertEquals(2, report.duplicates());
+        assertEquals(List.of(), report.problems());
+        assertInOrder(collector.events("test"));
+    }
+
+    @Test
+    void declaresBatchesItGivesUpOn() throws Exception {
+        int port = collector.startHttp(0);
+        LogShippingAppender<ILoggingEvent> appender = appender("http://localhost:" + port + "/logs", 1);
+        collector.failNext(1, false);
+
+        log(appender);
+        appender.stop();
+
+        LocalLogCollector.Report report = collector.report("test");
+        long lost = (Long) appender.getStatistics().get("lostEvents");
+        assertTrue(lost > 0);
+        assertEquals(THREADS * EVENTS_PER_THREAD - lost, report.events());
+        assertEquals(lost, report.gapEvents());
+        assertEquals(List.of(), report.problems());
+    }
+
+    private LogShippingAppender<ILoggingEvent> appender(String url, int maxAttempts) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        LogShippingAppender<ILoggingEvent> appender = new LogShippingAppender<>();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setEncoder(encoder);
+        appender.setUrl(url);
+        appender.setSource("test");
+        appender.setQueueCapacity(1_000);
+        appender.setOverflow("BLOCK");
+        appender.setMaxBlockMs(10_000);
+        appender.setBatchEvents(100);
+        appender.setLingerMs(5);
+        appender.setMaxAttempts(maxAttempts);
+        appender.setInitialBackoffMs(5);
+        appender.setMaxBackoffMs(20);
+        appender.start();
+        assertTrue(appender.isStarted());
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        return appender;
+    }
+
+    private void log(LogShippingAppender<ILoggingEvent> appender) throws InterruptedException {
+        Logger logger = context.getLogger("shipping-test");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    logger.info("{} {}", thread, i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0L, appender.getStatistics().get("droppedOnOverflow"));
+    }
+
+    private static void assertInOrder(List<String> events) {
+        Map<Integer, Integer> next = new HashMap<>();
+        for (String event : events) {
+            String[] parts = event.split(" ");
+            int thread = Integer.parseInt(parts[0]);
+            int expected = next.getOrDefault(thread, 0);
+            assertEquals(expected, Integer.parseInt(parts[1]), "event of thread " + thread);
+            next.put(thread, expected + 1);
+        }
+        for (int t = 0; t < THREADS; t++) {
+            assertEquals(EVENTS_PER_THREAD, next.get(t));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.metrifuge.LogSimulator.logging;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Replays an {@link AccessCapture} file against a running instance and reports latency percentiles per
+ * endpoint, next to the latencies recorded when the traffic was captured.
+ *
+ * At a speed of 1 every request is sent at its captured offset from the first one; at N the offsets are
+ * divided by N. Requests are sent without waiting for earlier ones, so overlapping requests overlap again
+ * and the captured concurrency is reproduced. Latency is measured from the scheduled send time, so a
+ * replayer that falls behind shows up as latency instead of hiding it. With {@code max} requests are sent
+ * back to back, keeping at most {@code maxInFlight} outstanding - by default the peak concurrency of the
+ * capture. Bodies captured only as a hash are replaced by a minimal todo.
+ *
+ * Run with:
+ * {@code mvn -B test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=com.metrifuge.LogSimulator.logging.TrafficReplayer
+ *  -Dexec.args="logs/capture/access-20260101-120000.bin 1 http://localhost:8080"}
+ */
+public class TrafficReplayer {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final byte[] SUBSTITUTE_BODY = "{\"title\":\"Replayed todo\"}".getBytes(StandardCharsets.UTF_8);
+    private static final long FAILED = -1;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: TrafficReplayer <capture-file> [speed|max] [base-url] [max-in-flight]");
+            System.exit(2);
+        }
+        List<AccessCapture.Entry> entries = AccessCapture.read(Path.of(args[0]));
+        String speedArg = args.length > 1 ? args[1] : "1";
+        boolean asFastAsPossible = "max".equalsIgnoreCase(speedArg);
+        double speed = asFastAsPossible ? 0 : Double.parseDouble(speedArg);
+        String baseUrl = args.length > 2 ? args[2] : "http://localhost:8080";
+        int peak = peakConcurrency(entries);
+        int maxInFlight = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, peak);
+
+        if (entries.isEmpty()) {
+            System.out.println("Capture is empty");
+            return;
+        }
+        long first = entries.get(0).arrivalMicros();
+        long span = entries.get(entries.size() - 1).arrivalMicros() - first;
+        System.out.printf("%d requests captured from %s over %.1fs, peak concurrency %d%n",
+                entries.size(), AccessCapture.toLocalDateTime(first), span / 1e6, peak);
+        System.out.printf("Replaying against %s %s%n%n", baseUrl,
+                asFastAsPossible ? "as fast as possible, " + maxInFlight + " in flight" : "at " + speed + "x");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long[] latencies = new long[entries.size()];
+        int[] statuses = new int[entries.size()];
+        CountDownLatch done = new CountDownLatch(entries.size());
+        // Only bounds in-flight requests as fast as possible; timed replay keeps whatever overlap it produces
+        Semaphore inFlight = asFastAsPossible ? new Semaphore(maxInFlight) : null;
+        long maxLagNanos = 0;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < entries.size(); i++) {
+            AccessCapture.Entry entry = entries.get(i);
+            long scheduled;
+            if (asFastAsPossible) {
+                inFlight.acquire();
+                scheduled = System.nanoTime();
+            } else {
+                scheduled = begin + (long) ((entry.arrivalMicros() - first) * 1000 / speed);
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - scheduled);
+            }
+
+            int index = i;
+            client.sendAsync(request(baseUrl, entry), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = error == null ? System.nanoTime() - scheduled : FAILED;
+                        statuses[index] = error == null ? response.statusCode() : 0;
+                        if (inFlight != null) {
+                            inFlight.release();
+                        }
+                        done.countDown();
+                    });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        System.out.printf("Sent %d requests in %.1fs (%.0f req/s), max scheduling lag %.1fms%n%n",
+                entries.size(), elapsed / 1e9, entries.size() * 1e9 / elapsed, maxLagNanos / 1e6);
+        report(entries, latencies, statuses);
+    }
+
+    private static HttpRequest request(String baseUrl, AccessCapture.Entry entry) {
+        String uri = baseUrl + entry.path() + (entry.query() != null ? "?" + entry.query() : "");
+        byte[] body = entry.body() != null ? entry.body() : entry.bodyLength() > 0 ? SUBSTITUTE_BODY : null;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30));
+        entry.headers().forEach(builder::header);
+        return builder.method(entry.method(), body != null
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private static void report(List<AccessCapture.Entry> entries, long[] latencies, int[] statuses) {
+        Map<String, List<Integer>> byEndpoint = new TreeMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            AccessCapture.Entry entry = entries.get(i);
+            String endpoint = entry.method() + " " + ID_SEGMENT.matcher(entry.path()).replaceAll("/{id}");
+            byEndpoint.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(i);
+        }
+
+        System.out.printf("%-34s %7s %6s %6s %9s %9s | %9s %9s %9s %9s%n", "endpoint", "count", "5xx", "failed",
+                "cap p50", "cap p99", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, List<Integer>> endpoint : byEndpoint.entrySet()) {
+            List<Integer> indexes = endpoint.getValue();
+            long[] replayed = indexes.stream().mapToLong(i -> latencies[i]).filter(l -> l != FAILED).sorted().toArray();
+            long[] captured = indexes.stream().mapToLong(i -> entries.get(i).durationMicros() * 1000).sorted().toArray();
+            long serverErrors = indexes.stream().filter(i -> statuses[i] >= 500).count();
+            long failed = indexes.size() - replayed.length;
+            System.out.printf("%-34s %7d %6d %6d %9.2f %9.2f | %9.2f %9.2f %9.2f %9.2f%n", endpoint.getKey(),
+                    indexes.size(), serverErrors, failed,
+                    millis(captured, 50.0), millis(captured, 99.0),
+                    millis(replayed, 50.0), millis(replayed, 90.0), millis(replayed, 99.0), millis(replayed, 100.0));
+        }
+    }
+
+    /** Most requests in flight at once in the capture, from captured arrivals and durations. */
+    private static int peakConcurrency(List<AccessCapture.Entry> entries) {
+        long[] starts = entries.stream().mapToLong(AccessCapture.Entry::arrivalMicros).toArray();
+        long[] ends = entries.stream().mapToLong(e -> e.arrivalMicros() + e.durationMicros()).sorted().toArray();
+        int peak = 0;
+        int current = 0;
+        int end = 0;
+        for (long start : starts) {
+            while (end < ends.length && ends[end] <= start) {
+                current--;
+                end++;
+            }
+            peak = Math.max(peak, ++current);
+        }
+        return peak;
+    }
+
+    private static double millis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))] / 1e6;
+    }
+}
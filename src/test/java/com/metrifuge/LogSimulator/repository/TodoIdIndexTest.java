@@ -0,0 +1,194 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.DeadlineProperties;
+import com.metrifuge.LogSimulator.config.JdbcInstrumentationProperties;
+import com.metrifuge.LogSimulator.config.ShardingProperties;
+import com.metrifuge.LogSimulator.service.DatasetChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TodoIdIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private BlockingShards shards;
+    private TodoIdIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setShards(2);
+        properties.setDirectory(directory.toString());
+        properties.setPoolSize(2);
+        JdbcInstrumentationProperties instrumentation = new JdbcInstrumentationProperties();
+        instrumentation.setEnabled(false);
+        shards = new BlockingShards(properties, new JdbcInstrumentation(instrumentation));
+        for (TodoShards.Shard shard : shards.all()) {
+            shard.jdbcTemplate().execute("CREATE TABLE todos (id INTEGER PRIMARY KEY)");
+            shard.archiveJdbcTemplate().execute("CREATE TABLE todos (id INTEGER PRIMARY KEY)");
+        }
+        index = new TodoIdIndex(true, shards);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.release.countDown();
+        shards.close();
+    }
+
+    @Test
+    void everyIdMightExistUntilTheIndexIsBuilt() {
+        assertTrue(index.mightExist(1));
+        assertTrue(index.mightExist(1_000_000));
+        assertEquals(false, index.getStatistics().get("built"));
+    }
+
+    @Test
+    void buildMarksLiveAndArchivedIds() throws Exception {
+        insert(1, 2, 3, 70_000);
+        archive(4);
+        shards.release.countDown();
+
+        rebuild();
+
+        assertTrue(index.mightExist(1));
+        assertTrue(index.mightExist(4));
+        assertTrue(index.mightExist(70_000));
+        assertFalse(index.mightExist(5));
+        assertFalse(index.mightExist(0));
+        assertFalse(index.mightExist(-1));
+        assertEquals(5L, index.getStatistics().get("ids"));
+        assertEquals(2, index.getStatistics().get("chunks"));
+    }
+
+    @Test
+    void writesAfterTheBuildKeepTheIndexCurrent() throws Exception {
+        insert(1);
+        shards.release.countDown();
+        rebuild();
+
+        index.added(2);
+        index.removed(1);
+
+        assertTrue(index.mightExist(2));
+        assertFalse(index.mightExist(1));
+    }
+
+    @Test
+    void writesDuringARebuildReachTheNewIndex() throws Exception {
+        insert(1, 2);
+        index.onDatasetChanged(new DatasetChangedEvent("test"));
+        assertTrue(shards.queryStarted.await(5, TimeUnit.SECONDS));
+
+        // The build is about to read the table; these writes land in the set it is filling
+        insert(3);
+        index.added(3);
+        delete(2);
+        index.removed(2);
+        index.added(4);
+        assertTrue(index.mightExist(5), "nothing is answered from the index while it builds");
+        shards.release.countDown();
+        awaitBuild();
+
+        assertTrue(index.mightExist(1));
+        assertFalse(index.mightExist(2));
+        assertTrue(index.mightExist(3));
+        assertTrue(index.mightExist(4));
+        assertFalse(index.mightExist(5));
+    }
+
+    @Test
+    void invalidateDuringARebuildDiscardsIt() throws Exception {
+        insert(1);
+        index.onDatasetChanged(new DatasetChangedEvent("test"));
+        assertTrue(shards.queryStarted.await(5, TimeUnit.SECONDS));
+
+        index.invalidate();
+        shards.release.countDown();
+        awaitBuild();
+
+        assertEquals(false, index.getStatistics().get("built"));
+        assertEquals(false, index.getStatistics().get("building"));
+        assertTrue(index.mightExist(99));
+    }
+
+    @Test
+    void disabledIndexIsNeverBuilt() {
+        insert(1);
+        shards.release.countDown();
+        TodoIdIndex disabled = new TodoIdIndex(false, shards);
+
+        disabled.onDatasetChanged(new DatasetChangedEvent("test"));
+
+        assertTrue(disabled.mightExist(99));
+        assertEquals(false, disabled.getStatistics().get("building"));
+    }
+
+    private void rebuild() throws InterruptedException {
+        index.onDatasetChanged(new DatasetChangedEvent("test"));
+        awaitBuild();
+    }
+
+    private void awaitBuild() throws InterruptedException {
+        assertTrue(shards.queryStarted.await(5, TimeUnit.SECONDS));
+        Thread builder = shards.builder;
+        assertNotNull(builder);
+        builder.join(5_000);
+        assertFalse(builder.isAlive());
+    }
+
+    private void insert(long... ids) {
+        for (long id : ids) {
+            shards.forId(id).jdbcTemplate().update("INSERT INTO todos (id) VALUES (?)", id);
+        }
+    }
+
+    private void archive(long id) {
+        shards.forId(id).archiveJdbcTemplate().update("INSERT INTO todos (id) VALUES (?)", id);
+    }
+
+    private void delete(long id) {
+        shards.forId(id).jdbcTemplate().update("DELETE FROM todos WHERE id = ?", id);
+    }
+
+    /** Holds the index build at its query until released, and remembers the thread that ran it. */
+    private static class BlockingShards extends TodoShards {
+
+        private final CountDownLatch queryStarted = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile Thread builder;
+
+        BlockingShards(ShardingProperties properties, JdbcInstrumentation instrumentation) {
+            super(null, null, properties, instrumentation, new DeadlineProperties());
+        }
+
+        @Override
+        public <T> List<T> queryAll(Function<JdbcTemplate, T> query, boolean includeArchived) {
+            if (Thread.currentThread().getName().equals("id-index-build")) {
+                builder = Thread.currentThread();
+                queryStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.queryAll(query, includeArchived);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.metrifuge.LogSimulator.repository;
+
+import com.metrifuge.LogSimulator.config.DeadlineProperties;
+import com.metrifuge.LogSimulator.config.JdbcInstrumentationProperties;
+import com.metrifuge.LogSimulator.config.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TodoShardsTest {
+
+    private static final String SELECT_AFTER = "SELECT id FROM items WHERE id > ? ORDER BY id LIMIT ?";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mergeReturnsRowsFromAllShardsInGlobalOrder() {
+        TodoShards shards = open(3);
+        try {
+            insert(shards, LongStream.rangeClosed(1, 30).toArray(), false);
+
+            List<Long> merged = shards.merge(jdbc -> jdbc.queryForList(SELECT_AFTER, Long.class, 4, 10),
+                    Comparator.naturalOrder(), 10, false);
+
+            assertEquals(LongStream.rangeClosed(5, 14).boxed().toList(), merged);
+        } finally {
+            shards.close();
+        }
+    }
+
+    @Test
+    void mergeStopsAtTheLimitAndHandlesEmptyShards() {
+        TodoShards shards = open(3);
+        try {
+            // Nothing lands on shard 0, and shard 2 runs out before the others
+            insert(shards, new long[] {1, 2, 4, 7, 10, 13}, false);
+
+            List<Long> merged = shards.merge(jdbc -> jdbc.queryForList(SELECT_AFTER, Long.class, 0, 4),
+                    Comparator.naturalOrder(), 4, false);
+
+            assertEquals(List.of(1L, 2L, 4L, 7L), merged);
+        } finally {
+            shards.close();
+        }
+    }
+
+    @Test
+    void mergeIncludesArchivesOnlyWhenAsked() {
+        TodoShards shards = open(2);
+        try {
+            insert(shards, new long[] {2, 3, 6}, false);
+            insert(shards, new long[] {1, 4, 5}, true);
+
+            List<Long> live = shards.merge(jdbc -> jdbc.queryForList(SELECT_AFTER, Long.class, 0, 100),
+                    Comparator.naturalOrder(), 100, false);
+            List<Long> all = shards.merge(jdbc -> jdbc.queryForList(SELECT_AFTER, Long.class, 0, 100),
+                    Comparator.naturalOrder(), 100, true);
+
+            assertEquals(List.of(2L, 3L, 6L), live);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), all);
+        } finally {
+            shards.close();
+        }
+    }
+
+    @Test
+    void reopeningWithTheSameShardCountSucceeds() {
+        open(3).close();
+        TodoShards reopened = open(3);
+        try {
+            assertEquals(3, reopened.count());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void reopeningWithADifferentShardCountFails() {
+        open(3).close();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> open(2));
+
+        assertTrue(e.getMessage().contains("written as shard 0 of 3"), e.getMessage());
+    }
+
+    @Test
+    void unstampedFileWithTodosFromAnotherLayoutFails() {
+        JdbcTemplate legacy = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:sqlite:" + directory.resolve("todos-0.db")));
+        legacy.execute("CREATE TABLE todos (id INTEGER PRIMARY KEY)");
+        // With 2 shards, shard 0 holds only even IDs
+        legacy.update("INSERT INTO todos (id) VALUES (2), (3), (5)");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> open(2));
+
+        assertTrue(e.getMessage().contains("holds 2 todos that belong on other shards"), e.getMessage());
+    }
+
+    private TodoShards open(int count) {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setShards(count);
+        properties.setDirectory(directory.toString());
+        properties.setPoolSize(1);
+        JdbcInstrumentationProperties instrumentation = new JdbcInstrumentationProperties();
+        instrumentation.setEnabled(false);
+        return new TodoShards(null, null, properties, new JdbcInstrumentation(instrumentation),
+                new DeadlineProperties());
+    }
+
+    private static void insert(TodoShards shards, long[] ids, boolean archive) {
+        for (TodoShards.Shard shard : shards.all()) {
+            JdbcTemplate jdbc = archive ? shard.archiveJdbcTemplate() : shard.jdbcTemplate();
+            jdbc.execute("CREATE TABLE IF NOT EXISTS items (id INTEGER PRIMARY KEY)");
+        }
+        for (long id : ids) {
+            TodoShards.Shard shard = shards.forId(id);
+            JdbcTemplate jdbc = archive ? shard.archiveJdbcTemplate() : shard.jdbcTemplate();
+            jdbc.update("INSERT INTO items (id) VALUES (?)", id);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.config.RequestDeadline;
+import com.metrifuge.LogSimulator.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadCoalescerTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersWithTheSameKeyShareOneQuery() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 0);
+        Object shared = new Object();
+
+        Future<Object> leader = call(coalescer, "key", null, blocking(() -> shared));
+        awaitLeader();
+        Future<Object> follower = call(coalescer, "key", null, counting(Object::new));
+        awaitJoined(coalescer, 1);
+        release.countDown();
+
+        assertSame(shared, leader.get(5, TimeUnit.SECONDS));
+        assertSame(shared, follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        assertEquals(0, coalescer.getStatistics().get("keys"));
+    }
+
+    @Test
+    void differentKeysRunSeparately() {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 60_000);
+
+        assertEquals("a", coalescer.execute("a", counting(() -> "a")));
+        assertEquals("b", coalescer.execute("b", counting(() -> "b")));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void followerWithTimeLeftRetriesWhenTheLeaderRanOutOfTime() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 0);
+
+        Future<Object> leader = call(coalescer, "key", 60_000L, blocking(() -> {
+            throw new DeadlineExceededException("Request deadline passed while a query was running");
+        }));
+        awaitLeader();
+        Future<Object> follower = call(coalescer, "key", 60_000L, counting(() -> "retried"));
+        awaitJoined(coalescer, 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, leaderFailure.getCause());
+        assertEquals("retried", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+        assertEquals(1L, coalescer.getStatistics().get("retriedAfterLeaderDeadline"));
+    }
+
+    @Test
+    void followerStopsWaitingAtItsOwnDeadline() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 0);
+
+        Future<Object> leader = call(coalescer, "key", null, blocking(() -> "slow"));
+        awaitLeader();
+        Future<Object> follower = call(coalescer, "key", 100L, counting(() -> "never"));
+
+        ExecutionException followerFailure = assertThrows(ExecutionException.class,
+                () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, followerFailure.getCause());
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void otherLeaderFailuresReachFollowersAndAreNotKept() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 60_000);
+
+        Future<Object> leader = call(coalescer, "key", null, blocking(() -> {
+            throw new IllegalStateException("database is locked");
+        }));
+        awaitLeader();
+        Future<Object> follower = call(coalescer, "key", null, counting(() -> "never"));
+        awaitJoined(coalescer, 1);
+        release.countDown();
+
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals("fresh", coalescer.execute("key", counting(() -> "fresh")));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void callerArrivingAfterInvalidateDoesNotJoinTheOlderQuery() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 0);
+
+        Future<Object> leader = call(coalescer, "key", null, blocking(() -> "before write"));
+        awaitLeader();
+        coalescer.invalidate();
+
+        assertEquals("after write", coalescer.execute("key", counting(() -> "after write")));
+        release.countDown();
+        assertEquals("before write", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+        assertEquals(0L, coalescer.getStatistics().get("joinedInFlight"));
+    }
+
+    @Test
+    void resultOfAQueryOverlappingAnInvalidateIsNotKept() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 60_000);
+
+        Future<Object> leader = call(coalescer, "key", null, blocking(() -> "before write"));
+        awaitLeader();
+        coalescer.invalidate();
+        release.countDown();
+        assertEquals("before write", leader.get(5, TimeUnit.SECONDS));
+
+        assertEquals("after write", coalescer.execute("key", counting(() -> "after write")));
+        assertEquals(2, executions.get());
+        assertEquals(0L, coalescer.getStatistics().get("servedWithinTtl"));
+    }
+
+    @Test
+    void resultIsServedWithinTheTtlUntilInvalidated() {
+        ReadCoalescer coalescer = new ReadCoalescer(true, 60_000);
+
+        assertEquals("first", coalescer.execute("key", counting(() -> "first")));
+        assertEquals("first", coalescer.execute("key", counting(() -> "second")));
+        coalescer.onDatasetChanged(new DatasetChangedEvent("test"));
+        assertEquals("third", coalescer.execute("key", counting(() -> "third")));
+
+        assertEquals(2, executions.get());
+        assertEquals(1L, coalescer.getStatistics().get("servedWithinTtl"));
+    }
+
+    @Test
+    void disabledCoalescerRunsEveryQuery() {
+        ReadCoalescer coalescer = new ReadCoalescer(false, 60_000);
+
+        coalescer.execute("key", counting(() -> "a"));
+        coalescer.execute("key", counting(() -> "a"));
+
+        assertEquals(2, executions.get());
+    }
+
+    private Future<Object> call(ReadCoalescer coalescer, String key, Long timeoutMs, Supplier<Object> query) {
+        return callers.submit(() -> {
+            if (timeoutMs != null) {
+                RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            }
+            try {
+                return coalescer.execute(key, query);
+            } finally {
+                RequestDeadline.clear();
+            }
+        });
+    }
+
+    /** A query that signals it started and then waits for the test to release it. */
+    private Supplier<Object> blocking(Supplier<Object> result) {
+        return counting(() -> {
+            leaderStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        });
+    }
+
+    private Supplier<Object> counting(Supplier<Object> result) {
+        return () -> {
+            executions.incrementAndGet();
+            return result.get();
+        };
+    }
+
+    private void awaitLeader() throws InterruptedException {
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitJoined(ReadCoalescer coalescer, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((long) coalescer.getStatistics().get("joinedInFlight") < count
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, coalescer.getStatistics().get("joinedInFlight"));
+    }
+}
@@ -0,0 +1,197 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.dto.SnapshotResult;
+import com.metrifuge.LogSimulator.dto.TodoRequest;
+import com.metrifuge.LogSimulator.dto.TodoResponse;
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SnapshotServiceTest {
+
+    private static final Path DATA_DIR = tempDirectory();
+    private static final int BLOCK_ROWS = 3;
+    private static final int HEADER_BYTES = 32;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATA_DIR.resolve("todos.db"));
+        registry.add("todo.snapshot.directory", () -> DATA_DIR.resolve("snapshots").toString());
+        registry.add("todo.snapshot.block-rows", () -> BLOCK_ROWS);
+    }
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @BeforeEach
+    void setUp() {
+        TodoResponse done = create("Ünïcödé title ✓", "with a description", "someone@example.com", "a,b", 8);
+        todoService.completeTodo(done.getId(), null);
+        create("No optional fields", null, null, null, null);
+        create("Third", "", "", "", 0);
+    }
+
+    @Test
+    void restoreReproducesEveryColumnAcrossBlocks() {
+        List<Todo> before = allTodos();
+        SnapshotResult snapshot = snapshotService.snapshot("round-trip.mfs");
+        assertEquals(before.size(), snapshot.getRows());
+        assertEquals((before.size() + BLOCK_ROWS - 1) / BLOCK_ROWS, snapshot.getBlocks());
+
+        create("Written after the snapshot", null, null, null, 1);
+        snapshotService.restore("round-trip.mfs");
+
+        assertEquals(before, allTodos());
+    }
+
+    @Test
+    void headerRecordsFormatRowsAndBlocks() throws IOException {
+        SnapshotResult snapshot = snapshotService.snapshot("header.mfs");
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file("header.mfs")), 0, HEADER_BYTES);
+        assertEquals(0x4D465453, header.getInt());
+        assertEquals(2, header.getInt());
+        assertEquals(snapshot.getRows(), header.getLong());
+        assertEquals(snapshot.getBlocks(), header.getInt());
+        assertEquals(snapshot.getBytes(), Files.size(file("header.mfs")));
+    }
+
+    @Test
+    void formatOneSnapshotRestoresWithVersionZero() throws IOException {
+        List<Todo> before = allTodos();
+        snapshotService.snapshot("v2.mfs");
+        Files.write(file("v1.mfs"), withoutVersions(Files.readAllBytes(file("v2.mfs"))));
+
+        snapshotService.restore("v1.mfs");
+
+        before.forEach(todo -> todo.setVersion(0L));
+        assertEquals(before, allTodos());
+    }
+
+    @Test
+    void outOfRangeEnumIsRejectedBeforeAnythingIsDeleted() throws IOException {
+        // First block: count and payload size, then ids, versions, completed flags and priorities
+        assertRejected(bytes -> bytes.put(HEADER_BYTES + 8 + 17 * BLOCK_ROWS, (byte) 99), "enum ordinal 99");
+    }
+
+    @Test
+    void truncatedFileIsRejectedBeforeAnythingIsDeleted() throws IOException {
+        assertRejected(bytes -> bytes.limit(bytes.limit() - 5), "invalid size");
+    }
+
+    @Test
+    void trailingBytesAreRejected() throws IOException {
+        assertRejected(bytes -> {
+            byte[] longer = new byte[bytes.limit() + 4];
+            bytes.get(longer, 0, bytes.limit());
+            bytes.clear();
+            bytes.put(ByteBuffer.wrap(longer));
+        }, "unexpected bytes after the last block");
+    }
+
+    @Test
+    void rowCountMismatchIsRejected() throws IOException {
+        assertRejected(bytes -> bytes.putLong(8, bytes.getLong(8) + 1), "header declares");
+    }
+
+    @Test
+    void wrongMagicAndNewerFormatAreRejected() throws IOException {
+        assertRejected(bytes -> bytes.putInt(0, 0), "Not a todo snapshot");
+        assertRejected(bytes -> bytes.putInt(4, 3), "Unsupported snapshot format version 3");
+    }
+
+    @Test
+    void namesOutsideTheSnapshotDirectoryAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.snapshot("../escape.mfs"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.restore(".hidden"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.restore("missing.mfs"));
+    }
+
+    private void assertRejected(Consumer<ByteBuffer> damage, String message) throws IOException {
+        snapshotService.snapshot("intact.mfs");
+        byte[] intact = Files.readAllBytes(file("intact.mfs"));
+        ByteBuffer bytes = ByteBuffer.allocate(intact.length + 16);
+        bytes.put(intact).flip();
+        damage.accept(bytes);
+        byte[] damaged = new byte[bytes.limit()];
+        bytes.get(0, damaged);
+        Files.write(file("damaged.mfs"), damaged);
+        List<Todo> before = allTodos();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> snapshotService.restore("damaged.mfs"));
+
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+        assertEquals(before, allTodos());
+    }
+
+    /** Rewrites a format 2 snapshot as format 1 by dropping the version column from every block. */
+    private static byte[] withoutVersions(byte[] v2) {
+        ByteBuffer in = ByteBuffer.wrap(v2);
+        ByteBuffer out = ByteBuffer.allocate(v2.length);
+        out.putInt(in.getInt()).putInt(1);
+        in.getInt();
+        out.putLong(in.getLong());
+        int blocks = in.getInt();
+        out.putInt(blocks).putLong(in.getLong()).putInt(in.getInt());
+        for (int block = 0; block < blocks; block++) {
+            int n = in.getInt();
+            int payload = in.getInt();
+            out.putInt(n).putInt(payload - 8 * n);
+            out.put(v2, in.position(), 8 * n);
+            out.put(v2, in.position() + 16 * n, payload - 16 * n);
+            in.position(in.position() + payload);
+        }
+        byte[] v1 = new byte[out.position()];
+        out.get(0, v1);
+        return v1;
+    }
+
+    private List<Todo> allTodos() {
+        return todoRepository.findPageAfterId(0, 100_000);
+    }
+
+    private TodoResponse create(String title, String description, String assignedTo, String tags,
+                                Integer estimatedHours) {
+        return todoService.createTodo(new TodoRequest(title, description, false, Todo.Priority.MEDIUM,
+                Todo.Category.PERSONAL, estimatedHours != null ? LocalDateTime.now().plusDays(1) : null,
+                assignedTo, tags, estimatedHours));
+    }
+
+    private static Path file(String name) {
+        return DATA_DIR.resolve("snapshots").resolve(name);
+    }
+
+    private static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("todo-snapshot-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.dto.TodoChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TodoChangeFeedTest {
+
+    private static final int CAPACITY = 8;
+
+    private RecordingEmitter lastEmitter;
+
+    private final TodoChangeFeed changeFeed = new TodoChangeFeed(CAPACITY, 10, 60_000, 60_000, 10, 2) {
+        @Override
+        SseEmitter createEmitter(long timeoutMs) {
+            lastEmitter = new RecordingEmitter(timeoutMs);
+            return lastEmitter;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void resumesAfterTheLastEventIdReceived() throws Exception {
+        publish(3);
+        long head = head();
+
+        BlockingQueue<Event> events = subscribe(head - 2);
+
+        assertEquals(new Event(head - 1, "updated"), next(events));
+        assertEquals(new Event(head, "updated"), next(events));
+    }
+
+    @Test
+    void startsAtTheHeadWithoutALastEventId() throws Exception {
+        publish(3);
+        BlockingQueue<Event> events = subscribe(null);
+
+        changeFeed.publish(TodoChangeEvent.Type.DELETED, 1L, null);
+
+        assertEquals(new Event(head(), "deleted"), next(events));
+    }
+
+    @Test
+    void resyncsWhenTheLastEventIdHasLeftTheRing() throws Exception {
+        publish(1);
+        long stale = head();
+        publish(CAPACITY * 2);
+
+        BlockingQueue<Event> events = subscribe(stale);
+
+        assertEquals(new Event(head(), "resync"), next(events));
+    }
+
+    @Test
+    void resyncsAndDropsASubscriberThatFallsOutOfTheRing() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+        RecordingEmitter emitter = lastEmitter;
+        emitter.blocked = true;
+        publish(1);
+        // Let a sender pick up the first event and stall on it while the ring wraps
+        Thread.sleep(100);
+        publish(CAPACITY * 2);
+        emitter.blocked = false;
+
+        Event event = next(events);
+        while (!event.name().equals("resync")) {
+            event = next(events);
+        }
+        assertEquals(head(), event.id());
+        assertEquals(1L, changeFeed.getStatistics().get("droppedSubscribers"));
+        // The resync is sent just before the subscriber is removed
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (changeFeed.getStatistics().get("subscribers") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0L, changeFeed.getStatistics().get("subscribers"));
+    }
+
+    @Test
+    void resyncsWhenTheLastEventIdIsFromBeforeARestart() throws Exception {
+        publish(3);
+
+        assertEquals(new Event(head(), "resync"), next(subscribe(head() + 1_000)));
+        assertEquals(new Event(head(), "resync"), next(subscribe(1L)));
+    }
+
+    @Test
+    void resyncsSubscribersWhenTheDatasetIsReplaced() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+
+        changeFeed.onDatasetChanged(new DatasetChangedEvent("test"));
+
+        assertEquals(new Event(head(), "resync"), next(events));
+    }
+
+    private void publish(int count) {
+        for (int i = 0; i < count; i++) {
+            changeFeed.publish(TodoChangeEvent.Type.UPDATED, (long) i, null);
+        }
+    }
+
+    private long head() {
+        return changeFeed.getStatistics().get("headSequence");
+    }
+
+    private BlockingQueue<Event> subscribe(Long lastEventId) {
+        changeFeed.subscribe(lastEventId);
+        return lastEmitter.events;
+    }
+
+    private static Event next(BlockingQueue<Event> events) throws InterruptedException {
+        Event event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "no event received");
+        return event;
+    }
+
+    private record Event(long id, String name) {}
+
+    /** Parses the id and event lines out of everything sent instead of writing it to a response. */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private volatile boolean blocked;
+
+        RecordingEmitter(long timeoutMs) {
+            super(timeoutMs);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            record(builder.build());
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            while (blocked) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            record(items);
+        }
+
+        private void record(Set<DataWithMediaType> items) {
+            String id = null;
+            for (DataWithMediaType item : items) {
+                if (!(item.getData() instanceof String text)) {
+                    continue;
+                }
+                for (String line : text.split("\n")) {
+                    if (line.startsWith("id:")) {
+                        id = line.substring(3);
+                    } else if (line.startsWith("event:")) {
+                        events.add(new Event(Long.parseLong(id), line.substring(6)));
+                    }
+                }
+            }
+        }
+    }
+}
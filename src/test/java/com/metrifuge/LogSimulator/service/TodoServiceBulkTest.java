@@ -0,0 +1,163 @@
+package com.metrifuge.LogSimulator.service;
+
+import com.metrifuge.LogSimulator.dto.BulkResult;
+import com.metrifuge.LogSimulator.dto.BulkUpdateRequest;
+import com.metrifuge.LogSimulator.dto.TodoFilter;
+import com.metrifuge.LogSimulator.dto.TodoRequest;
+import com.metrifuge.LogSimulator.dto.TodoResponse;
+import com.metrifuge.LogSimulator.model.Todo;
+import com.metrifuge.LogSimulator.repository.TodoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TodoServiceBulkTest {
+
+    private static final Path DATA_DIR = tempDirectory();
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATA_DIR.resolve("todos.db"));
+    }
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Test
+    void bulkCompleteOnlyChangesCompletionFieldsAndVersion() {
+        String owner = owner();
+        TodoResponse high = create(owner, Todo.Priority.HIGH, Todo.Category.WORK, 4);
+        TodoResponse urgent = create(owner, Todo.Priority.URGENT, Todo.Category.HEALTH, 2);
+        Todo highBefore = todoRepository.findById(high.getId()).orElseThrow();
+        Todo urgentBefore = todoRepository.findById(urgent.getId()).orElseThrow();
+
+        BulkResult result = todoService.bulkComplete(filter(owner, List.of(high.getId(), urgent.getId())));
+
+        assertEquals(2, result.getAffected());
+        assertEquals(2, result.getCompleted());
+        assertOnlyCompleted(highBefore, todoRepository.findById(high.getId()).orElseThrow());
+        assertOnlyCompleted(urgentBefore, todoRepository.findById(urgent.getId()).orElseThrow());
+    }
+
+    @Test
+    void bulkCompleteSkipsTodosThatAreAlreadyComplete() {
+        String owner = owner();
+        TodoResponse todo = create(owner, Todo.Priority.LOW, Todo.Category.OTHER, 1);
+        todoService.bulkComplete(filter(owner, null));
+        Todo completed = todoRepository.findById(todo.getId()).orElseThrow();
+
+        BulkResult again = todoService.bulkComplete(filter(owner, null));
+
+        assertEquals(0, again.getAffected());
+        assertEquals(completed, todoRepository.findById(todo.getId()).orElseThrow());
+    }
+
+    @Test
+    void bulkUpdateSetsOnlyTheGivenFields() {
+        String owner = owner();
+        TodoResponse todo = create(owner, Todo.Priority.LOW, Todo.Category.WORK, 3);
+        Todo before = todoRepository.findById(todo.getId()).orElseThrow();
+        BulkUpdateRequest request = new BulkUpdateRequest();
+        request.setFilter(filter(owner, null));
+        request.setPriority(Todo.Priority.URGENT);
+
+        BulkResult result = todoService.bulkUpdate(request);
+
+        Todo after = todoRepository.findById(todo.getId()).orElseThrow();
+        assertEquals(1, result.getAffected());
+        assertEquals(0, result.getCompleted());
+        assertEquals(Todo.Priority.URGENT, after.getPriority());
+        assertEquals(before.getCategory(), after.getCategory());
+        assertEquals(before.getEstimatedHours(), after.getEstimatedHours());
+        assertEquals(before.getCompleted(), after.getCompleted());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+    }
+
+    @Test
+    void bulkUpdateRejectsARequestWithoutChanges() {
+        BulkUpdateRequest request = new BulkUpdateRequest();
+        request.setFilter(filter(owner(), null));
+
+        assertThrows(IllegalArgumentException.class, () -> todoService.bulkUpdate(request));
+    }
+
+    @Test
+    void bulkDeleteRemovesOnlyMatchingTodos() {
+        String owner = owner();
+        TodoResponse low = create(owner, Todo.Priority.LOW, Todo.Category.WORK, 1);
+        TodoResponse high = create(owner, Todo.Priority.HIGH, Todo.Category.WORK, 1);
+        TodoFilter lowOnly = filter(owner, null);
+        lowOnly.setPriority(Todo.Priority.LOW);
+
+        BulkResult result = todoService.bulkDelete(lowOnly);
+
+        assertEquals(1, result.getAffected());
+        assertTrue(todoRepository.findById(low.getId()).isEmpty());
+        assertTrue(todoRepository.findById(high.getId()).isPresent());
+    }
+
+    @Test
+    void emptyFilterIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> todoService.bulkDelete(new TodoFilter()));
+        assertThrows(IllegalArgumentException.class, () -> todoService.bulkComplete(new TodoFilter()));
+    }
+
+    private static void assertOnlyCompleted(Todo before, Todo after) {
+        assertEquals(true, after.getCompleted());
+        assertNull(before.getCompletedAt());
+        assertNotNull(after.getCompletedAt());
+        assertEquals(after.getCompletedAt(), after.getUpdatedAt());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+
+        // Everything except the completion fields, updated_at and version is as it was
+        after.setCompleted(before.getCompleted());
+        after.setCompletedAt(before.getCompletedAt());
+        after.setUpdatedAt(before.getUpdatedAt());
+        after.setVersion(before.getVersion());
+        assertEquals(before, after);
+    }
+
+    private TodoResponse create(String owner, Todo.Priority priority, Todo.Category category, int estimatedHours) {
+        return todoService.createTodo(new TodoRequest("Bulk test todo", "Created by " + owner, false, priority,
+                category, LocalDateTime.now().plusDays(3).withNano(0), owner, "bulk-test", estimatedHours));
+    }
+
+    private static TodoFilter filter(String owner, List<Long> ids) {
+        TodoFilter filter = new TodoFilter();
+        filter.setAssignedTo(owner);
+        filter.setIds(ids);
+        return filter;
+    }
+
+    private static String owner() {
+        return UUID.randomUUID().toString().substring(0, 8) + "@example.com";
+    }
+
+    private static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("todo-bulk-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
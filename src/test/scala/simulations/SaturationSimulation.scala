@@ -0,0 +1,133 @@
+package simulations
+
+import io.gatling.core.Predef._
+import io.gatling.core.structure.ChainBuilder
+import io.gatling.http.Predef._
+import scala.concurrent.duration._
+import scala.util.Random
+
+/**
+ * Stepped open-model load that raises the arrival rate level by level until the application saturates,
+ * then asserts p95/p99 response time and error rate per request group.
+ *
+ * All knobs are system properties, e.g.
+ * {{{
+ * mvn gatling:test -Dgatling.simulationClass=simulations.SaturationSimulation \
+ *     -Dprofile=read-heavy -DstartRate=10 -DrateStep=10 -Dsteps=8 -Dp99=500
+ * }}}
+ * Gatling writes js/stats.json (per group and request) and js/assertions.xml (JUnit) into the report
+ * directory, and fails the build when an assertion fails.
+ */
+class SaturationSimulation extends Simulation {
+
+  private def prop(name: String, default: String): String = System.getProperty(name, default)
+
+  val baseUrl = prop("baseUrl", "http://localhost:8080")
+  val profile = prop("profile", "mixed")
+
+  val startRate = prop("startRate", "10").toDouble
+  val rateStep = prop("rateStep", "10").toDouble
+  val steps = prop("steps", "6").toInt
+  val levelDuration = prop("levelDuration", "30").toInt.seconds
+  val rampDuration = prop("rampDuration", "5").toInt.seconds
+
+  val p95Millis = prop("p95", "250").toInt
+  val p99Millis = prop("p99", "500").toInt
+  val maxErrorPercent = prop("maxErrorPercent", "1").toDouble
+
+  // Relative weights of the request groups for each workload profile
+  val profiles: Map[String, Map[String, Double]] = Map(
+    "read-heavy" -> Map("read" -> 80.0, "write" -> 10.0, "search" -> 5.0, "statistics" -> 5.0),
+    "write-heavy" -> Map("read" -> 15.0, "write" -> 75.0, "search" -> 5.0, "statistics" -> 5.0),
+    "search-heavy" -> Map("read" -> 15.0, "write" -> 10.0, "search" -> 70.0, "statistics" -> 5.0),
+    "mixed" -> Map("read" -> 40.0, "write" -> 30.0, "search" -> 20.0, "statistics" -> 10.0)
+  )
+
+  val weights = profiles.getOrElse(profile,
+    throw new IllegalArgumentException(s"Unknown profile '$profile', expected one of ${profiles.keys.mkString(", ")}"))
+
+  val httpProtocol = http
+    .baseUrl(baseUrl)
+    .acceptHeader("application/json")
+    .contentTypeHeader("application/json")
+    .userAgentHeader("Gatling-Saturation/1.0")
+
+  val random = new Random()
+
+  val priorities = List("LOW", "MEDIUM", "HIGH", "URGENT")
+  val categories = List("GENERAL", "WORK", "PERSONAL", "SHOPPING", "HEALTH", "EDUCATION", "FINANCE", "OTHER")
+  val keywords = List("bug", "feature", "project", "review", "deploy", "database")
+
+  val todoFeeder = Iterator.continually(Map(
+    "title" -> s"Saturation todo ${random.nextInt(100000)}",
+    "priority" -> priorities(random.nextInt(priorities.length)),
+    "category" -> categories(random.nextInt(categories.length)),
+    "keyword" -> keywords(random.nextInt(keywords.length))
+  ))
+
+  val read: ChainBuilder = group("read") {
+    randomSwitch(
+      40.0 -> exec(http("Get All Todos").get("/api/todos").check(status.is(200))),
+      20.0 -> exec(http("Get Todos by Priority").get("/api/todos?priority=#{priority}").check(status.is(200))),
+      20.0 -> exec(http("Get Todos by Category").get("/api/todos?category=#{category}").check(status.is(200))),
+      20.0 -> exec(http("Get Incomplete Todos").get("/api/todos?completed=false").check(status.is(200)))
+    )
+  }
+
+  val write: ChainBuilder = group("write") {
+    exec(
+      http("Create Todo")
+        .post("/api/todos")
+        .body(StringBody("""{"title": "#{title}", "priority": "#{priority}", "category": "#{category}"}"""))
+        .check(status.is(201))
+        .check(jsonPath("$.id").saveAs("todoId"))
+    ).randomSwitch(
+      40.0 -> exec(
+        http("Update Todo")
+          .put("/api/todos/#{todoId}")
+          .body(StringBody("""{"title": "#{title} - Updated", "priority": "HIGH", "category": "#{category}"}"""))
+          .check(status.is(200))
+      ),
+      30.0 -> exec(http("Complete Todo").patch("/api/todos/#{todoId}/complete").check(status.is(200))),
+      30.0 -> exec(http("Delete Todo").delete("/api/todos/#{todoId}").check(status.is(204)))
+    )
+  }
+
+  val search: ChainBuilder = group("search") {
+    exec(http("Search Todos").get("/api/todos?search=#{keyword}").check(status.is(200)))
+  }
+
+  val statistics: ChainBuilder = group("statistics") {
+    exec(http("Get Statistics").get("/api/todos/statistics").check(status.is(200)))
+  }
+
+  val chains = Map("read" -> read, "write" -> write, "search" -> search, "statistics" -> statistics)
+  val activeGroups = weights.filter(_._2 > 0).keys.toList.sorted
+
+  // Each virtual user performs one weighted action, so the arrival rate approximates the request rate.
+  val workload = scenario(s"Saturation ($profile)")
+    .feed(todoFeeder)
+    .randomSwitch(activeGroups.map(name => weights(name) * 100.0 / weights.values.sum -> chains(name)): _*)
+
+  before {
+    println(s"Saturation profile '$profile' against $baseUrl: $steps levels of +$rateStep users/sec from $startRate, " +
+      s"${levelDuration.toSeconds}s each; SLO p95 < ${p95Millis}ms, p99 < ${p99Millis}ms, errors < $maxErrorPercent%")
+  }
+
+  setUp(
+    workload.inject(
+      incrementUsersPerSec(rateStep)
+        .times(steps)
+        .eachLevelLasting(levelDuration)
+        .separatedByRampsLasting(rampDuration)
+        .startingFrom(startRate)
+    )
+  ).protocols(httpProtocol)
+    .assertions(activeGroups.flatMap { name =>
+      Seq(
+        details(name).responseTime.percentile(95.0).lt(p95Millis),
+        details(name).responseTime.percentile(99.0).lt(p99Millis),
+        details(name).failedRequests.percent.lt(maxErrorPercent)
+      )
+    } :+ global.failedRequests.percent.lt(maxErrorPercent))
+}